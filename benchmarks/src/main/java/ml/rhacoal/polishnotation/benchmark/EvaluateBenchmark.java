@@ -0,0 +1,54 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.NodeBase;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NodeBase#calculate()} and {@link NodeBase#calculateBits()} for random values of the propositions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int operators;
+
+    @Param({"4", "16"})
+    public int variables;
+
+    @Param("42")
+    public long seed;
+
+    private NodeBase root;
+
+    @Setup
+    public void setup() throws CalculationException {
+        Calculator.Result result = Calculator.calculates(new FormulaGenerator(seed).generate(operators, variables));
+        root = result.root;
+        Random random = new Random(seed);
+        for (PropositionIdentifierNode node : result.identifierMap.values()) {
+            node.setValue(random.nextBoolean());
+            node.setBits(random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public boolean calculate() {
+        return root.calculate();
+    }
+
+    @Benchmark
+    public long calculateBits() {
+        return root.calculateBits();
+    }
+}
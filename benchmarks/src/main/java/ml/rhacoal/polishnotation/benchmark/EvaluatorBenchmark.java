@@ -0,0 +1,55 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.program.BytecodeCompiler;
+import ml.rhacoal.polishnotation.program.Evaluator;
+import ml.rhacoal.polishnotation.program.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Evaluator#eval64(long[])} of a {@link Program} and of the class generated by
+ * {@link BytecodeCompiler}, including formulas too large for one method of generated code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+    @Param({"256", "3000", "20000"})
+    public int operators;
+
+    @Param("18")
+    public int variables;
+
+    @Param({"PROGRAM", "BYTECODE"})
+    public Calculator.Engine engine;
+
+    @Param("42")
+    public long seed;
+
+    private Evaluator evaluator;
+    private long[] values;
+
+    @Setup
+    public void setup() throws CalculationException {
+        Program program = Calculator.calculates(new FormulaGenerator(seed).generate(operators, variables)).compile();
+        evaluator = engine == Calculator.Engine.BYTECODE ? BytecodeCompiler.compile(program) : program.newEvaluator();
+        Random random = new Random(seed);
+        values = new long[program.getVariableCount()];
+        for (int i = 0; i < values.length; ++ i) {
+            values[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public long eval64() {
+        return evaluator.eval64(values);
+    }
+}
@@ -0,0 +1,92 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates random propositional formulas from a seed, so the same seed always gives the same formulas.
+ * <p>The formulas use the default operators of {@link ml.rhacoal.polishnotation.OperatorRegistry} and the
+ * propositions {@code p0}, {@code p1}, ..., each of which appears at least once. Parentheses are only written
+ * where the precedence requires them.</p>
+ */
+public final class FormulaGenerator {
+
+    private static final String[] BINARY = {"|", "&", "^", "~", "↑", "↓"};
+    private static final int[] PRECEDENCE = {10, 15, 7, 3, 2, 1};
+    private static final int NOT_PRECEDENCE = 1000;
+    private static final int VALUE_PRECEDENCE = Integer.MAX_VALUE;
+    private static final double NOT_PROBABILITY = 0.2;
+
+    private final Random random;
+    private int[] leaves;
+    private int nextLeaf;
+
+    /**
+     * Constructs a generator.
+     * @param seed the seed of the formulas
+     */
+    public FormulaGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates a formula.
+     * @param operators the number of binary operators, which is one less than the number of propositions written
+     * @param variables the number of distinct propositions
+     * @return the formula
+     */
+    public String generate(int operators, int variables) {
+        if (variables <= 0 || operators < variables - 1) {
+            throw new IllegalArgumentException(
+                    "Cannot write " + variables + " propositions with " + operators + " operators.");
+        }
+        // every proposition once in a random order, then random ones
+        leaves = new int[operators + 1];
+        for (int i = 0; i < leaves.length; ++ i) {
+            leaves[i] = i < variables ? i : random.nextInt(variables);
+        }
+        for (int i = leaves.length - 1; i > 0; -- i) {
+            int j = random.nextInt(i + 1);
+            int temp = leaves[i];
+            leaves[i] = leaves[j];
+            leaves[j] = temp;
+        }
+        nextLeaf = 0;
+        StringBuilder builder = new StringBuilder(operators * 6 + 4);
+        generate(operators, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes a subformula with the given number of binary operators.
+     * @return the precedence of the outermost operator
+     */
+    private int generate(int operators, StringBuilder builder) {
+        if (random.nextDouble() < NOT_PROBABILITY) {
+            builder.append('!');
+            int start = builder.length();
+            int precedence = generate(operators, builder);
+            if (precedence < NOT_PRECEDENCE) {
+                builder.insert(start, '(').append(')');
+            }
+            return NOT_PRECEDENCE;
+        }
+        if (operators == 0) {
+            builder.append('p').append(leaves[nextLeaf ++]);
+            return VALUE_PRECEDENCE;
+        }
+        int operator = random.nextInt(BINARY.length);
+        int precedence = PRECEDENCE[operator];
+        int left = random.nextInt(operators);
+        int start = builder.length();
+        if (generate(left, builder) < precedence) {
+            builder.insert(start, '(').append(')');
+        }
+        builder.append(BINARY[operator]);
+        start = builder.length();
+        // operators of the same precedence are calculated from left to right
+        if (generate(operators - 1 - left, builder) <= precedence) {
+            builder.insert(start, '(').append(')');
+        }
+        return precedence;
+    }
+}
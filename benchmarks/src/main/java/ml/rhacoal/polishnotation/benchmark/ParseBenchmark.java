@@ -0,0 +1,40 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Calculator#calculates(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int operators;
+
+    @Param({"4", "16"})
+    public int variables;
+
+    @Param("42")
+    public long seed;
+
+    private String expression;
+
+    @Setup
+    public void setup() {
+        expression = new FormulaGenerator(seed).generate(operators, variables);
+    }
+
+    @Benchmark
+    public Calculator.Result calculates() throws CalculationException {
+        return Calculator.calculates(expression);
+    }
+}
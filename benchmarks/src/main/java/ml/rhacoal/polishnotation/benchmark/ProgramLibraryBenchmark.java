@@ -0,0 +1,71 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.program.Program;
+import ml.rhacoal.polishnotation.program.ProgramLibrary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares compiling a set of formulas from their text with opening them from a {@link ProgramLibrary}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramLibraryBenchmark {
+
+    @Param({"1000", "10000"})
+    public int formulas;
+
+    @Param({"32"})
+    public int operators;
+
+    @Param("42")
+    public long seed;
+
+    private String[] expressions;
+    private ByteBuffer library;
+
+    @Setup
+    public void setup() throws CalculationException, IOException {
+        FormulaGenerator generator = new FormulaGenerator(seed);
+        expressions = new String[formulas];
+        for (int i = 0; i < formulas; ++ i) {
+            expressions[i] = generator.generate(operators, 16);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProgramLibrary.write(compile(), Channels.newChannel(out));
+        library = ByteBuffer.allocateDirect(out.size());
+        library.put(out.toByteArray()).flip();
+    }
+
+    @Benchmark
+    public List<Program> compile() throws CalculationException {
+        List<Program> programs = new ArrayList<>(formulas);
+        for (String expression : expressions) {
+            programs.add(Calculator.calculates(expression).compile());
+        }
+        return programs;
+    }
+
+    @Benchmark
+    public ProgramLibrary open() throws IOException {
+        return ProgramLibrary.open(library);
+    }
+
+    @Benchmark
+    public ProgramLibrary openTrusted() throws IOException {
+        return ProgramLibrary.open(library, false);
+    }
+}
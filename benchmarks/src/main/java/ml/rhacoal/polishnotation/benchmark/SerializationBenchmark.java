@@ -0,0 +1,46 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.NodeBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link NodeBase#toPolishNotation()} and {@link NodeBase#toReversePolishNotation()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int operators;
+
+    @Param({"4", "16"})
+    public int variables;
+
+    @Param("42")
+    public long seed;
+
+    private NodeBase root;
+
+    @Setup
+    public void setup() throws CalculationException {
+        root = Calculator.calculates(new FormulaGenerator(seed).generate(operators, variables)).root;
+    }
+
+    @Benchmark
+    public String toPolishNotation() {
+        return root.toPolishNotation();
+    }
+
+    @Benchmark
+    public String toReversePolishNotation() {
+        return root.toReversePolishNotation();
+    }
+}
@@ -0,0 +1,61 @@
+package ml.rhacoal.polishnotation.benchmark;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Calculator.TruthTable#calculate(int)} with each {@link Calculator.Engine}, and the principal normal
+ * forms of a calculated table, both collected into arrays and streamed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TruthTableBenchmark {
+
+    @Param({"64", "1024"})
+    public int operators;
+
+    @Param({"8", "16", "20"})
+    public int variables;
+
+    @Param({"TREE", "PROGRAM", "BYTECODE", "INCREMENTAL"})
+    public Calculator.Engine engine;
+
+    @Param("42")
+    public long seed;
+
+    private Calculator.Result result;
+    private Calculator.TruthTable table;
+
+    @Setup
+    public void setup() throws CalculationException {
+        result = Calculator.calculates(new FormulaGenerator(seed).generate(operators, variables));
+        table = Calculator.getTruthTable(result.root, result.identifierMap, 0, null, engine);
+    }
+
+    @Benchmark
+    public Calculator.TruthTable calculate() {
+        return table.calculate(0);
+    }
+
+    @Benchmark
+    public int[] calculatePrincipalConjunctiveNormalForm() {
+        return table.calculatePrincipalConjunctiveNormalForm();
+    }
+
+    @Benchmark
+    public int[] calculatePrincipalDisjunctiveNormalForm() {
+        return table.calculatePrincipalDisjunctiveNormalForm();
+    }
+
+    @Benchmark
+    public long streamPrincipalDisjunctiveNormalForm() {
+        return table.streamPrincipalDisjunctiveNormalForm(false).sum();
+    }
+}
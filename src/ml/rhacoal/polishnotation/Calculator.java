@@ -1,27 +1,89 @@
 package ml.rhacoal.polishnotation;
 
 import ml.rhacoal.polishnotation.function.CharToBoolean;
+import ml.rhacoal.polishnotation.metrics.Counter;
+import ml.rhacoal.polishnotation.metrics.Histogram;
+import ml.rhacoal.polishnotation.metrics.Metrics;
+import ml.rhacoal.polishnotation.metrics.NormalFormEvent;
+import ml.rhacoal.polishnotation.metrics.ParseEvent;
+import ml.rhacoal.polishnotation.metrics.TruthTableEvent;
+import ml.rhacoal.polishnotation.minimization.Cover;
+import ml.rhacoal.polishnotation.minimization.Minimizer;
 import ml.rhacoal.polishnotation.node.NodeBase;
 import ml.rhacoal.polishnotation.node.NodeType;
+import ml.rhacoal.polishnotation.node.operatornode.DefaultBinaryImpl;
+import ml.rhacoal.polishnotation.node.operatornode.DefaultUnaryImpl;
+import ml.rhacoal.polishnotation.node.operatornode.OperatorInfo;
 import ml.rhacoal.polishnotation.node.operatornode.OperatorNode;
 import ml.rhacoal.polishnotation.node.operatornode.ParenthesisNode;
 import ml.rhacoal.polishnotation.node.operatornode.UnaryOperator;
 import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import ml.rhacoal.polishnotation.program.BytecodeCompiler;
+import ml.rhacoal.polishnotation.program.Evaluator;
+import ml.rhacoal.polishnotation.program.IncrementalEvaluator;
+import ml.rhacoal.polishnotation.program.Program;
+import ml.rhacoal.polishnotation.sat.Satisfiability;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 /**
  * The class {@code Calculator} provides an interface for calculation.
- * An instance of calculator uses {@link String} as input and returns a root node for further calculation.
+ * An instance of calculator uses a {@link CharSequence} or a {@link Reader} as input and returns a root node for
+ * further calculation.
  */
 public class Calculator {
 
-    private final String input;
-    private final char[] sequence;
-    private final int size;
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final Counter PARSE_ERRORS = Metrics.counter("parse.errors");
+    private static final Histogram PARSE_NANOS = Metrics.histogram("parse.nanos");
+    private static final Histogram PARSE_TOKENS = Metrics.histogram("parse.tokens");
+    private static final Histogram PARSE_NODES = Metrics.histogram("parse.nodes");
+
+    /**
+     * The input, or {@code null} if the input is read from {@link Calculator#reader}.
+     */
+    private final CharSequence text;
+    private final Reader reader;
+    /**
+     * The characters of the input from {@link Calculator#chunkStart} until {@link Calculator#limit}, if the input is
+     * read from {@link Calculator#reader}.
+     */
+    private char[] chunk;
+    private int chunkStart;
+    /**
+     * The index where the characters available without reading end.
+     */
+    private int limit;
     private int index;
+    /**
+     * Holds the characters of the identifier being read, reused for every identifier.
+     */
+    private char[] token = new char[32];
+    private final IdentifierTable identifiers = new IdentifierTable();
+    /**
+     * The table interning the propositions, or {@code null}. The propositions read are kept with their IDs.
+     */
+    private final SymbolTable symbols;
+    private PropositionIdentifierNode[] symbolNodes;
+    private int[] symbolIds;
+    private int symbolCount;
     private OperatorNode former;
     private UnaryOperator root;
+    /** The numbers of tokens read and nodes created, for {@link ParseEvent} and {@link Metrics}. */
+    private int tokenCount, nodeCount;
 
     private enum ExpectationType {
         UNARY_OR_PROPOSITION, BINARY_OR_RIGHT_PARENTHESES, NULL
@@ -32,11 +94,23 @@ public class Calculator {
      */
     private final HashMap<String, PropositionIdentifierNode> identifierMap;
 
-    private Calculator(String input) {
-        this.input = input;
-        this.sequence = input.toCharArray();
-        this.size = this.input.length();
+    /**
+     * Holds the completed subexpressions for hash-consing, or {@code null} if subexpressions are not shared.
+     */
+    private final HashMap<Subexpression, OperatorNode> subexpressions;
+
+    private Calculator(CharSequence text, Reader reader, boolean shareSubexpressions, SymbolTable symbols) {
+        this.text = text;
+        this.symbols = symbols;
+        if (symbols != null) {
+            this.symbolNodes = new PropositionIdentifierNode[8];
+            this.symbolIds = new int[8];
+        }
+        this.reader = reader;
+        this.chunk = reader != null ? new char[CHUNK_SIZE] : null;
+        this.limit = reader != null ? 0 : text.length();
         this.identifierMap = new HashMap<>();
+        this.subexpressions = shareSubexpressions ? new HashMap<>() : null;
         this.root = new UnaryOperator() {
             @Override
             public String name() {
@@ -52,34 +126,138 @@ public class Calculator {
             public boolean calculate() {
                 return getRightChild().calculate();
             }
+
+            @Override
+            public long calculateBits() {
+                return getRightChild().calculateBits();
+            }
         };
     }
 
     /**
      * Reads a identifier that matches the regex: {@code [a-zA-Z0-9_]+}.
      * It's not forbidden to start the identifier with numbers.
+     * The characters are collected into a reused buffer, so no string is created for identifiers already read.
      * @return the identifier
      */
-    private PropositionIdentifierNode readProposition() {
-        skipIf(Not(Calculator::isIdentifierCharacter));
-        int startIndex = index;
-        skipIf(Calculator::isIdentifierCharacter);
-        //System.out.println("start-end: " + startIndex + " " + index);
-        return PropositionIdentifierNode.getIdentifier(identifierMap, input.substring(startIndex, index));
+    private PropositionIdentifierNode readProposition() throws CalculationException {
+        int length = 0, hash = 0;
+        for (int c = peek(); c >= 0 && isIdentifierCharacter((char) c); c = peek()) {
+            if (length == token.length) {
+                token = Arrays.copyOf(token, length << 1);
+            }
+            token[length ++] = (char) c;
+            hash = 31 * hash + c;
+            index ++;
+        }
+        ++ tokenCount;
+        ++ nodeCount;
+        if (length == 1 && (token[0] == 'T' || token[0] == 'F')) {
+            return PropositionIdentifierNode.constant(token[0] == 'T');
+        }
+        PropositionIdentifierNode node = identifiers.get(token, length, hash);
+        if (node == null) {
+            node = PropositionIdentifierNode.getIdentifier(identifierMap, new String(token, 0, length));
+            identifiers.put(node, hash);
+            if (symbols != null) {
+                if (symbolCount == symbolIds.length) {
+                    symbolNodes = Arrays.copyOf(symbolNodes, symbolCount << 1);
+                    symbolIds = Arrays.copyOf(symbolIds, symbolCount << 1);
+                }
+                symbolNodes[symbolCount] = node;
+                symbolIds[symbolCount ++] = symbols.intern(node.getStringRepresentation());
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the character at {@link Calculator#index} without consuming it.
+     * @return the character, or -1 at the end of the input
+     */
+    private int peek() throws CalculationException {
+        return peek(0);
+    }
+
+    /**
+     * Returns the character at {@code offset} characters after {@link Calculator#index} without consuming it.
+     * The characters not consumed yet are kept when the next chunk is read, so the lookahead may cross the end of a
+     * chunk.
+     * @param offset the offset from {@link Calculator#index}
+     * @return the character, or -1 at the end of the input
+     */
+    private int peek(int offset) throws CalculationException {
+        int position = index + offset;
+        if (position < limit) {
+            return text != null ? text.charAt(position) : chunk[position - chunkStart];
+        }
+        if (reader == null) {
+            return -1;
+        }
+        try {
+            int kept = limit - index;
+            if (offset >= chunk.length) {
+                chunk = Arrays.copyOf(chunk, Math.max(chunk.length << 1, offset + 1));
+            }
+            System.arraycopy(chunk, index - chunkStart, chunk, 0, kept);
+            chunkStart = index;
+            while (limit <= position) {
+                int read = reader.read(chunk, limit - chunkStart, chunk.length - (limit - chunkStart));
+                if (read < 0) {
+                    return -1;
+                }
+                limit += read;
+            }
+            return chunk[offset];
+        } catch (IOException ex) {
+            throw new CalculationException("Failed to read the expression at " + index + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Reads the operator with the longest name matching the input at {@link Calculator#index}.
+     * @param type {@link NodeType#BINARY} or {@link NodeType#UNARY}
+     * @return the node of the operator
+     * @throws CalculationException if no operator matches
+     */
+    private OperatorNode readOperator(NodeType type) throws CalculationException {
+        OperatorRegistry.Trie trie = OperatorRegistry.getTrie(type);
+        OperatorInfo info = null;
+        int length = 0;
+        int c = peek();
+        for (int node = trie.next(OperatorRegistry.Trie.ROOT, (char) c), k = 1; node >= 0; ++ k) {
+            if (trie.info(node) != null) {
+                info = trie.info(node);
+                length = k;
+            }
+            int next = peek(k);
+            if (next < 0) {
+                break;
+            }
+            node = trie.next(node, (char) next);
+        }
+        if (info == null) {
+            return OperatorRegistry.newNode(null, String.valueOf((char) c), type);
+        }
+        index += length;
+        ++ tokenCount;
+        ++ nodeCount;
+        return OperatorRegistry.newNode(info, info.name, type);
     }
 
     private ExpectationType expectUnaryOrProposition() throws CalculationException {
         skipIf(Calculator::isBlank);
-        if (index == size) {
+        int c = peek();
+        if (c < 0) {
             throw new CalculationException("Unexpected end of expression.");
         }
 
-        if (isIdentifierCharacter(sequence[index])) { // proposition identifier
+        if (isIdentifierCharacter((char) c)) { // proposition identifier
             PropositionIdentifierNode node = readProposition();
             former.updateRightChild(node);
             return ExpectationType.BINARY_OR_RIGHT_PARENTHESES;
         } else  { // unary operator (including parenthesis)
-            OperatorNode op = OperatorRegistry.getOperator(sequence[index++], NodeType.UNARY);
+            OperatorNode op = readOperator(NodeType.UNARY);
             former.updateRightChild(op);
             op.updateFather(former);
             former = op;
@@ -89,31 +267,39 @@ public class Calculator {
 
     private ExpectationType expectBinaryOrRightParenthesis() throws CalculationException {
         skipIf(Calculator::isBlank);
-        if (index == size) {
+        int c = peek();
+        if (c < 0) {
             return ExpectationType.NULL;
         }
 
-        if (sequence[index] == ')') { // right parenthesis
+        if (c == ')') { // right parenthesis
             //find the paired left parenthesis
             while (!(former instanceof ParenthesisNode) || ((ParenthesisNode) former).isClose()) {
+                OperatorNode completed = former;
                 former = former.getFather();
                 if (former == null) {
                     throw new CalculationException("No matching left parenthesis found for ')' at " + index);
                 }
+                share(completed);
             }
             ((ParenthesisNode) former).close();
+            OperatorNode completed = former;
             former = former.getFather();
+            share(completed);
             index ++;
+            ++ tokenCount;
             return ExpectationType.BINARY_OR_RIGHT_PARENTHESES;
         } else {
-            OperatorNode node = OperatorRegistry.getOperator(sequence[index++], NodeType.BINARY);
+            OperatorNode node = readOperator(NodeType.BINARY);
             //OperatorNode on = former;
             while (former.precedence() >= node.precedence()) {
                 // if the precedence of the former operator is lower, this operator should be calculated earlier
                 // if the precedence of the former operator is the same, the former operator should be calculated earlier
 
                 // find the father that holds a lower precedence
+                OperatorNode completed = former;
                 former = former.getFather();
+                share(completed);
             }
             /*    former      former
                    /  \   ->   /  \
@@ -132,14 +318,130 @@ public class Calculator {
         }
     }
 
-    private void skipIf(CharToBoolean func) {
-        while (index != size && func.eval(sequence[index])) {
-            index ++;
+    /**
+     * Replaces a completed node with an equal node parsed before, if subexpressions are shared.
+     * A node is completed once the parser leaves it for its father, so its children are already shared and equal
+     * subexpressions can be found by the identities of the operator and the children.
+     * @param node the completed node, which is the right child of its father
+     */
+    private void share(OperatorNode node) {
+        if (subexpressions == null) {
+            return;
+        }
+        Object operator;
+        if (node instanceof DefaultBinaryImpl) {
+            operator = ((DefaultBinaryImpl) node).getOperatorInfo();
+        } else if (node instanceof DefaultUnaryImpl) {
+            operator = ((DefaultUnaryImpl) node).getOperatorInfo();
+        } else if (node instanceof ParenthesisNode) {
+            operator = ParenthesisNode.class;
+        } else {
+            return; // operators of unknown semantics are never shared
+        }
+        OperatorNode shared = subexpressions.putIfAbsent(
+                new Subexpression(operator, node.getLeftChild(), node.getRightChild()), node);
+        if (shared != null) {
+            node.getFather().updateRightChild(shared);
         }
     }
 
-    private static CharToBoolean Not(CharToBoolean func) {
-        return c -> !func.eval(c);
+    /**
+     * Identifies a subexpression by its operator and the identities of its children.
+     */
+    private static final class Subexpression {
+
+        private final Object operator;
+        private final NodeBase left, right;
+
+        private Subexpression(Object operator, NodeBase left, NodeBase right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Subexpression)) {
+                return false;
+            }
+            Subexpression other = (Subexpression) obj;
+            return operator == other.operator && left == other.left && right == other.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(operator) * 31 + System.identityHashCode(left)) * 31
+                    + System.identityHashCode(right);
+        }
+    }
+
+    /**
+     * An open-addressing table of the identifiers read so far, looked up by the characters of an identifier without
+     * creating a string for it. The hashes are those of {@link String#hashCode()}.
+     */
+    private static final class IdentifierTable {
+
+        private PropositionIdentifierNode[] nodes = new PropositionIdentifierNode[16];
+        private int[] hashes = new int[16];
+        private int count;
+
+        private PropositionIdentifierNode get(char[] token, int length, int hash) {
+            int mask = nodes.length - 1;
+            for (int i = mix(hash) & mask; nodes[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && matches(nodes[i].getStringRepresentation(), token, length)) {
+                    return nodes[i];
+                }
+            }
+            return null;
+        }
+
+        private void put(PropositionIdentifierNode node, int hash) {
+            if ((count + 1) << 1 > nodes.length) {
+                PropositionIdentifierNode[] oldNodes = nodes;
+                int[] oldHashes = hashes;
+                nodes = new PropositionIdentifierNode[oldNodes.length << 1];
+                hashes = new int[oldNodes.length << 1];
+                for (int i = 0; i < oldNodes.length; ++ i) {
+                    if (oldNodes[i] != null) {
+                        insert(oldNodes[i], oldHashes[i]);
+                    }
+                }
+            }
+            insert(node, hash);
+            ++ count;
+        }
+
+        private void insert(PropositionIdentifierNode node, int hash) {
+            int mask = nodes.length - 1;
+            int i = mix(hash) & mask;
+            while (nodes[i] != null) {
+                i = (i + 1) & mask;
+            }
+            nodes[i] = node;
+            hashes[i] = hash;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean matches(String identifier, char[] token, int length) {
+            if (identifier.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; ++ i) {
+                if (identifier.charAt(i) != token[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private void skipIf(CharToBoolean func) throws CalculationException {
+        for (int c = peek(); c >= 0 && func.eval((char) c); c = peek()) {
+            index ++;
+        }
     }
 
     private static boolean isIdentifierCharacter(char c) {
@@ -150,24 +452,43 @@ public class Calculator {
         return c == ' ' || c == '\t' || c == '\n';
     }
 
-    private int locateRightParenthesis(int startIndex, int endIndex) throws CalculationException {
-        int left_cnt = 0;
-        int index = startIndex;
-        while (index < endIndex) {
-            if (sequence[index] == '(') {
-                left_cnt += 1;
-            } else if (sequence[index] == ')') {
-                left_cnt -= 1;
+    /**
+     * Parses the input, recording a {@link ParseEvent} and, if {@link Metrics} is enabled, the time and the size of
+     * the parse.
+     * @return the result
+     */
+    private Calculator.Result calculate() throws CalculationException {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        boolean measured = Metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        boolean succeeded = false;
+        try {
+            Calculator.Result result = parse();
+            succeeded = true;
+            return result;
+        } finally {
+            if (measured) {
+                PARSE_NANOS.record(System.nanoTime() - start);
+                PARSE_TOKENS.record(tokenCount);
+                PARSE_NODES.record(nodeCount);
+                if (!succeeded) {
+                    PARSE_ERRORS.increment();
+                }
             }
-            if (left_cnt == 0) {
-                return index;
+            if (event.shouldCommit()) {
+                event.characters = index;
+                event.tokens = tokenCount;
+                event.nodes = nodeCount;
+                event.propositions = identifierMap.size();
+                event.shareSubexpressions = subexpressions != null;
+                event.succeeded = succeeded;
+                event.commit();
             }
-            index ++;
         }
-        throw new CalculationException("No matching right parenthesis detected for '(' at " + startIndex);
     }
 
-    private Calculator.Result calculate() throws CalculationException {
+    private Calculator.Result parse() throws CalculationException {
         index = 0;
         former = root;
         ExpectationType et = ExpectationType.UNARY_OR_PROPOSITION;
@@ -183,23 +504,265 @@ public class Calculator {
                     break;
             }
         }
-        return new Calculator.Result(root.getRightChild(), identifierMap);
+        while (former != root) {
+            OperatorNode completed = former;
+            former = former.getFather();
+            share(completed);
+        }
+        if (symbols == null) {
+            return new Calculator.Result(root.getRightChild(), identifierMap);
+        }
+        // order the propositions by ID, sorting the IDs with the positions in their low bits
+        long[] keys = new long[symbolCount];
+        for (int i = 0; i < symbolCount; ++ i) {
+            keys[i] = ((long) symbolIds[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        PropositionIdentifierNode[] propositions = new PropositionIdentifierNode[symbolCount];
+        int[] ids = new int[symbolCount];
+        for (int i = 0; i < symbolCount; ++ i) {
+            propositions[i] = symbolNodes[(int) keys[i]];
+            ids[i] = (int) (keys[i] >>> 32);
+        }
+        return new Calculator.Result(root.getRightChild(), identifierMap, symbols, propositions, ids);
     }
 
     public static Result calculates(String expression) throws CalculationException {
-        Calculator calc = new Calculator(expression);
+        Calculator calc = new Calculator(expression, null, false, null);
+        return calc.calculate();
+    }
+
+    /**
+     * Parses an expression held by any {@link CharSequence}, such as a {@link StringBuilder} or a
+     * {@link java.nio.CharBuffer} over a memory-mapped file. The characters are read in place and never copied.
+     * The sequence must not change during parsing.
+     * @param expression the expression
+     * @return the result
+     * @throws CalculationException if the expression cannot be parsed
+     */
+    public static Result calculates(CharSequence expression) throws CalculationException {
+        return calculates(expression, false);
+    }
+
+    /**
+     * Parses an expression held by any {@link CharSequence}, optionally sharing identical subexpressions.
+     * @see Calculator#calculates(String, boolean)
+     * @param expression the expression
+     * @param shareSubexpressions whether to share identical subexpressions
+     * @return the result
+     * @throws CalculationException if the expression cannot be parsed
+     */
+    public static Result calculates(CharSequence expression, boolean shareSubexpressions) throws CalculationException {
+        Calculator calc = new Calculator(expression, null, shareSubexpressions, null);
         return calc.calculate();
     }
 
+    /**
+     * Parses an expression, interning its propositions into a {@link SymbolTable}.
+     * <p>The propositions of the result are indexed in increasing order of their IDs rather than of their names, by
+     * {@link Result#getPropositions()}, {@link Result#compile()}, {@link Calculator#getTruthTable(Result, int)} and
+     * {@link Formula}, so results parsed with the same table agree on the order of the propositions they share.
+     * Each proposition is interned once per parse.</p>
+     * @see Calculator#calculates(CharSequence)
+     * @param expression the expression
+     * @param symbols the table to intern the propositions into
+     * @return the result
+     * @throws CalculationException if the expression cannot be parsed
+     */
+    public static Result calculates(CharSequence expression, SymbolTable symbols) throws CalculationException {
+        Calculator calc = new Calculator(expression, null, false, symbols);
+        return calc.calculate();
+    }
+
+    /**
+     * Parses an expression read from a {@link Reader} until its end. The input is read in chunks, so it never has to
+     * fit in memory as a whole. The reader is not closed.
+     * @param reader the reader of the expression
+     * @return the result
+     * @throws CalculationException if the expression cannot be parsed or the reader fails
+     */
+    public static Result calculates(Reader reader) throws CalculationException {
+        return calculates(reader, false);
+    }
+
+    /**
+     * Parses an expression read from a {@link Reader}, optionally sharing identical subexpressions.
+     * @see Calculator#calculates(String, boolean)
+     * @see Calculator#calculates(Reader)
+     * @param reader the reader of the expression
+     * @param shareSubexpressions whether to share identical subexpressions
+     * @return the result
+     * @throws CalculationException if the expression cannot be parsed or the reader fails
+     */
+    public static Result calculates(Reader reader, boolean shareSubexpressions) throws CalculationException {
+        Calculator calc = new Calculator(null, reader, shareSubexpressions, null);
+        return calc.calculate();
+    }
+
+    /**
+     * Parses an expression, optionally sharing structurally identical subexpressions.
+     * <p>With sharing, every subexpression that occurs more than once is parsed into a single node with several
+     * fathers, so the result is a directed acyclic graph rather than a tree. This saves memory for generated
+     * formulas with many repeated subterms. {@link Program} calculates each shared node only once per assignment,
+     * so the {@link Engine#PROGRAM} and {@link Engine#BYTECODE} engines, the BDD and the SAT solver all benefit,
+     * while {@link NodeBase#calculate()} and the textual forms still walk every occurrence.
+     * {@link OperatorNode#getFather()} of a shared node returns only one of its fathers.</p>
+     * @param expression the expression
+     * @param shareSubexpressions whether to share identical subexpressions
+     * @return the result
+     * @throws CalculationException if the expression cannot be parsed
+     */
+    public static Result calculates(String expression, boolean shareSubexpressions) throws CalculationException {
+        Calculator calc = new Calculator(expression, null, shareSubexpressions, null);
+        return calc.calculate();
+    }
+
+    /**
+     * Parses an expression and decides whether it is satisfiable, a tautology or a contradiction with a SAT solver.
+     * @see Satisfiability
+     * @param expression the expression
+     * @return the satisfiability of the expression, with a model and a counterexample where they exist
+     * @throws CalculationException if the expression cannot be parsed
+     */
+    public static Satisfiability solves(String expression) throws CalculationException {
+        return Satisfiability.of(calculates(expression));
+    }
+
+    private static final ParseCache PARSE_CACHE = new ParseCache(4096);
+
+    static {
+        Metrics.gauge("parsecache.hits", PARSE_CACHE::getHitCount);
+        Metrics.gauge("parsecache.misses", PARSE_CACHE::getMissCount);
+        Metrics.gauge("parsecache.evictions", PARSE_CACHE::getEvictionCount);
+        Metrics.gauge("parsecache.size", PARSE_CACHE::size);
+    }
+
+    /**
+     * Parses and compiles an expression through the shared {@link ParseCache}.
+     * Repeated expressions are neither parsed nor compiled again. The returned program is immutable and may be shared
+     * with other callers; use {@link Program#newEvaluator()} to calculate it.
+     * @param expression the expression
+     * @return the compiled program
+     * @throws CalculationException if the expression cannot be parsed or compiled
+     */
+    public static Program compiles(String expression) throws CalculationException {
+        return PARSE_CACHE.get(expression);
+    }
+
+    /**
+     * Returns the cache used by {@link Calculator#compiles(String)}, which holds up to 4096 programs.
+     * @return the shared cache
+     */
+    public static ParseCache getParseCache() {
+        return PARSE_CACHE;
+    }
+
     public static class Result {
         public final NodeBase root;
         public final HashMap<String, PropositionIdentifierNode> identifierMap;
+        /**
+         * The table the propositions are interned into, or {@code null} if they are not interned.
+         * @see Calculator#calculates(CharSequence, SymbolTable)
+         */
+        public final SymbolTable symbolTable;
+        /** The propositions in increasing order of their IDs, and their IDs, if interned. */
+        private final PropositionIdentifierNode[] propositions;
+        private final int[] symbolIds;
+
         public Result(NodeBase root, HashMap<String, PropositionIdentifierNode> identifierMap) {
+            this(root, identifierMap, null, null, null);
+        }
+
+        private Result(NodeBase root, HashMap<String, PropositionIdentifierNode> identifierMap,
+                       SymbolTable symbolTable, PropositionIdentifierNode[] propositions, int[] symbolIds) {
             this.root = root;
             this.identifierMap = identifierMap;
+            this.symbolTable = symbolTable;
+            this.propositions = propositions;
+            this.symbolIds = symbolIds;
+        }
+
+        /**
+         * Returns the propositions in the order of their indices: in increasing order of their IDs if they are
+         * interned into a {@link SymbolTable}, otherwise in lexicographical order of their names.
+         * @return a new list of the propositions
+         */
+        public ArrayList<PropositionIdentifierNode> getPropositions() {
+            if (propositions != null) {
+                return new ArrayList<>(Arrays.asList(propositions));
+            }
+            return new ArrayList<>(new TreeMap<>(identifierMap).values());
+        }
+
+        /**
+         * Returns the ID of a proposition in {@link Result#symbolTable}.
+         * @param index the index of the proposition in {@link Result#getPropositions()}
+         * @return the ID
+         * @throws IllegalStateException if the propositions are not interned
+         */
+        public int getSymbolId(int index) {
+            if (symbolIds == null) {
+                throw new IllegalStateException("The propositions are not interned.");
+            }
+            return symbolIds[index];
+        }
+
+        /**
+         * Compiles the formula into a postfix {@link Program}.
+         * @see Program#compile(Result)
+         * @return the compiled program
+         * @throws CalculationException if the formula contains an operator that cannot be compiled
+         */
+        public Program compile() throws CalculationException {
+            return Program.compile(this);
+        }
+
+        /**
+         * Compiles the formula into an immutable {@link Formula} that may be calculated by several threads at once.
+         * @see Formula#of(Result)
+         * @return the formula
+         * @throws CalculationException if the formula contains an operator that cannot be compiled
+         */
+        public Formula toFormula() throws CalculationException {
+            return Formula.of(this);
+        }
+
+        /**
+         * Rewrites the formula into a smaller equivalent one.
+         * @see Simplifier
+         * @return the simplified formula, sharing the identifier map of this result
+         */
+        public Result simplify() {
+            return Simplifier.simplify(this);
         }
     }
 
+    /**
+     * Selects how a truth table calculates the formula.
+     */
+    public enum Engine {
+        /**
+         * Walks the node tree. Works for any {@link NodeBase}.
+         */
+        TREE,
+        /**
+         * Runs a {@link Program} compiled from the tree on a stack machine.
+         */
+        PROGRAM,
+        /**
+         * Runs a class generated by {@link BytecodeCompiler}. Only pays off for large tables, since generating the
+         * class takes much longer than compiling a {@link Program}.
+         */
+        BYTECODE,
+        /**
+         * Runs an {@link IncrementalEvaluator} on a {@link Program} compiled from the tree, which keeps the value of
+         * every node and only recalculates the nodes above the propositions that change from one block of 64 lines to
+         * the next. {@link TruthTable#calculate(int)} walks the blocks in Gray-code order, so exactly one proposition
+         * changes per block. Pays off for wide formulas in which each proposition appears in a small part.
+         */
+        INCREMENTAL
+    }
+
     /**
      * Represents a truth table.
      */
@@ -207,9 +770,114 @@ public class Calculator {
 
         private final ArrayList<PropositionIdentifierNode> propositions;
         private final NodeBase nodeBase;
-        private ArrayList<ArrayList<Boolean>> values;
+        private final Evaluator evaluator;
+        private final Engine engine;
+        private Program program;
+        /**
+         * Results of the lines in increasing order, one per bit. The values of the propositions are not stored since
+         * they can be derived from the index of the line.
+         */
+        private BitArray results;
         private int order;
 
+        /**
+         * The maximum number of propositions, so that lines can be indexed by a {@code long}.
+         * Tables of more than 31 propositions can only be written with
+         * {@link TruthTable#write(int, Appendable, String, String, String, String)} or kept as a {@link BitArray} if
+         * there is enough memory.
+         */
+        public static final int MAX_PROPOSITIONS = 62;
+
+        private static final Histogram TABLE_NANOS = Metrics.histogram("truthtable.nanos");
+        private static final Histogram TABLE_PROPOSITIONS = Metrics.histogram("truthtable.propositions");
+        private static final Counter TABLE_ROWS = Metrics.counter("truthtable.rows");
+        private static final Histogram NORMAL_FORM_NANOS = Metrics.histogram("normalform.nanos");
+
+        /**
+         * A fixed-size array of bits indexed by {@code long}.
+         * Bits are stored in segments, so the size is not limited by the maximum length of a Java array.
+         */
+        public static class BitArray {
+
+            private static final int SEGMENT_SHIFT = 20; // words per segment
+            private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+            private final long size;
+            private final long[][] segments;
+
+            public BitArray(long size) {
+                this.size = size;
+                long wordCount = (size + 63) >>> 6;
+                long segmentCount = (wordCount + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+                if (segmentCount > Integer.MAX_VALUE) {
+                    throw new UnsupportedOperationException("Too many bits: " + size);
+                }
+                segments = new long[(int) segmentCount][];
+                for (int i = 0; i < segments.length; ++ i) {
+                    segments[i] = new long[(int) Math.min(1 << SEGMENT_SHIFT, wordCount - ((long) i << SEGMENT_SHIFT))];
+                }
+            }
+
+            public long size() {
+                return size;
+            }
+
+            public long wordCount() {
+                return (size + 63) >>> 6;
+            }
+
+            public boolean get(long index) {
+                return (getWord(index >>> 6) & (1L << index)) != 0;
+            }
+
+            public void set(long index, boolean value) {
+                long[] segment = segments[(int) (index >>> (6 + SEGMENT_SHIFT))];
+                int word = (int) (index >>> 6) & SEGMENT_MASK;
+                if (value) {
+                    segment[word] |= 1L << index;
+                } else {
+                    segment[word] &= ~(1L << index);
+                }
+            }
+
+            /**
+             * Returns 64 bits at once. Bit {@code k} of word {@code i} is bit {@code 64 * i + k} of the array.
+             * @param wordIndex the index of the word
+             * @return the word
+             */
+            public long getWord(long wordIndex) {
+                return segments[(int) (wordIndex >>> SEGMENT_SHIFT)][(int) wordIndex & SEGMENT_MASK];
+            }
+
+            /**
+             * Sets 64 bits at once. Bits beyond the size of the array are ignored.
+             * @see BitArray#getWord(long)
+             * @param wordIndex the index of the word
+             * @param word the word
+             */
+            public void setWord(long wordIndex, long word) {
+                segments[(int) (wordIndex >>> SEGMENT_SHIFT)][(int) wordIndex & SEGMENT_MASK] =
+                        word & validBits(wordIndex);
+            }
+
+            /**
+             * Returns the number of bits set to true.
+             * @return the number of bits set
+             */
+            public long count() {
+                long count = 0;
+                for (long[] segment : segments) {
+                    for (long word : segment) {
+                        count += Long.bitCount(word);
+                    }
+                }
+                return count;
+            }
+
+            long validBits(long wordIndex) {
+                return wordIndex == (size - 1) >>> 6 && (size & 63) != 0 ? (1L << size) - 1 : -1L;
+            }
+        }
+
         /**
          * A simplified {@link ArrayList} that only holds integers and only support inserting elements.
          */
@@ -257,8 +925,8 @@ public class Calculator {
 
             private void ensureCapacity(int minCapacity) {
                 int currentCapacity = data.length;
-                int targetCapacity = Math.max(currentCapacity + (currentCapacity >> 1), minCapacity);
-                if (targetCapacity > currentCapacity) {
+                if (minCapacity > currentCapacity) {
+                    int targetCapacity = Math.max(currentCapacity + (currentCapacity >> 1), minCapacity);
                     data = Arrays.copyOf(data, targetCapacity);
                 }
             }
@@ -271,7 +939,8 @@ public class Calculator {
          * Constructs a {@link TruthTable}.
          * This constructor accept an {@link ArrayList} of propositions in order and a {@link NodeBase} for calculation.
          * It is suggested to call {@link Calculator#getTruthTable(NodeBase, HashMap, int, Comparator)}.
-         * <p><b>WARNING: </b>This class can handle at most 31 propositions.</p>
+         * <p><b>WARNING: </b>This class can handle at most {@value MAX_PROPOSITIONS} propositions, and only tables of
+         * at most 31 propositions fit in {@code int} indices.</p>
          * @see Calculator#getTruthTable(NodeBase, HashMap, int, Comparator)
          * @see Calculator#getTruthTable(NodeBase, HashMap, int)
          * @param orderedPropositions list of propositions in order
@@ -280,10 +949,48 @@ public class Calculator {
         public TruthTable(ArrayList<PropositionIdentifierNode> orderedPropositions, NodeBase nodeBase) {
             // copy the list in case of unwanted changes
             this.propositions = new ArrayList<>(orderedPropositions);
-            if (propositions.size() > 31) {
-                throw new UnsupportedOperationException("Too many propositions! Only 31 or less is accepted.");
+            if (propositions.size() > MAX_PROPOSITIONS) {
+                throw new UnsupportedOperationException(
+                        "Too many propositions! Only " + MAX_PROPOSITIONS + " or less is accepted.");
             }
             this.nodeBase = nodeBase;
+            this.evaluator = null;
+            this.engine = Engine.TREE;
+        }
+
+        /**
+         * Constructs a {@link TruthTable} that calculates with the given {@link Engine}.
+         * @see TruthTable#TruthTable(ArrayList, NodeBase)
+         * @param orderedPropositions list of propositions in order
+         * @param nodeBase the {@link NodeBase} for calculation.
+         * @param engine the engine used for calculation
+         * @throws CalculationException if the formula cannot be compiled for the engine
+         */
+        public TruthTable(ArrayList<PropositionIdentifierNode> orderedPropositions, NodeBase nodeBase, Engine engine)
+                throws CalculationException {
+            this.propositions = new ArrayList<>(orderedPropositions);
+            if (propositions.size() > MAX_PROPOSITIONS) {
+                throw new UnsupportedOperationException(
+                        "Too many propositions! Only " + MAX_PROPOSITIONS + " or less is accepted.");
+            }
+            this.nodeBase = nodeBase;
+            this.engine = engine;
+            switch (engine) {
+                case PROGRAM:
+                    this.program = Program.compile(nodeBase, propositions);
+                    this.evaluator = program.newEvaluator();
+                    break;
+                case BYTECODE:
+                    this.program = Program.compile(nodeBase, propositions);
+                    this.evaluator = BytecodeCompiler.compile(program);
+                    break;
+                case INCREMENTAL:
+                    this.program = Program.compile(nodeBase, propositions);
+                    this.evaluator = new IncrementalEvaluator(program);
+                    break;
+                default:
+                    this.evaluator = null;
+            }
         }
 
         /**
@@ -293,32 +1000,199 @@ public class Calculator {
          * <p>  0 - increasing order (from all false to all true)</p>
          * <p>  1 - decreasing order (from all true to all false)</p>
          * <p>Any other inputs will be regarded as 0</p>
-         * <p><b>WARNING: </b>This method can handle at most 31 propositions.</p>
+         * <p>The table is calculated 64 lines at a time with {@link NodeBase#calculateBits()}, or with the
+         * {@link Engine} given to the constructor. {@link Engine#INCREMENTAL} calculates the blocks in Gray-code order;
+         * the results are kept by line index, so the table still has the given order.</p>
+         * <p><b>WARNING: </b>The results take {@code 2^n} bits of memory.</p>
          * @param order the order of the table
          * @return itself
          */
         public TruthTable calculate(int order) {
-            this.order = order;
-            values = new ArrayList<>();
-            ArrayList<Boolean> emptyLine = new ArrayList<>();
-            for (int i = 0; i < propositions.size() + 1; ++i) {
-                emptyLine.add(false);
-            }
-            for (int i = 0, count = propositions.size(), max = 1 << propositions.size(); i < max; ++ i) {
-                ArrayList<Boolean> line = new ArrayList<>(emptyLine);
-                int current = order == 0 ? i : max - 1 - i;
-                for (int j = count - 1; j >= 0; -- j) {
-                    boolean val = (current & 1) != 0;
-                    propositions.get(j).setValue(val);
-                    line.set(j, val);
-                    current >>= 1;
+            TruthTableEvent event = new TruthTableEvent();
+            event.begin();
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            this.order = order == 1 ? 1 : 0;
+            BitArray results = new BitArray(1L << propositions.size());
+            long[] columns = new long[propositions.size()];
+            boolean gray = engine == Engine.INCREMENTAL;
+            for (long i = 0, blocks = results.wordCount(); i < blocks; ++ i) {
+                // the number of blocks is a power of 2, so the Gray code visits each block once
+                long block = gray ? i ^ (i >>> 1) : i;
+                results.setWord(block, calculateBlock(block << 6, columns, evaluator));
+            }
+            this.results = results;
+            record(event, start, false);
+            return this;
+        }
+
+        /**
+         * Generates the whole table by given order in the {@link ForkJoinPool#commonPool()}.
+         * @see TruthTable#calculateParallel(int, ForkJoinPool)
+         * @param order the order of the table. See {@link TruthTable#calculate(int)}
+         * @return itself
+         */
+        public TruthTable calculateParallel(int order) {
+            return calculateParallel(order, ForkJoinPool.commonPool());
+        }
+
+        /**
+         * Generates the whole table by given order, splitting the lines between the threads of a {@link ForkJoinPool}.
+         * <p>The node tree holds the values of the propositions and cannot be shared between threads, so the formula
+         * is calculated by a {@link Program} with an {@link Evaluator} per task, even if the table was constructed
+         * with {@link Engine#TREE}. If the formula cannot be compiled, the table is calculated in the calling
+         * thread.</p>
+         * @param order the order of the table. See {@link TruthTable#calculate(int)}
+         * @param pool the pool to run the tasks in
+         * @return itself
+         */
+        public TruthTable calculateParallel(int order, ForkJoinPool pool) {
+            if (program == null) {
+                try {
+                    program = Program.compile(nodeBase, propositions);
+                } catch (CalculationException ex) {
+                    return calculate(order);
                 }
-                line.set(count, nodeBase.calculate());
-                values.add(line);
             }
+            TruthTableEvent event = new TruthTableEvent();
+            event.begin();
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            this.order = order == 1 ? 1 : 0;
+            BitArray results = new BitArray(1L << propositions.size());
+            pool.invoke(new BlockTask(results, 0, results.wordCount()));
+            this.results = results;
+            record(event, start, true);
             return this;
         }
 
+        /**
+         * Records a calculation of the table.
+         * @param start the time the calculation started at, or 0 if {@link Metrics} was disabled
+         */
+        private void record(TruthTableEvent event, long start, boolean parallel) {
+            if (start != 0) {
+                TABLE_NANOS.record(System.nanoTime() - start);
+                TABLE_PROPOSITIONS.record(propositions.size());
+                TABLE_ROWS.add(results.size());
+            }
+            if (event.shouldCommit()) {
+                event.propositions = propositions.size();
+                event.rows = results.size();
+                event.engine = engine.name();
+                event.parallel = parallel;
+                event.commit();
+            }
+        }
+
+        /**
+         * Records the extraction of a normal form.
+         * @param start the time the extraction started at, or 0 if {@link Metrics} was disabled
+         */
+        private void record(NormalFormEvent event, long start, String form, long terms) {
+            if (start != 0) {
+                NORMAL_FORM_NANOS.record(System.nanoTime() - start);
+            }
+            if (event.shouldCommit()) {
+                event.form = form;
+                event.propositions = propositions.size();
+                event.terms = terms;
+                event.commit();
+            }
+        }
+
+        /**
+         * Calculates a range of blocks of 64 lines. Each task writes to its own range of the results.
+         */
+        private final class BlockTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+            private static final int THRESHOLD = 1024;
+
+            // tasks are never serialized
+            private final transient BitArray results;
+            private final long from, to;
+
+            private BlockTask(BitArray results, long from, long to) {
+                this.results = results;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= THRESHOLD) {
+                    // generated evaluators hold no state, while the others need one instance per thread
+                    Evaluator taskEvaluator = engine == Engine.BYTECODE ? evaluator
+                            : engine == Engine.INCREMENTAL ? new IncrementalEvaluator(program) : program.newEvaluator();
+                    long[] columns = new long[propositions.size()];
+                    for (long block = from; block < to; ++ block) {
+                        results.setWord(block, calculateBlock(block << 6, columns, taskEvaluator));
+                    }
+                } else {
+                    long middle = (from + to) >>> 1;
+                    invokeAll(new BlockTask(results, from, middle), new BlockTask(results, middle, to));
+                }
+            }
+        }
+
+        /**
+         * Returns the result of a line.
+         * The index of a line is the values of the propositions as a binary number, where the first proposition is
+         * the most significant bit. It does not depend on the order of the table.
+         * @param index the index of the line
+         * @return the result of the line
+         */
+        public boolean getResult(long index) {
+            return results.get(index);
+        }
+
+        /**
+         * Calculates 64 lines of the table without storing them, so a caller may walk a table too large to keep in
+         * memory, or stop part of the way through it.
+         * @see TruthTable#getResult(long)
+         * @param block the index of the block, which holds lines {@code 64 * block} to {@code 64 * block + 63}
+         * @return the results of the lines, bit {@code k} being the result of line {@code 64 * block + k}; the bits
+         * of lines past the end of the table are 0
+         * @throws IndexOutOfBoundsException if the table has no such block
+         */
+        public long calculateBlock(long block) {
+            long lines = 1L << propositions.size();
+            if (block < 0 || block << 6 >= lines) {
+                throw new IndexOutOfBoundsException("Block " + block + " of " + ((lines + 63) >>> 6));
+            }
+            long result = calculateBlock(block << 6, new long[propositions.size()], evaluator);
+            return lines < 64 ? result & ((1L << lines) - 1) : result;
+        }
+
+        /**
+         * Bit {@code k} of {@code COLUMN_PATTERNS[w]} is bit {@code w} of {@code k}, which is the value of the
+         * proposition of weight {@code w} in line {@code k} of a block.
+         */
+        private static final long[] COLUMN_PATTERNS = new long[]{
+                0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+                0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L
+        };
+
+        /**
+         * Calculates the 64 lines starting from {@code base} in increasing order.
+         * @param base the index of the first line, which must be a multiple of 64
+         * @param columns buffer for the values of the propositions
+         * @param evaluator the evaluator to calculate with, or {@code null} to calculate with the node tree
+         * @return the results of the lines, one per bit
+         */
+        private long calculateBlock(long base, long[] columns, Evaluator evaluator) {
+            for (int j = 0, count = columns.length; j < count; ++ j) {
+                int weight = count - 1 - j;
+                columns[j] = weight < COLUMN_PATTERNS.length ? COLUMN_PATTERNS[weight] : -((base >>> weight) & 1L);
+            }
+            if (evaluator != null) {
+                return evaluator.eval64(columns);
+            }
+            for (int j = 0; j < columns.length; ++ j) {
+                propositions.get(j).setBits(columns[j]);
+            }
+            return nodeBase.calculateBits();
+        }
+
         /**
          * Generates the string representation of the truth table with given symbols.
          * @param trueString the {@link String} representing true
@@ -330,49 +1204,402 @@ public class Calculator {
          */
         public String toString(String trueString, String falseString, String separator, String lineSeparator) {
             StringBuilder builder = new StringBuilder();
+            appendHeader(builder, separator, lineSeparator);
+            for (long i = 0, max = 1L << propositions.size(); i < max; ++ i) {
+                long current = order == 0 ? i : max - 1 - i;
+                appendLine(builder, current, getResult(current), trueString, falseString, separator, lineSeparator);
+            }
+            return builder.toString();
+        }
+
+        /**
+         * Characters buffered before they are written by {@link TruthTable#write(int, Appendable, String, String, String, String)}.
+         */
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        /**
+         * Calculates the table by given order and writes it to an {@link Appendable} as the lines are calculated.
+         * <p>The table is neither stored in this instance nor built in memory as a whole, so the size of the output is
+         * not limited by the heap. If the table has already been calculated, its results are written instead of being
+         * calculated again. The output is the same as
+         * {@link TruthTable#toString(String, String, String, String)} after {@link TruthTable#calculate(int)}, and is
+         * written in chunks of about {@value CHUNK_SIZE} characters.</p>
+         * @param order the order of the table. See {@link TruthTable#calculate(int)}
+         * @param out the {@link Appendable} to write to
+         * @param trueString the {@link String} representing true
+         * @param falseString the {@link String} representing false
+         * @param separator the separator between elements in one line.
+         *                  Note that a separator will also be added to the end of the line.
+         * @param lineSeparator the separator used between lines
+         * @throws IOException if {@code out} throws an {@link IOException}
+         */
+        public void write(int order, Appendable out, String trueString, String falseString, String separator,
+                          String lineSeparator) throws IOException {
+            boolean decreasing = order == 1;
+            long max = 1L << propositions.size(), blocks = (max + 63) >>> 6;
+            StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 256);
+            appendHeader(chunk, separator, lineSeparator);
+            long[] columns = new long[propositions.size()];
+            for (long i = 0; i < blocks; ++ i) {
+                long block = decreasing ? blocks - 1 - i : i;
+                long base = block << 6;
+                int size = (int) Math.min(64, max - base);
+                long result = results != null ? results.getWord(block) : calculateBlock(base, columns, evaluator);
+                for (int k = 0; k < size; ++ k) {
+                    long line = base + (decreasing ? size - 1 - k : k);
+                    appendLine(chunk, line, (result & (1L << (line & 63))) != 0,
+                            trueString, falseString, separator, lineSeparator);
+                    if (chunk.length() >= CHUNK_SIZE) {
+                        out.append(chunk);
+                        chunk.setLength(0);
+                    }
+                }
+            }
+            out.append(chunk);
+        }
+
+        /**
+         * Calculates the table by given order and writes it to an {@link Appendable} as the lines are calculated,
+         * using the symbols of {@link TruthTable#toString()}.
+         * @see TruthTable#write(int, Appendable, String, String, String, String)
+         * @param order the order of the table. See {@link TruthTable#calculate(int)}
+         * @param out the {@link Appendable} to write to
+         * @throws IOException if {@code out} throws an {@link IOException}
+         */
+        public void write(int order, Appendable out) throws IOException {
+            write(order, out, "T", "F", "\t", "\n");
+        }
+
+        /**
+         * Calculates the table by given order and writes it to a {@link WritableByteChannel} in UTF-8 as the lines
+         * are calculated.
+         * @see TruthTable#write(int, Appendable, String, String, String, String)
+         * @param order the order of the table. See {@link TruthTable#calculate(int)}
+         * @param channel the channel to write to
+         * @param trueString the {@link String} representing true
+         * @param falseString the {@link String} representing false
+         * @param separator the separator between elements in one line.
+         *                  Note that a separator will also be added to the end of the line.
+         * @param lineSeparator the separator used between lines
+         * @throws IOException if an I/O error occurs
+         */
+        public void write(int order, WritableByteChannel channel, String trueString, String falseString,
+                          String separator, String lineSeparator) throws IOException {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            write(order, writer, trueString, falseString, separator, lineSeparator);
+            writer.flush();
+        }
+
+        private void appendHeader(StringBuilder builder, String separator, String lineSeparator) {
             propositions.forEach(e -> builder.append(e).append(separator));
             builder.append(nodeBase.toExpression()).append(lineSeparator);
-            values.forEach(line -> {
-                line.forEach(e -> builder.append(e ? trueString : falseString).append(separator));
-                builder.append(lineSeparator);
-            });
-            return builder.toString();
+        }
+
+        private void appendLine(StringBuilder builder, long line, boolean result, String trueString,
+                                String falseString, String separator, String lineSeparator) {
+            for (int j = propositions.size() - 1; j >= 0; -- j) {
+                builder.append((line & (1L << j)) != 0 ? trueString : falseString).append(separator);
+            }
+            builder.append(result ? trueString : falseString).append(separator);
+            builder.append(lineSeparator);
         }
 
         /**
          * Calculates the principal disjunctive normal form of a propositional formula from its truth table.
+         * <p><b>WARNING: </b>This method can handle at most 31 propositions. Use
+         * {@link TruthTable#calculatePrincipalDisjunctiveNormalFormLong()} for larger tables.</p>
          * @return indices of minterms
          */
         public int[] calculatePrincipalDisjunctiveNormalForm() {
-            IntList list = new IntList();
-            for (int i = 0, s = values.size(), max = values.size(), propCnt = propositions.size(); i < values.size(); ++ i) {
-                int index = order == 0 ? i : max - 1 - i;
-                if (values.get(index).get(propCnt)) {
-                    list.add(index);
-                }
-            }
-            if (order == 1) {
-                list.reverse();
-            }
-            return list.toIntArray();
+            return toIntIndices(calculatePrincipalDisjunctiveNormalFormLong());
         }
 
         /**
          * Calculates the principal conjunctive normal form of a propositional formula from its truth table.
+         * <p><b>WARNING: </b>This method can handle at most 31 propositions. Use
+         * {@link TruthTable#calculatePrincipalConjunctiveNormalFormLong()} for larger tables.</p>
          * @return indices of maxterms
          */
         public int[] calculatePrincipalConjunctiveNormalForm() {
-            IntList list = new IntList();
-            for (int i = 0, s = values.size(), max = values.size(), propCnt = propositions.size(); i < values.size(); ++ i) {
-                int index = order == 0 ? i : max - 1 - i;
-                if (!values.get(index).get(propCnt)) {
-                    list.add(max - 1 - index);
+            return toIntIndices(calculatePrincipalConjunctiveNormalFormLong());
+        }
+
+        /**
+         * Calculates the principal disjunctive normal form of a propositional formula from its truth table.
+         * @return indices of minterms
+         */
+        public long[] calculatePrincipalDisjunctiveNormalFormLong() {
+            return collectIndices(true, order == 1);
+        }
+
+        /**
+         * Calculates the principal conjunctive normal form of a propositional formula from its truth table.
+         * @return indices of maxterms
+         */
+        public long[] calculatePrincipalConjunctiveNormalFormLong() {
+            return collectIndices(false, order == 0);
+        }
+
+        /**
+         * Calculates a minimal or near-minimal disjunctive normal form of a propositional formula from its truth table.
+         * @see Minimizer
+         * @return the disjunctive normal form
+         */
+        public Cover minimizeDisjunctiveNormalForm() {
+            return minimizeDisjunctiveNormalForm(Minimizer.Mode.AUTO);
+        }
+
+        /**
+         * Calculates a minimal or near-minimal disjunctive normal form of a propositional formula from its truth table.
+         * <p><b>WARNING: </b>This method can handle at most {@value Minimizer#MAX_VARIABLES} propositions.</p>
+         * @see Minimizer
+         * @param mode how to calculate the form
+         * @return the disjunctive normal form
+         */
+        public Cover minimizeDisjunctiveNormalForm(Minimizer.Mode mode) {
+            NormalFormEvent event = new NormalFormEvent();
+            event.begin();
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            Cover cover = Minimizer.minimize(propositionNames(), results, null, false, mode);
+            record(event, start, "DNF", cover.size());
+            return cover;
+        }
+
+        /**
+         * Calculates a minimal or near-minimal conjunctive normal form of a propositional formula from its truth table.
+         * @see Minimizer
+         * @return the conjunctive normal form
+         */
+        public Cover minimizeConjunctiveNormalForm() {
+            return minimizeConjunctiveNormalForm(Minimizer.Mode.AUTO);
+        }
+
+        /**
+         * Calculates a minimal or near-minimal conjunctive normal form of a propositional formula from its truth table.
+         * <p><b>WARNING: </b>This method can handle at most {@value Minimizer#MAX_VARIABLES} propositions.</p>
+         * @see Minimizer
+         * @param mode how to calculate the form
+         * @return the conjunctive normal form
+         */
+        public Cover minimizeConjunctiveNormalForm(Minimizer.Mode mode) {
+            NormalFormEvent event = new NormalFormEvent();
+            event.begin();
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            Cover cover = Minimizer.minimize(propositionNames(), results, null, true, mode);
+            record(event, start, "CNF", cover.size());
+            return cover;
+        }
+
+        private String[] propositionNames() {
+            String[] names = new String[propositions.size()];
+            for (int i = 0; i < names.length; ++ i) {
+                names[i] = propositions.get(i).getStringRepresentation();
+            }
+            return names;
+        }
+
+        /**
+         * Returns the indices of the minterms of the principal disjunctive normal form, calculated lazily from the
+         * truth table as the stream is consumed, so the indices are never held in memory as a whole.
+         * <p>The stream splits the table into ranges of lines, so it may be consumed in parallel; it is ordered, and
+         * {@link LongStream#iterator()} walks it without buffering. The indices are the same as those of
+         * {@link TruthTable#calculatePrincipalDisjunctiveNormalFormLong()}.</p>
+         * @param descending whether the indices are in decreasing order instead of increasing order
+         * @return the indices of the minterms
+         */
+        public LongStream streamPrincipalDisjunctiveNormalForm(boolean descending) {
+            return StreamSupport.longStream(new IndexSpliterator(true, order == 1, descending), false);
+        }
+
+        /**
+         * Returns the indices of the maxterms of the principal conjunctive normal form, calculated lazily from the
+         * truth table as the stream is consumed.
+         * @see TruthTable#streamPrincipalDisjunctiveNormalForm(boolean)
+         * @param descending whether the indices are in decreasing order instead of increasing order
+         * @return the indices of the maxterms
+         */
+        public LongStream streamPrincipalConjunctiveNormalForm(boolean descending) {
+            return StreamSupport.longStream(new IndexSpliterator(false, order == 0, descending), false);
+        }
+
+        /**
+         * Returns the indices of the minterms of the principal disjunctive normal form as {@code int}s. Use
+         * {@link IntStream#iterator()} for a {@link PrimitiveIterator.OfInt}.
+         * <p><b>WARNING: </b>This method can handle at most 31 propositions.</p>
+         * @see TruthTable#streamPrincipalDisjunctiveNormalForm(boolean)
+         * @param descending whether the indices are in decreasing order instead of increasing order
+         * @return the indices of the minterms
+         */
+        public IntStream streamPrincipalDisjunctiveNormalFormInt(boolean descending) {
+            checkIntIndices();
+            return streamPrincipalDisjunctiveNormalForm(descending).mapToInt(i -> (int) i);
+        }
+
+        /**
+         * Returns the indices of the maxterms of the principal conjunctive normal form as {@code int}s. Use
+         * {@link IntStream#iterator()} for a {@link PrimitiveIterator.OfInt}.
+         * <p><b>WARNING: </b>This method can handle at most 31 propositions.</p>
+         * @see TruthTable#streamPrincipalConjunctiveNormalForm(boolean)
+         * @param descending whether the indices are in decreasing order instead of increasing order
+         * @return the indices of the maxterms
+         */
+        public IntStream streamPrincipalConjunctiveNormalFormInt(boolean descending) {
+            checkIntIndices();
+            return streamPrincipalConjunctiveNormalForm(descending).mapToInt(i -> (int) i);
+        }
+
+        private void checkIntIndices() {
+            if (propositions.size() > 31) {
+                throw new UnsupportedOperationException("Too many propositions for int indices.");
+            }
+        }
+
+        private int[] toIntIndices(long[] indices) {
+            checkIntIndices();
+            int[] result = new int[indices.length];
+            for (int i = 0; i < indices.length; ++ i) {
+                result[i] = (int) indices[i];
+            }
+            return result;
+        }
+
+        /**
+         * Collects the lines with the given result in increasing order of their indices.
+         * @param value the result to look for
+         * @param complement whether the indices are complemented, i.e. {@code 2^n - 1 - index} is collected instead
+         * @return the collected indices
+         */
+        private long[] collectIndices(boolean value, boolean complement) {
+            NormalFormEvent event = new NormalFormEvent();
+            event.begin();
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            long count = value ? results.count() : results.size() - results.count();
+            if (count > Integer.MAX_VALUE - 8) {
+                throw new UnsupportedOperationException("Too many indices to fit in an array: " + count);
+            }
+            long[] indices = new long[(int) count];
+            IndexSpliterator spliterator = new IndexSpliterator(value, complement, false);
+            for (int i = 0; i < indices.length; ++ i) {
+                indices[i] = spliterator.next();
+            }
+            record(event, start, value ? "PDNF" : "PCNF", count);
+            return indices;
+        }
+
+        /**
+         * Walks through the lines with the given result in order of their (complemented) indices, a word of 64 lines
+         * at a time. The lines not walked yet are the blocks from {@code from} until {@code to} and the bits left in
+         * {@code word}, which precede those blocks in the order of the walk; splitting hands out the first half of the
+         * blocks together with {@code word}.
+         */
+        private final class IndexSpliterator implements Spliterator.OfLong {
+
+            private final BitArray results = TruthTable.this.results;
+            private final boolean value, complement, descending;
+            /** Whether lines are walked in increasing order of their indices. */
+            private final boolean forward;
+            private final long max;
+            private long from, to;
+            private long block;
+            private long word;
+
+            /**
+             * @param value the result to look for
+             * @param complement whether the indices are complemented, i.e. {@code 2^n - 1 - index} is returned instead
+             * @param descending whether the returned indices decrease instead of increase
+             */
+            private IndexSpliterator(boolean value, boolean complement, boolean descending) {
+                this(value, complement, descending, 0, TruthTable.this.results.wordCount());
+            }
+
+            private IndexSpliterator(boolean value, boolean complement, boolean descending, long from, long to) {
+                this.value = value;
+                this.complement = complement;
+                this.descending = descending;
+                this.forward = complement == descending;
+                this.max = results.size();
+                this.from = from;
+                this.to = to;
+            }
+
+            /**
+             * Returns the next index.
+             * @return the next index, or -1 if there is none
+             */
+            private long next() {
+                while (word == 0) {
+                    if (from >= to) {
+                        return -1;
+                    }
+                    block = forward ? from ++ : -- to;
+                    word = value ? results.getWord(block) : ~results.getWord(block) & results.validBits(block);
                 }
+                int bit;
+                if (forward) {
+                    bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                } else {
+                    bit = 63 - Long.numberOfLeadingZeros(word);
+                    word &= ~(1L << bit);
+                }
+                long line = (block << 6) + bit;
+                return complement ? max - 1 - line : line;
+            }
+
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                long index = next();
+                if (index < 0) {
+                    return false;
+                }
+                action.accept(index);
+                return true;
             }
-            if (order == 0) {
-                list.reverse();
+
+            @Override
+            public void forEachRemaining(LongConsumer action) {
+                for (long index = next(); index >= 0; index = next()) {
+                    action.accept(index);
+                }
+            }
+
+            @Override
+            public Spliterator.OfLong trySplit() {
+                if (to - from < 2) {
+                    return null;
+                }
+                long middle = (from + to) >>> 1;
+                IndexSpliterator prefix = forward ?
+                        new IndexSpliterator(value, complement, descending, from, middle)
+                        : new IndexSpliterator(value, complement, descending, middle, to);
+                prefix.block = block;
+                prefix.word = word;
+                word = 0;
+                if (forward) {
+                    from = middle;
+                } else {
+                    to = middle;
+                }
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return ((to - from) << 6) + Long.bitCount(word);
+            }
+
+            @Override
+            public int characteristics() {
+                return ORDERED | DISTINCT | NONNULL | IMMUTABLE | (descending ? 0 : SORTED);
+            }
+
+            @Override
+            public Comparator<? super Long> getComparator() {
+                if (descending) {
+                    throw new IllegalStateException();
+                }
+                return null;
             }
-            return list.toIntArray();
         }
 
         @Override
@@ -394,13 +1621,70 @@ public class Calculator {
             HashMap<String, PropositionIdentifierNode> identifierMap,
             int order,
             Comparator<Map.Entry<String, PropositionIdentifierNode>> comparator) {
+        return new TruthTable(sortPropositions(identifierMap, comparator), nodeBase).calculate(order);
+    }
+
+    /**
+     * This method returns the truth table of a given {@link NodeBase} and its identifier map, calculated with the
+     * given {@link Engine}.
+     * @param nodeBase the node base
+     * @param identifierMap the identifier map
+     * @param order the order to calculate and output. See {@link TruthTable#calculate(int)}
+     * @param comparator the comparator used to determined the order of the propositions
+     * @param engine the engine used for calculation
+     * @return the truth table
+     * @throws CalculationException if the formula cannot be compiled for the engine
+     */
+    public static TruthTable getTruthTable(
+            NodeBase nodeBase,
+            HashMap<String, PropositionIdentifierNode> identifierMap,
+            int order,
+            Comparator<Map.Entry<String, PropositionIdentifierNode>> comparator,
+            Engine engine) throws CalculationException {
+        return new TruthTable(sortPropositions(identifierMap, comparator), nodeBase, engine).calculate(order);
+    }
+
+    /**
+     * This method writes the truth table of a given {@link NodeBase} and its identifier map to an {@link Appendable}
+     * as the lines are calculated, without keeping the table in memory.
+     * By default, propositions are ordered in lexicographical order.
+     * @see TruthTable#write(int, Appendable)
+     * @param nodeBase the node base
+     * @param identifierMap the identifier map
+     * @param order the order to calculate and output. See {@link TruthTable#calculate(int)}
+     * @param out the {@link Appendable} to write to
+     * @throws IOException if {@code out} throws an {@link IOException}
+     */
+    public static void writeTruthTable(
+            NodeBase nodeBase,
+            HashMap<String, PropositionIdentifierNode> identifierMap,
+            int order,
+            Appendable out) throws IOException {
+        new TruthTable(sortPropositions(identifierMap, null), nodeBase).write(order, out);
+    }
+
+    private static ArrayList<PropositionIdentifierNode> sortPropositions(
+            HashMap<String, PropositionIdentifierNode> identifierMap,
+            Comparator<Map.Entry<String, PropositionIdentifierNode>> comparator) {
         ArrayList<Map.Entry<String, PropositionIdentifierNode>> list = new ArrayList<>(identifierMap.entrySet());
         list.sort(comparator == null ?
                 Comparator.comparing(Map.Entry<String, PropositionIdentifierNode>::getKey)
                 : comparator);
         ArrayList<PropositionIdentifierNode> propList = new ArrayList<>();
         list.forEach(e -> propList.add(e.getValue()));
-        return new TruthTable(propList, nodeBase).calculate(order);
+        return propList;
+    }
+
+    /**
+     * This method returns the truth table of a result, with the propositions in the order of
+     * {@link Result#getPropositions()}. The propositions of a result parsed with a {@link SymbolTable} are already in
+     * order, so they are not sorted again.
+     * @param result the result
+     * @param order the order to calculate and output. See {@link TruthTable#calculate(int)}
+     * @return the truth table
+     */
+    public static TruthTable getTruthTable(Result result, int order) {
+        return new TruthTable(result.getPropositions(), result.root).calculate(order);
     }
 
     /**
@@ -0,0 +1,211 @@
+package ml.rhacoal.polishnotation;
+
+import ml.rhacoal.polishnotation.program.Program;
+import ml.rhacoal.polishnotation.program.StackMachine;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * An immutable propositional formula that may be shared between threads.
+ * <p>The node tree of {@link Calculator.Result} keeps the values of the propositions in its identifier nodes, so it
+ * cannot be calculated by two threads at once. A formula instead holds a compiled {@link Program}, in which the
+ * propositions are dense indices from 0 to {@code getVariableCount() - 1} in lexicographical order of their names,
+ * and is calculated with an assignment passed by the caller. Each thread runs its own {@link StackMachine}, so the
+ * {@code evaluate} methods are safe under concurrent use and do not allocate once a thread has calculated a
+ * formula of the same depth.</p>
+ * <p>A formula parsed with a {@link SymbolTable} indexes its propositions in increasing order of their IDs instead,
+ * and may also be calculated with {@link Formula#evaluateSymbols(BitSet)} against an assignment indexed by ID, which
+ * can be shared by every formula over the same table.</p>
+ */
+public final class Formula {
+
+    private static final ThreadLocal<StackMachine> MACHINES = ThreadLocal.withInitial(StackMachine::new);
+
+    private final String expression;
+    private final Program program;
+    private final String[] variables;
+    private final HashMap<String, Integer> indices;
+    private final SymbolTable symbolTable;
+    /** The ID of each proposition in {@link Formula#symbolTable}, or {@code null}. */
+    private final int[] symbolIds;
+
+    private Formula(String expression, Program program, SymbolTable symbolTable, int[] symbolIds) {
+        this.expression = expression;
+        this.program = program;
+        this.symbolTable = symbolTable;
+        this.symbolIds = symbolIds;
+        this.variables = program.getVariables();
+        this.indices = new HashMap<>();
+        for (int i = 0; i < variables.length; ++ i) {
+            indices.put(variables[i], i);
+        }
+    }
+
+    /**
+     * Parses and compiles an expression through the shared cache of {@link Calculator#compiles(String)}.
+     * @param expression the expression
+     * @return the formula
+     * @throws CalculationException if the expression cannot be parsed or compiled
+     */
+    public static Formula parse(String expression) throws CalculationException {
+        return new Formula(expression, Calculator.compiles(expression), null, null);
+    }
+
+    /**
+     * Parses and compiles an expression, interning its propositions into a {@link SymbolTable}.
+     * @see Calculator#calculates(CharSequence, SymbolTable)
+     * @param expression the expression
+     * @param symbols the table to intern the propositions into
+     * @return the formula
+     * @throws CalculationException if the expression cannot be parsed or compiled
+     */
+    public static Formula parse(String expression, SymbolTable symbols) throws CalculationException {
+        return of(Calculator.calculates(expression, symbols));
+    }
+
+    /**
+     * Compiles the result of {@link Calculator#calculates(String)}. The result is not kept, so changing it later does
+     * not change the formula.
+     * @param result the result
+     * @return the formula
+     * @throws CalculationException if the formula contains an operator that cannot be compiled
+     */
+    public static Formula of(Calculator.Result result) throws CalculationException {
+        Program program = Program.compile(result);
+        int[] symbolIds = null;
+        if (result.symbolTable != null) {
+            symbolIds = new int[program.getVariableCount()];
+            for (int i = 0; i < symbolIds.length; ++ i) {
+                symbolIds[i] = result.getSymbolId(i);
+            }
+        }
+        return new Formula(result.root.toExpression(), program, result.symbolTable, symbolIds);
+    }
+
+    /**
+     * Calculates the formula under one assignment.
+     * Bit {@code i} of {@code assignment} is the value of the proposition of index {@code i}. Propositions with an
+     * index of 64 or more are regarded as false; use {@link Formula#evaluate(BitSet)} for larger formulas.
+     * @param assignment the values of the propositions
+     * @return the result of the formula
+     */
+    public boolean evaluate(long assignment) {
+        return MACHINES.get().run(program, assignment);
+    }
+
+    /**
+     * Calculates the formula under one assignment of any number of propositions.
+     * Bit {@code i} of {@code assignment} is the value of the proposition of index {@code i}. The set is only read.
+     * @param assignment the values of the propositions
+     * @return the result of the formula
+     */
+    public boolean evaluate(BitSet assignment) {
+        return MACHINES.get().run(program, assignment);
+    }
+
+    /**
+     * Calculates the formula under an assignment indexed by the IDs of its {@link SymbolTable}.
+     * Bit {@code id} of {@code assignment} is the value of the proposition whose ID is {@code id}, so one assignment
+     * serves every formula over the table. The set is only read.
+     * @param assignment the values of the propositions by ID
+     * @return the result of the formula
+     * @throws IllegalStateException if the formula was not parsed with a symbol table
+     */
+    public boolean evaluateSymbols(BitSet assignment) {
+        if (symbolIds == null) {
+            throw new IllegalStateException("The propositions are not interned.");
+        }
+        return MACHINES.get().run(program, assignment, symbolIds);
+    }
+
+    /**
+     * Calculates the formula on 64 assignments at once.
+     * Bit {@code k} of {@code values[i]} is the value of the proposition of index {@code i} in the {@code k}-th
+     * assignment.
+     * @param values values of the propositions in index order
+     * @return the results of the formula, one per bit
+     * @throws IllegalArgumentException if there are fewer values than propositions
+     */
+    public long evaluate64(long[] values) {
+        if (values.length < variables.length) {
+            throw new IllegalArgumentException(
+                    "Expected values of " + variables.length + " propositions, got " + values.length + ".");
+        }
+        return MACHINES.get().runBits(program, values);
+    }
+
+    /**
+     * Returns the number of propositions.
+     * @return the number of propositions
+     */
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    /**
+     * Returns the name of a proposition.
+     * @param index the index of the proposition
+     * @return the name
+     */
+    public String getVariable(int index) {
+        return variables[index];
+    }
+
+    /**
+     * Returns the names of the propositions in index order.
+     * @return a copy of the names
+     */
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    /**
+     * Returns the index of a proposition.
+     * @param name the name of the proposition
+     * @return the index, or -1 if the formula does not contain the proposition
+     */
+    public int indexOf(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the table the propositions are interned into.
+     * @return the table, or {@code null} if the propositions are not interned
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Returns the ID of a proposition in {@link Formula#getSymbolTable()}.
+     * @param index the index of the proposition
+     * @return the ID
+     * @throws IllegalStateException if the formula was not parsed with a symbol table
+     */
+    public int getSymbolId(int index) {
+        if (symbolIds == null) {
+            throw new IllegalStateException("The propositions are not interned.");
+        }
+        return symbolIds[index];
+    }
+
+    /**
+     * Returns the compiled program, for instance to create an evaluator with
+     * {@link ml.rhacoal.polishnotation.program.BytecodeCompiler#compile(Program)}.
+     * @return the program
+     */
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * Returns the expression the formula was created from.
+     * @return the expression
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -1,11 +1,29 @@
 package ml.rhacoal.polishnotation;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ml.rhacoal.polishnotation.metrics.Counter;
+import ml.rhacoal.polishnotation.metrics.Histogram;
+import ml.rhacoal.polishnotation.metrics.Metrics;
+import ml.rhacoal.polishnotation.minimization.Minimizer;
 import ml.rhacoal.polishnotation.node.NodeBase;
 import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import ml.rhacoal.polishnotation.sat.Satisfiability;
 
+import java.io.*;
 import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Scanner;
+import java.util.concurrent.*;
 
 /**
  * A demo program to demonstrate a few functions of this library.
@@ -44,12 +62,25 @@ public class Main {
             "PDNF: principal disjunctive normal form"                   //    4
             ;
     private static final String[] OUTPUTS = new String[]{"PN", "RPN", "TT", "PCNF", "PDNF"};
+    /**
+     * The heap taken by a character of a normal form read by {@link Main#readTruthTable(Scanner)}: two bytes, as the
+     * operators are not Latin-1, for the builder, its spare capacity and the string copied from it.
+     */
+    private static final int BYTES_PER_CHARACTER = 6;
+    /** Characters of a normal form buffered before they are written. */
+    private static final int CHUNK_SIZE = 1 << 16;
 
     private static class NFResult {
         private final String CNF, DNF;
+        private final String minimalCNF, minimalDNF;
         private NFResult(String cnf, String dnf) {
+            this(cnf, dnf, cnf, dnf);
+        }
+        private NFResult(String cnf, String dnf, String minimalCNF, String minimalDNF) {
             CNF = cnf;
             DNF = dnf;
+            this.minimalCNF = minimalCNF;
+            this.minimalDNF = minimalDNF;
         }
     }
 
@@ -60,8 +91,13 @@ public class Main {
         do {
             propositionsLine = scanner.nextLine();
             props = propositionsLine.trim().split("\\p{javaWhitespace}+");
-            if (props.length > 31 || props.length == 0) {
-                System.out.println("Number of propositional variables must be between 1 and 31 (inclusive).");
+            if (props.length > Calculator.TruthTable.MAX_PROPOSITIONS || props.length == 0) {
+                System.out.println("Number of propositional variables must be between 1 and "
+                        + Calculator.TruthTable.MAX_PROPOSITIONS + " (inclusive).");
+                System.out.println("Reenter the line: ");
+            } else if (!fitsInMemory(props)) {
+                System.out.println("The truth table of " + props.length
+                        + " propositional variables and its normal forms do not fit in memory.");
                 System.out.println("Reenter the line: ");
             } else {
                 break;
@@ -71,33 +107,33 @@ public class Main {
         System.out.println("Received " + propsCount +
                 " propositional variables. Please enter the following 2^n lines.");
         System.out.println("T/F and 1/0 are both accepted. Other inputs are regarded as false.");
-        boolean[] values = new boolean[1 << propsCount];
-        boolean[] visited = new boolean[1 << propsCount];
-        for (int i = 0; i < (1 << propsCount); ++ i) { //read through the lines
-            int index = 0;
+        Calculator.TruthTable.BitArray values = new Calculator.TruthTable.BitArray(1L << propsCount);
+        Calculator.TruthTable.BitArray visited = new Calculator.TruthTable.BitArray(1L << propsCount);
+        for (long i = 0; i < (1L << propsCount); ++ i) { //read through the lines
+            long index = 0;
             for (int j = 0; j < propsCount; ++ j) {
                 index <<= 1;
                 String token = scanner.next();
                 index += token.equalsIgnoreCase("T") || token.equalsIgnoreCase("1") ? 1 : 0;
             }
             String token = scanner.next();
-            if (visited[index]) {
+            if (visited.get(index)) {
                 System.out.println("ERROR: Line " + (i + 1) + " is duplicated.");
                 return new NFResult("ERROR", "ERROR");
             }
-            visited[index] = true;
-            values[index] = token.equalsIgnoreCase("T") || token.equalsIgnoreCase("1");
+            visited.set(index, true);
+            values.set(index, token.equalsIgnoreCase("T") || token.equalsIgnoreCase("1"));
         }
         System.out.println("Input complete. Generating propositional formula...");
         String no = "¬", and = "∧", or = "∨";
         //from real lines:
         StringBuilder builderCNF = new StringBuilder();
         StringBuilder builderDNF = new StringBuilder();
-        for (int i = 0; i < values.length; ++ i) {
-            if (values[i]) { //true line
+        for (long i = 0; i < values.size(); ++ i) {
+            if (values.get(i)) { //true line
                 builderDNF.append('(');
                 for (int j = 0; j < propsCount; ++ j) {
-                    if ((i & (1 << (propsCount - j - 1))) != 0) {
+                    if ((i & (1L << (propsCount - j - 1))) != 0) {
                         builderDNF.append(no);
                     }
                     builderDNF.append(props[j]);
@@ -109,7 +145,7 @@ public class Main {
             } else {
                 builderCNF.append('(');
                 for (int j = 0; j < propsCount; ++ j) {
-                    if ((i & (1 << (propsCount - j - 1))) != 0) {
+                    if ((i & (1L << (propsCount - j - 1))) != 0) {
                         builderCNF.append(no);
                     }
                     builderCNF.append(props[j]);
@@ -126,108 +162,763 @@ public class Main {
         if (builderDNF.length() > 0) {
             builderDNF.delete(builderDNF.length() - 1, builderDNF.length());
         }
-        return new NFResult(builderCNF.toString(), builderDNF.toString());
+        if (propsCount > Minimizer.MAX_VARIABLES) {
+            String tooMany = "too many propositions";
+            return new NFResult(builderCNF.toString(), builderDNF.toString(), tooMany, tooMany);
+        }
+        return new NFResult(builderCNF.toString(), builderDNF.toString(),
+                Minimizer.minimize(props, values, null, true, Minimizer.Mode.AUTO).toString(no, and, or),
+                Minimizer.minimize(props, values, null, false, Minimizer.Mode.AUTO).toString(no, and, or));
+    }
+
+    /**
+     * Checks whether the table of {@link Main#readTruthTable(Scanner)} fits in the heap. The lines are kept in two
+     * {@link Calculator.TruthTable.BitArray}s, and each line becomes a term of one of the normal forms, whose text
+     * must fit in a {@link String}, and in the heap with the copies made while it grows.
+     * @param props the names of the propositions
+     * @return whether the table can be read
+     */
+    private static boolean fitsInMemory(String[] props) {
+        long termLength = 3; // the parentheses and the operator between terms
+        for (String prop : props) {
+            termLength += prop.length() + 2; // a negation and the operator between propositions
+        }
+        long lines = 1L << props.length;
+        if (lines > (Integer.MAX_VALUE - 8) / termLength) {
+            return false;
+        }
+        return lines / 4 + lines * termLength * BYTES_PER_CHARACTER <= Runtime.getRuntime().maxMemory();
     }
 
     public static void main(String[] args)  {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            Batch.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            Server.run(args);
+            return;
+        }
         Scanner scanner = new Scanner(System.in); // defines and initializes a Scanner instance to read System.in
         System.out.println(BASIC_HELP);
         boolean[] output = new boolean[]{true, true, true, true, true};
         mainLoop: while (scanner.hasNextLine()) { // read until EOF
+            String line = scanner.nextLine();
+            if (line.isEmpty()) { // ignore empty lines
+                continue;
+            }
+            if (line.charAt(0) == ':') { // commands
+                String[] command = line.split(" ");
+                switch(command[0]) {
+                    case ":toggle":
+                        System.out.println(toggle(command, output));
+                        break;
+                    case ":exit":
+                        System.out.println("Exiting...");
+                        break mainLoop;
+                    case ":truthtable":
+                        NFResult nfr = readTruthTable(scanner);
+                        System.out.println("CNF: " + nfr.CNF);
+                        System.out.println("DNF: " + nfr.DNF);
+                        System.out.println("Minimal CNF: " + nfr.minimalCNF);
+                        System.out.println("Minimal DNF: " + nfr.minimalDNF);
+                        break;
+                    default:
+                        System.out.println("Unknown command: " + command[0]);
+                }
+                continue;
+            }
             try {
-                String line = scanner.nextLine();
+                Formatted.of(line, output).writeTo(System.out);
+            } catch (IOException ioe) {
+                System.out.println("Output exception occurred: " + ioe.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles a {@code :toggle} command.
+     * @param command the command split by spaces
+     * @param output the enabled outputs, indexed as {@link Main#OUTPUTS}, updated in place
+     * @return the message to show
+     */
+    private static String toggle(String[] command, boolean[] output) {
+        if (command.length > 1) {
+            // if no <on/off> is provided, on is default
+            // if extra arguments are provided, they are ignored
+            boolean value = command.length == 2 || command[2].equals("on");
+            // find the corresponding id of the output
+            int index = -1;
+            for (int i = 0; i < OUTPUTS.length; ++i) {
+                if (OUTPUTS[i].equalsIgnoreCase(command[1])) {
+                    index = i;
+                }
+            }
+            if (index == -1) { // unsupported output
+                return "Unsupported output: " + command[1];
+            } else {
+                output[index] = value;
+                return "Toggled " + command[1] + " output " + (value ? "on" : "off");
+            }
+        } else {
+            return TOGGLE_HELP;
+        }
+    }
+
+    /**
+     * The enabled outputs of a formula, or the error if it cannot be calculated.
+     * <p>{@link Formatted#of(String, boolean[])} parses the formula, formats the notations and calculates the truth
+     * table if a normal form needs it. The truth table and the normal forms are only produced by
+     * {@link Formatted#writeTo(Appendable)}, which streams them to the output, so they are never held as text.</p>
+     */
+    private static final class Formatted {
+
+        /** The outputs before the truth table, or the message if there is no formula to write. */
+        private final String head;
+        /** The table of the formula, calculated if a normal form is enabled, or {@code null}. */
+        private final Calculator.TruthTable table;
+        private final boolean[] output;
+
+        private Formatted(String head, Calculator.TruthTable table, boolean[] output) {
+            this.head = head;
+            this.table = table;
+            this.output = output;
+        }
+
+        /**
+         * Returns a message written as it is.
+         * @param message the text to write, ending with a line separator
+         * @return the message
+         */
+        private static Formatted message(String message) {
+            return new Formatted(message, null, null);
+        }
+
+        /**
+         * Calculates a formula.
+         * @param line the formula
+         * @param output the enabled outputs, indexed as {@link Main#OUTPUTS}, which must not change afterwards
+         * @return the outputs
+         */
+        private static Formatted of(String line, boolean[] output) {
+            StringBuilder builder = new StringBuilder();
+            try {
+                Calculator.Result result = Calculator.calculates(line);
+                NodeBase nb = result.root;
+                if (!(output[0] || output[1] || output[2] || output[3] || output[4])) {
+                    builder.append("Nothing to output.\n");
+                }
+                if (output[0]) builder.append("PN : ").append(nb.toPolishNotation()).append('\n');
+                if (output[1]) builder.append("RPN: ").append(nb.toReversePolishNotation()).append('\n');
+                if (!(output[2] || output[3] || output[4])) {
+                    return message(builder.toString());
+                }
+                // the normal forms need the whole table, which is then written from its results
+                Calculator.TruthTable table = new Calculator.TruthTable(result.getPropositions(), nb);
+                if (output[3] || output[4]) {
+                    table.calculate(0);
+                }
+                return new Formatted(builder.toString(), table, output);
+            } catch (CalculationException ce) {
+                return message(builder.append("Calculation exception occurred: ").append(ce.getMessage())
+                        .append('\n').toString());
+            }
+        }
+
+        /**
+         * Writes the outputs, calculating the lines of the truth table as they are written unless a normal form
+         * needed them before.
+         * @param out the output
+         * @throws IOException if {@code out} throws an {@link IOException}
+         */
+        private void writeTo(Appendable out) throws IOException {
+            out.append(head);
+            if (table == null) {
+                return;
+            }
+            if (output[2]) {
+                out.append("Truth Table\n");
+                table.write(0, out);
+                out.append('\n');
+            }
+            if (output[3]) {
+                writeNormalForm(out, "PCNF: ", '∧', table.streamPrincipalConjunctiveNormalForm(false).iterator());
+            }
+            if (output[4]) {
+                writeNormalForm(out, "PDNF: ", '∨', table.streamPrincipalDisjunctiveNormalForm(false).iterator());
+            }
+            out.append('\n');
+        }
+
+        /**
+         * Writes the indices of a principal normal form as they are produced, without collecting them first.
+         */
+        private static void writeNormalForm(Appendable out, String name, char operator,
+                                            PrimitiveIterator.OfLong indexes) throws IOException {
+            out.append(name);
+            if (indexes.hasNext()) {
+                StringBuilder chunk = new StringBuilder().append(operator).append(indexes.nextLong());
+                while (indexes.hasNext()) {
+                    chunk.append(',').append(indexes.nextLong());
+                    if (chunk.length() >= CHUNK_SIZE) {
+                        out.append(chunk);
+                        chunk.setLength(0);
+                    }
+                }
+                out.append(chunk);
+            } else {
+                out.append("empty");
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * The non-interactive mode, started with {@code --batch [--threads <n>] [--toggle <output> [on|off]]... [file]}.
+     * <p>Every line of the file, or of {@code System.in} if no file or {@code -} is given, is handled like a line
+     * typed into the terminal, without the help text: formulas are calculated and {@code :toggle} commands affect
+     * the formulas after them. {@code :exit} ends the input early. The formulas are calculated on a pool of
+     * {@code n} threads, by default one per processor, while the results are written to {@code System.out} in
+     * input order through one large buffer. A truth table that no normal form needs is calculated as it is written,
+     * so no table is ever held as text. A formula that fails with an unexpected exception is reported in its place,
+     * like one that cannot be calculated, and the batch goes on. Input and output are encoded in UTF-8.</p>
+     */
+    private static final class Batch {
+
+        private static final String USAGE =
+                "usage: --batch [--threads <n>] [--toggle <output> [on|off]]... [file]";
+        private static final int BUFFER_SIZE = 1 << 16;
+        /**
+         * The number of results kept in flight per thread, bounding the memory used by results waiting for an
+         * earlier one.
+         */
+        private static final int PENDING_PER_THREAD = 64;
+
+        private static void run(String[] args) {
+            boolean[] output = new boolean[]{true, true, true, true, true};
+            int threads = Runtime.getRuntime().availableProcessors();
+            String file = null;
+            for (int i = 1; i < args.length; ++ i) {
+                switch (args[i]) {
+                    case "--threads":
+                        try {
+                            threads = Integer.parseInt(args[++ i]);
+                        } catch (RuntimeException ex) {
+                            threads = 0;
+                        }
+                        if (threads <= 0) {
+                            System.err.println("The number of threads must be a positive integer.");
+                            System.err.println(USAGE);
+                            return;
+                        }
+                        break;
+                    case "--toggle":
+                        if (i + 1 == args.length) {
+                            System.err.println(USAGE);
+                            return;
+                        }
+                        String name = args[++ i];
+                        String value = i + 1 < args.length && (args[i + 1].equals("on") || args[i + 1].equals("off"))
+                                ? args[++ i] : "on";
+                        String message = toggle(new String[]{":toggle", name, value}, output);
+                        if (message.startsWith("Unsupported")) {
+                            System.err.println(message);
+                            return;
+                        }
+                        break;
+                    default:
+                        if (file != null || args[i].startsWith("--")) {
+                            System.err.println(USAGE);
+                            return;
+                        }
+                        file = args[i];
+                }
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "batch-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try (BufferedReader in = file == null || file.equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE)
+                    : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                process(in, out, output, pool, threads * PENDING_PER_THREAD);
+            } catch (NoSuchFileException ex) {
+                System.err.println("No such file: " + ex.getMessage());
+            } catch (IOException ex) {
+                System.err.println("Batch failed: " + ex.getMessage());
+            } finally {
+                pool.shutdownNow();
+                try {
+                    out.flush();
+                } catch (IOException ex) {
+                    System.err.println("Output exception occurred: " + ex.getMessage());
+                }
+            }
+        }
+
+        private static void process(BufferedReader in, Writer out, boolean[] output, ExecutorService pool,
+                                    int maxPending) throws IOException {
+            ArrayDeque<Future<Formatted>> pending = new ArrayDeque<>();
+            String line;
+            while ((line = in.readLine()) != null) {
                 if (line.isEmpty()) { // ignore empty lines
                     continue;
                 }
-                if (line.charAt(0) == ':') { // commands
+                if (line.charAt(0) == ':') { // commands take effect in input order
                     String[] command = line.split(" ");
-                    switch(command[0]) {
-                        case ":toggle":
-                            if (command.length > 1) {
-                                // if no <on/off> is provided, on is default
-                                // if extra arguments are provided, they are ignored
-                                boolean value = command.length == 2 || command[2].equals("on");
-                                // find the corresponding id of the output
-                                int index = -1;
-                                for (int i = 0; i < OUTPUTS.length; ++i) {
-                                    if (OUTPUTS[i].equalsIgnoreCase(command[1])) {
-                                        index = i;
-                                    }
-                                }
-                                if (index == -1) { // unsupported output
-                                    System.out.println("Unsupported output: " + command[1]);
-                                } else {
-                                    output[index] = value;
-                                    System.out.println("Toggled " + command[1] + " output " + (value ? "on" : "off"));
-                                }
-                            } else {
-                                System.out.println(TOGGLE_HELP);
-                            }
+                    if (command[0].equals(":exit")) {
+                        break;
+                    }
+                    String message = command[0].equals(":toggle") ? toggle(command, output)
+                            : "Unknown command: " + command[0];
+                    pending.add(CompletableFuture.completedFuture(Formatted.message(message + '\n')));
+                } else {
+                    String formula = line;
+                    boolean[] enabled = output.clone();
+                    pending.add(pool.submit(() -> Formatted.of(formula, enabled)));
+                }
+                while (pending.size() > maxPending || (!pending.isEmpty() && pending.peek().isDone())) {
+                    await(pending.poll()).writeTo(out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                await(pending.poll()).writeTo(out);
+            }
+        }
+
+        private static Formatted await(Future<Formatted> result) throws IOException {
+            try {
+                return result.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a result.");
+            } catch (ExecutionException ex) {
+                // one formula failing does not end the batch
+                return Formatted.message("Unexpected exception occurred: " + ex.getCause() + '\n');
+            }
+        }
+    }
+
+    /**
+     * The server mode, started with {@code --serve [--host <address>] [--port <n>] [--max-length <bytes>]
+     * [--timeout <ms>] [--max-propositions <n>]}.
+     * <p>Every endpoint but {@code /metrics} takes a formula, as the body of a {@code POST} request or as the
+     * {@code formula} parameter of a {@code GET} request, and answers in plain text:</p>
+     * <ul>
+     *     <li>{@code /pn} and {@code /rpn}: the polish or reverse polish notation;</li>
+     *     <li>{@code /tt}: the truth table, written as the lines are calculated;</li>
+     *     <li>{@code /pcnf} and {@code /pdnf}: the indices of the maxterms or minterms, separated by commas;</li>
+     *     <li>{@code /sat}: whether the formula is satisfiable and whether it is a tautology, with a model and a
+     *     counterexample where they exist, see {@link Satisfiability};</li>
+     *     <li>{@code /metrics}: {@link Metrics#report()}.</li>
+     * </ul>
+     * <p>Requests are handled concurrently, on a virtual thread each if the runtime has virtual threads. A formula of
+     * more than {@code max-length} bytes is refused with 413, and so are normal forms of more than
+     * {@code max-propositions} propositions. Parsing is bounded by the length of the formula. The time budget of
+     * {@code timeout} milliseconds is checked before a response starts, which is refused with 503 if the budget is
+     * spent; during the search of the SAT solver, which gives up with 503; and while a truth table or normal form is
+     * calculated and written, which ends with an {@code ERROR} line if the budget runs out. Input and output are
+     * encoded in UTF-8.</p>
+     */
+    static final class Server {
+
+        private static final String USAGE = "usage: --serve [--host <address>] [--port <n>] [--max-length <bytes>] "
+                + "[--timeout <ms>] [--max-propositions <n>]";
+        private static final String DEFAULT_HOST = "127.0.0.1";
+        private static final int DEFAULT_PORT = 8080;
+        private static final int DEFAULT_MAX_LENGTH = 8192;
+        private static final int DEFAULT_TIMEOUT = 2000;
+        private static final int DEFAULT_MAX_PROPOSITIONS = 24;
+        /** The number of connections the system queues before they are accepted. */
+        private static final int BACKLOG = 1024;
+        /** The number of threads per processor when there are no virtual threads, since handlers block on I/O. */
+        private static final int THREADS_PER_PROCESSOR = 4;
+        /** Blocks of 64 lines of a normal form calculated between two checks of the time budget. */
+        private static final int BLOCKS_PER_CHECK = 64;
+
+        private static final Histogram REQUEST_NANOS = Metrics.histogram("server.nanos");
+        private static final Counter ERRORS = Metrics.counter("server.errors");
+        private static final Counter TIMEOUTS = Metrics.counter("server.timeouts");
+
+        private final int maxLength;
+        private final long timeoutNanos;
+        private final int maxPropositions;
+
+        private Server(int maxLength, long timeoutMillis, int maxPropositions) {
+            this.maxLength = maxLength;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.maxPropositions = maxPropositions;
+        }
+
+        private static void run(String[] args) {
+            String host = DEFAULT_HOST;
+            int port = DEFAULT_PORT;
+            int maxLength = DEFAULT_MAX_LENGTH;
+            int timeout = DEFAULT_TIMEOUT;
+            int maxPropositions = DEFAULT_MAX_PROPOSITIONS;
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    System.err.println(USAGE);
+                    return;
+                }
+                String value = args[i + 1];
+                try {
+                    switch (args[i]) {
+                        case "--host":
+                            host = value;
                             break;
-                        case ":exit":
-                            System.out.println("Exiting...");
-                            break mainLoop;
-                        case ":truthtable":
-                            NFResult nfr = readTruthTable(scanner);
-                            System.out.println("CNF: " + nfr.CNF);
-                            System.out.println("DNF: " + nfr.DNF);
+                        case "--port":
+                            port = parse(value, 0, 65535);
+                            break;
+                        case "--max-length":
+                            maxLength = parse(value, 1, Integer.MAX_VALUE - 1);
+                            break;
+                        case "--timeout":
+                            timeout = parse(value, 1, Integer.MAX_VALUE);
+                            break;
+                        case "--max-propositions":
+                            maxPropositions = parse(value, 0, Calculator.TruthTable.MAX_PROPOSITIONS);
                             break;
                         default:
-                            System.out.println("Unknown command: " + command[0]);
+                            System.err.println(USAGE);
+                            return;
                     }
-                    continue;
+                } catch (IllegalArgumentException ex) {
+                    System.err.println("Invalid value of " + args[i] + ": " + value);
+                    System.err.println(USAGE);
+                    return;
                 }
-                Calculator.Result result = Calculator.calculates(line);
-                NodeBase nb = result.root;
-                HashMap<String, PropositionIdentifierNode> identifierMap = result.identifierMap;
-                if (!(output[0] || output[1] || output[2] || output[3] || output[4])) {
-                    System.out.println("Nothing to output.");
-                }
-                if (output[0]) System.out.println("PN : " + nb.toPolishNotation());
-                if (output[1]) System.out.println("RPN: " + nb.toReversePolishNotation());
-                if (output[2] || output[3] || output[4]) {
-                    Calculator.TruthTable table = Calculator.getTruthTable(nb,  identifierMap, 0);
-                    if (output[2]) {
-                        System.out.println("Truth Table");
-                        System.out.println(table.toString());
+            }
+            HttpServer server;
+            try {
+                server = start(host, port, maxLength, timeout, maxPropositions);
+            } catch (IOException ex) {
+                System.err.println("Cannot listen on " + host + ":" + port + ": " + ex.getMessage());
+                return;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(0);
+                ((ExecutorService) server.getExecutor()).shutdownNow();
+            }));
+            System.out.println("Listening on http://" + host + ":" + server.getAddress().getPort() + "/");
+        }
+
+        /**
+         * Starts a server with the given options, see {@link Server}.
+         * @param port the port, or 0 for any free port
+         * @return the running server; its executor is an {@link ExecutorService} to shut down after stopping it
+         * @throws IOException if the address cannot be bound
+         */
+        static HttpServer start(String host, int port, int maxLength, int timeout, int maxPropositions)
+                throws IOException {
+            HttpServer server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+            Server handler = new Server(maxLength, timeout, maxPropositions);
+            server.createContext("/", handler::handle);
+            server.setExecutor(newExecutor());
+            server.start();
+            return server;
+        }
+
+        private static int parse(String value, int min, int max) {
+            int result = Integer.parseInt(value);
+            if (result < min || result > max) {
+                throw new IllegalArgumentException(value);
+            }
+            return result;
+        }
+
+        /**
+         * Returns an executor starting a virtual thread per task. The library targets Java 17, which has no virtual
+         * threads, so the factory is looked up at runtime, and a pool of platform threads is used if it is missing.
+         */
+        private static ExecutorService newExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                return Executors.newFixedThreadPool(
+                        Runtime.getRuntime().availableProcessors() * THREADS_PER_PROCESSOR, r -> {
+                            Thread thread = new Thread(r, "server-worker");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+            }
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            boolean measured = Metrics.isEnabled();
+            long start = System.nanoTime();
+            int status = 500;
+            try {
+                status = respond(exchange, start + timeoutNanos);
+            } catch (RuntimeException ex) {
+                if (exchange.getResponseCode() != -1) {
+                    throw ex;
+                }
+                send(exchange, 500, "Internal error: " + ex + '\n');
+            } finally {
+                exchange.close();
+                if (measured) {
+                    REQUEST_NANOS.record(System.nanoTime() - start);
+                    if (status >= 400) {
+                        ERRORS.increment();
                     }
-                    if (output[3]) {
-                        int[] pcnf = table.calculatePrincipalConjunctiveNormalForm();
-                        if (pcnf.length > 0) {
-                            System.out.print("PCNF: ∧");
-                            for (int i = 0; i < pcnf.length; ++i) {
-                                System.out.print(pcnf[i]);
-                                if (i != pcnf.length - 1) {
-                                    System.out.print(',');
-                                }
-                            }
-                            System.out.println();
-                        } else {
-                            System.out.println("PCNF: empty");
-                        }
+                    if (status == 503) {
+                        TIMEOUTS.increment();
                     }
-                    if (output[4]) {
-                        int[] pdnf = table.calculatePrincipalDisjunctiveNormalForm();
-                        if (pdnf.length > 0) {
-                            System.out.print("PDNF: ∨");
-                            for (int i = 0; i < pdnf.length; ++i) {
-                                System.out.print(pdnf[i]);
-                                if (i != pdnf.length - 1) {
-                                    System.out.print(',');
-                                }
-                            }
-                            System.out.println();
-                        } else {
-                            System.out.println("PDNF: empty");
+                }
+            }
+        }
+
+        /**
+         * Answers a request.
+         * @param exchange the request
+         * @param deadline the value of {@link System#nanoTime()} the response should end by
+         * @return the status of the response, or 503 if it started but ran out of time
+         * @throws IOException if the response cannot be written
+         */
+        private int respond(HttpExchange exchange, long deadline) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            switch (path) {
+                case "/metrics":
+                    if (!method.equals("GET")) {
+                        exchange.getResponseHeaders().set("Allow", "GET");
+                        return send(exchange, 405, "Method not allowed: " + method + '\n');
+                    }
+                    return send(exchange, 200, Metrics.report());
+                case "/pn":
+                case "/rpn":
+                case "/tt":
+                case "/pcnf":
+                case "/pdnf":
+                case "/sat":
+                    break;
+                default:
+                    return send(exchange, 404, "Unknown endpoint: " + path + '\n');
+            }
+            String formula;
+            if (method.equals("GET")) {
+                formula = queryParameter(exchange.getRequestURI().getRawQuery(), "formula");
+                if (formula != null && formula.getBytes(StandardCharsets.UTF_8).length > maxLength) {
+                    return send(exchange, 413, "The formula is longer than " + maxLength + " bytes.\n");
+                }
+            } else if (method.equals("POST")) {
+                byte[] body = exchange.getRequestBody().readNBytes(maxLength + 1);
+                if (body.length > maxLength) {
+                    return send(exchange, 413, "The formula is longer than " + maxLength + " bytes.\n");
+                }
+                formula = new String(body, StandardCharsets.UTF_8);
+            } else {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                return send(exchange, 405, "Method not allowed: " + method + '\n');
+            }
+            if (formula == null) {
+                return send(exchange, 400, "Missing formula.\n");
+            }
+            try {
+                if (path.equals("/sat")) {
+                    Satisfiability satisfiability = Satisfiability.of(Calculator.compiles(formula), deadline);
+                    if (satisfiability == null) {
+                        return send(exchange, 503, "The time budget is spent.\n");
+                    }
+                    return send(exchange, 200, formatSatisfiability(satisfiability));
+                }
+                Calculator.Result result = Calculator.calculates(formula);
+                switch (path) {
+                    case "/pn":
+                        return send(exchange, 200, result.root.toPolishNotation() + '\n');
+                    case "/rpn":
+                        return send(exchange, 200, result.root.toReversePolishNotation() + '\n');
+                    case "/tt":
+                        return writeTruthTable(exchange, result, deadline);
+                    default:
+                        return writeNormalForm(exchange, result, path.equals("/pcnf"), deadline);
+                }
+            } catch (CalculationException ex) {
+                return send(exchange, 400, "Calculation exception occurred: " + ex.getMessage() + '\n');
+            }
+        }
 
+        private int writeTruthTable(HttpExchange exchange, Calculator.Result result, long deadline)
+                throws IOException {
+            int propositions = result.identifierMap.size();
+            if (propositions > Calculator.TruthTable.MAX_PROPOSITIONS) {
+                return send(exchange, 413, "Too many propositions: " + propositions + " of at most "
+                        + Calculator.TruthTable.MAX_PROPOSITIONS + ".\n");
+            }
+            if (System.nanoTime() - deadline > 0) {
+                return send(exchange, 503, "The time budget is spent.\n");
+            }
+            Writer out = startStream(exchange);
+            try {
+                Calculator.writeTruthTable(result.root, result.identifierMap, 0, new Budget(out, deadline));
+            } catch (Budget.ExceededException ex) {
+                return endStream(out, true);
+            }
+            return endStream(out, false);
+        }
+
+        private int writeNormalForm(HttpExchange exchange, Calculator.Result result, boolean conjunctive,
+                                    long deadline) throws IOException, CalculationException {
+            int propositions = result.identifierMap.size();
+            if (propositions > maxPropositions) {
+                return send(exchange, 413, "Too many propositions: " + propositions + " of at most "
+                        + maxPropositions + ".\n");
+            }
+            // the table is calculated block by block as the indices are written, and never kept
+            Calculator.TruthTable table = new Calculator.TruthTable(
+                    result.getPropositions(), result.root, Calculator.Engine.PROGRAM);
+            if (System.nanoTime() - deadline > 0) {
+                return send(exchange, 503, "The time budget is spent.\n");
+            }
+            Writer out = startStream(exchange);
+            Budget budget = new Budget(out, deadline);
+            StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 32);
+            boolean first = true;
+            long lines = 1L << propositions;
+            // lines past the end of a small table are neither minterms nor maxterms
+            long valid = propositions < 6 ? (1L << lines) - 1 : -1L;
+            try {
+                for (long i = 0, blocks = (lines + 63) >>> 6; i < blocks; ++ i) {
+                    if ((i & (BLOCKS_PER_CHECK - 1)) == 0) {
+                        budget.check();
+                    }
+                    // maxterms are indexed by their complemented lines, so they increase as the lines decrease
+                    long block = conjunctive ? blocks - 1 - i : i;
+                    long results = table.calculateBlock(block);
+                    for (long terms = conjunctive ? ~results & valid : results; terms != 0; ) {
+                        int bit;
+                        if (conjunctive) {
+                            bit = 63 - Long.numberOfLeadingZeros(terms);
+                            terms &= ~(1L << bit);
+                        } else {
+                            bit = Long.numberOfTrailingZeros(terms);
+                            terms &= terms - 1;
+                        }
+                        long line = (block << 6) + bit;
+                        if (!first) {
+                            chunk.append(',');
                         }
+                        first = false;
+                        chunk.append(conjunctive ? lines - 1 - line : line);
+                    }
+                    if (chunk.length() >= CHUNK_SIZE) {
+                        budget.append(chunk);
+                        chunk.setLength(0);
                     }
-                    System.out.println();
                 }
-            } catch (CalculationException ce) {
-                System.out.println("Calculation exception occurred: " + ce.getMessage());
+                budget.append(chunk.append('\n'));
+            } catch (Budget.ExceededException ex) {
+                return endStream(out, true);
+            }
+            return endStream(out, false);
+        }
+
+        private static String formatSatisfiability(Satisfiability satisfiability) {
+            StringBuilder builder = new StringBuilder();
+            builder.append("satisfiable: ").append(satisfiability.isSatisfiable()).append('\n');
+            builder.append("tautology: ").append(satisfiability.isTautology()).append('\n');
+            if (satisfiability.getModel() != null) {
+                appendAssignment(builder.append("model:"), satisfiability.getModel());
+            }
+            if (satisfiability.getCounterexample() != null) {
+                appendAssignment(builder.append("counterexample:"), satisfiability.getCounterexample());
+            }
+            return builder.toString();
+        }
+
+        private static void appendAssignment(StringBuilder builder, Map<String, Boolean> assignment) {
+            assignment.forEach((name, value) -> builder.append(' ').append(name).append('=').append(value ? 'T' : 'F'));
+            builder.append('\n');
+        }
+
+        private static String queryParameter(String query, String name) {
+            if (query == null) {
+                return null;
+            }
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(name + "=")) {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+
+        private static int send(HttpExchange exchange, int status, String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            exchange.getResponseBody().write(bytes);
+            return status;
+        }
+
+        /**
+         * Starts a response of unknown length, sent in chunks as it is written.
+         */
+        private static Writer startStream(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            return new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+        }
+
+        private static int endStream(Writer out, boolean exceeded) throws IOException {
+            if (exceeded) {
+                out.write("\nERROR: the time budget is spent.\n");
+            }
+            out.flush();
+            return exceeded ? 503 : 200;
+        }
+
+        /**
+         * An {@link Appendable} that refuses to write once a deadline has passed, cutting off a streamed output.
+         */
+        private static final class Budget implements Appendable {
+
+            private static final class ExceededException extends IOException {
+
+                private static final long serialVersionUID = 1L;
+
+                private ExceededException() {
+                    super("The time budget is spent.");
+                }
+            }
+
+            private final Appendable out;
+            private final long deadline;
+
+            private Budget(Appendable out, long deadline) {
+                this.out = out;
+                this.deadline = deadline;
+            }
+
+            private void check() throws ExceededException {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new ExceededException();
+                }
+            }
+
+            @Override
+            public Appendable append(CharSequence csq) throws IOException {
+                check();
+                out.append(csq);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                check();
+                out.append(csq, start, end);
+                return this;
+            }
+
+            @Override
+            public Appendable append(char c) throws IOException {
+                check();
+                out.append(c);
+                return this;
             }
         }
     }
 }
-
@@ -3,29 +3,46 @@ package ml.rhacoal.polishnotation;
 import ml.rhacoal.polishnotation.node.NodeType;
 import ml.rhacoal.polishnotation.node.operatornode.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 import static ml.rhacoal.polishnotation.node.operatornode.OperatorInfo.createOperatorInfo;
 
 /**
  * Provides the service of supporting customized operators.
+ * <p>Operators may have names of several characters. The parser matches the longest registered name at the
+ * current position, looking the characters up in a trie rebuilt whenever an operator is registered, so reading an
+ * operator neither creates strings nor uses reflection.</p>
+ * <p>Besides the operators below, the following aliases are registered: {@code ->} for {@code ^}, {@code <->} for
+ * {@code ~}, {@code &&} and {@code ∧} for {@code &}, {@code ||} and {@code ∨} for {@code |}, and {@code ¬} for
+ * {@code !}. An alias is printed with the name of the operator it stands for.</p>
  */
 public class OperatorRegistry {
 
     private static final HashMap<String, OperatorInfo> prefixMap;
     private static final HashMap<String, OperatorInfo> binaryMap;
+    private static volatile Trie prefixTrie;
+    private static volatile Trie binaryTrie;
 
     static {
         prefixMap = new HashMap<>();
         binaryMap = new HashMap<>();
-        registerOperator(createOperatorInfo("|", (l,r) -> l.calculate() || r.calculate(), NodeType.BINARY, 10));
-        registerOperator(createOperatorInfo("&", (l,r) -> l.calculate() && r.calculate(), NodeType.BINARY, 15));
-        registerOperator(createOperatorInfo("^", (l,r) -> !l.calculate() || r.calculate(), NodeType.BINARY, 7));
-        registerOperator(createOperatorInfo("~", (l,r) -> l.calculate() == r.calculate(), NodeType.BINARY, 3));
-        registerOperator(createOperatorInfo("↑", (l,r) -> !(l.calculate() && r.calculate()), NodeType.BINARY, 2));
-        registerOperator(createOperatorInfo("↓", (l,r) -> !(l.calculate() || r.calculate()), NodeType.BINARY, 1));
-        registerOperator(createOperatorInfo("!", (n,r) -> ! r.calculate(), NodeType.UNARY, 1000));
-        registerOperator(createOperatorInfo("(", NodeType.UNARY, ParenthesisNode.class));
+        registerOperator(createOperatorInfo("|", (l,r) -> l.calculate() || r.calculate(), (l,r) -> l | r, NodeType.BINARY, 10));
+        registerOperator(createOperatorInfo("&", (l,r) -> l.calculate() && r.calculate(), (l,r) -> l & r, NodeType.BINARY, 15));
+        registerOperator(createOperatorInfo("^", (l,r) -> !l.calculate() || r.calculate(), (l,r) -> ~l | r, NodeType.BINARY, 7));
+        registerOperator(createOperatorInfo("~", (l,r) -> l.calculate() == r.calculate(), (l,r) -> ~(l ^ r), NodeType.BINARY, 3));
+        registerOperator(createOperatorInfo("↑", (l,r) -> !(l.calculate() && r.calculate()), (l,r) -> ~(l & r), NodeType.BINARY, 2));
+        registerOperator(createOperatorInfo("↓", (l,r) -> !(l.calculate() || r.calculate()), (l,r) -> ~(l | r), NodeType.BINARY, 1));
+        registerOperator(createOperatorInfo("!", (n,r) -> ! r.calculate(), (n,r) -> ~r, NodeType.UNARY, 1000));
+        registerOperator(createOperatorInfo("(", NodeType.UNARY, ParenthesisNode::new));
+        registerOperator("->", binaryMap.get("^"), NodeType.BINARY);
+        registerOperator("<->", binaryMap.get("~"), NodeType.BINARY);
+        registerOperator("&&", binaryMap.get("&"), NodeType.BINARY);
+        registerOperator("∧", binaryMap.get("&"), NodeType.BINARY);
+        registerOperator("||", binaryMap.get("|"), NodeType.BINARY);
+        registerOperator("∨", binaryMap.get("|"), NodeType.BINARY);
+        registerOperator("¬", prefixMap.get("!"), NodeType.UNARY);
     }
 
     public static OperatorNode getOperator(String name, NodeType type) throws CalculationException {
@@ -40,54 +57,182 @@ public class OperatorRegistry {
             case VALUE:
                 throw new CalculationException("No number as operators.");
         }
-        if (opInfo == null)
+        return newNode(opInfo, name, type);
+    }
+
+    /**
+     * Creates a node of an operator.
+     * @param opInfo the operator, or {@code null} if no operator of the name is registered
+     * @param name the name, for the error messages
+     * @param type {@link NodeType#BINARY} or {@link NodeType#UNARY}
+     * @return the node
+     * @throws CalculationException if the operator does not exist or its node cannot be created
+     */
+    static OperatorNode newNode(OperatorInfo opInfo, String name, NodeType type) throws CalculationException {
+        if (opInfo == null) {
             throw new CalculationException(
                     (type == NodeType.BINARY ? "Binary" : "Unary") + " operator \"" + name + "\" doesn't exist."
             );
-        else {
-            OperatorNode node;
-            if (opInfo.special) {
-                try {
-                    return opInfo.specialClass.newInstance();
-                } catch (InstantiationException | IllegalAccessException ex) {
-                    throw new CalculationException(
-                            "Operator \"" + name + "\" is not instantiable."
-                    );
-                }
-            } else {
-                switch (type) {
-                    case BINARY:
-                        return new DefaultBinaryImpl(opInfo);
-                    case UNARY:
-                        return new DefaultUnaryImpl(opInfo);
-                    default: // this should not be called
-                        return null;
-                }
-            }
+        }
+        OperatorNode node = opInfo.newNode();
+        if (node == null) {
+            throw new CalculationException(
+                    "Operator \"" + name + "\" is not instantiable."
+            );
+        }
+        return node;
+    }
+
+    /**
+     * Returns the registered {@link OperatorInfo} of an operator.
+     * @param name the name of the operator
+     * @param type {@link NodeType#BINARY} or {@link NodeType#UNARY}
+     * @return the operator info, or {@code null} if no such operator is registered
+     */
+    public static OperatorInfo getOperatorInfo(String name, NodeType type) {
+        switch (type) {
+            case BINARY:
+                return binaryMap.get(name);
+            case UNARY:
+                return prefixMap.get(name);
+            default:
+                return null;
         }
     }
 
     public static OperatorNode getOperator(char name, NodeType type) throws CalculationException {
-        return getOperator(new String(new char[]{name}), type);
+        Trie trie = getTrie(type);
+        int node = trie == null ? -1 : trie.next(Trie.ROOT, name);
+        OperatorInfo opInfo = node < 0 ? null : trie.info(node);
+        if (opInfo == null && type == NodeType.VALUE) {
+            throw new CalculationException("No number as operators.");
+        }
+        return newNode(opInfo, opInfo == null ? String.valueOf(name) : opInfo.name, type);
+    }
+
+    /**
+     * Returns the trie of the names of the operators of a type.
+     * @param type {@link NodeType#BINARY} or {@link NodeType#UNARY}
+     * @return the trie, or {@code null} for other types
+     */
+    static Trie getTrie(NodeType type) {
+        switch (type) {
+            case BINARY:
+                return binaryTrie;
+            case UNARY:
+                return prefixTrie;
+            default:
+                return null;
+        }
     }
 
+    /**
+     * Registers an operator under its name.
+     * <p>Formulas using the operator are calculated from the truth table built when the {@link OperatorInfo} was
+     * created, so its {@link OperatorInfo.OperatorCalculation} is never called during a calculation; see
+     * {@link OperatorInfo}.</p>
+     * @param info the operator
+     */
     public static void registerOperator(OperatorInfo info) {
         registerOperator(info.name, info, info.type);
     }
 
     public static void registerOperator(String name, OperatorInfo opInfo, NodeType type) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("The name of an operator must not be empty.");
+        }
         switch (type) {
             case BINARY:
                 binaryMap.put(name, opInfo);
+                binaryTrie = new Trie(binaryMap);
                 break;
             case UNARY:
                 prefixMap.put(name, opInfo);
+                prefixTrie = new Trie(prefixMap);
                 break;
             case VALUE:
                 throw new IllegalArgumentException("It is not allowed to register number nodes.");
         }
     }
 
+    /**
+     * An immutable trie of operator names. Nodes are numbered, the root being {@link Trie#ROOT}; the children of a
+     * node are kept sorted by character, and the children of the root are also indexed directly for ASCII
+     * characters.
+     */
+    static final class Trie {
+
+        static final int ROOT = 0;
+
+        private final int[] asciiChildren = new int[128];
+        private char[][] keys = new char[16][];
+        private int[][] children = new int[16][];
+        /** The operator whose name ends at each node, or {@code null}. */
+        private OperatorInfo[] infos = new OperatorInfo[16];
+        private int size = 1;
+
+        private Trie(Map<String, OperatorInfo> operators) {
+            Arrays.fill(asciiChildren, -1);
+            keys[ROOT] = new char[0];
+            children[ROOT] = new int[0];
+            for (Map.Entry<String, OperatorInfo> entry : operators.entrySet()) {
+                int node = ROOT;
+                for (char c : entry.getKey().toCharArray()) {
+                    int child = next(node, c);
+                    node = child >= 0 ? child : addChild(node, c);
+                }
+                infos[node] = entry.getValue();
+            }
+        }
+
+        private int addChild(int node, char c) {
+            if (size == infos.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+                children = Arrays.copyOf(children, size << 1);
+                infos = Arrays.copyOf(infos, size << 1);
+            }
+            int child = size ++;
+            keys[child] = new char[0];
+            children[child] = new int[0];
+            char[] nodeKeys = keys[node];
+            int position = -Arrays.binarySearch(nodeKeys, c) - 1;
+            char[] newKeys = new char[nodeKeys.length + 1];
+            int[] newChildren = new int[nodeKeys.length + 1];
+            System.arraycopy(nodeKeys, 0, newKeys, 0, position);
+            System.arraycopy(children[node], 0, newChildren, 0, position);
+            newKeys[position] = c;
+            newChildren[position] = child;
+            System.arraycopy(nodeKeys, position, newKeys, position + 1, nodeKeys.length - position);
+            System.arraycopy(children[node], position, newChildren, position + 1, nodeKeys.length - position);
+            keys[node] = newKeys;
+            children[node] = newChildren;
+            if (node == ROOT && c < 128) {
+                asciiChildren[c] = child;
+            }
+            return child;
+        }
 
+        /**
+         * Follows a character from a node.
+         * @param node the node
+         * @param c the character
+         * @return the child, or -1 if no name continues with the character
+         */
+        int next(int node, char c) {
+            if (node == ROOT && c < 128) {
+                return asciiChildren[c];
+            }
+            int position = Arrays.binarySearch(keys[node], c);
+            return position >= 0 ? children[node][position] : -1;
+        }
 
+        /**
+         * Returns the operator whose name ends at a node.
+         * @param node the node
+         * @return the operator, or {@code null} if no name ends at the node
+         */
+        OperatorInfo info(int node) {
+            return infos[node];
+        }
+    }
 }
@@ -0,0 +1,194 @@
+package ml.rhacoal.polishnotation;
+
+import ml.rhacoal.polishnotation.program.Program;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of compiled formulas, keyed by the normalized expression text.
+ * <p>Only immutable {@link Program}s are cached. The node tree and the identifier nodes parsed for a program are
+ * dropped once it is compiled, so values set by {@link ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode#setValue(boolean)}
+ * or changes made by {@code updateLeftChild}/{@code updateRightChild} never reach another user of the cache.</p>
+ * <p>The cache is split into segments, each guarded by its own lock and evicting its least recently used entry
+ * when full, so concurrent lookups of different expressions rarely contend. Expressions are parsed and compiled
+ * outside the locks; two threads missing the same expression at the same time may both compile it. Expressions
+ * that cannot be parsed are not cached.</p>
+ */
+public final class ParseCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache holding at most about {@code maxSize} programs.
+     * The bound is split evenly between the segments, so it is rounded up to a multiple of the segment count.
+     * @param maxSize the maximum number of programs
+     */
+    public ParseCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        int segmentSize = (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        this.maxSize = segmentSize * SEGMENT_COUNT;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; ++ i) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the compiled program of an expression, parsing and compiling it on a miss.
+     * @see Program#compile(Calculator.Result)
+     * @param expression the expression
+     * @return the compiled program, shared with every other caller of the same expression
+     * @throws CalculationException if the expression cannot be parsed or compiled
+     */
+    public Program get(String expression) throws CalculationException {
+        String key = normalize(expression);
+        Segment segment = segments[(key.hashCode() ^ (key.hashCode() >>> 16)) & (SEGMENT_COUNT - 1)];
+        Program program = segment.get(key);
+        if (program != null) {
+            hits.increment();
+            return program;
+        }
+        misses.increment();
+        return segment.putIfAbsent(key, Calculator.calculates(key).compile());
+    }
+
+    /**
+     * Removes all the programs. The statistics are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of programs in the cache.
+     * @return the number of programs
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCache{size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + '}';
+    }
+
+    /**
+     * Replaces each run of blanks with a single space, so expressions differing only in spacing share an entry.
+     * Runs at either end of the expression and next to a parenthesis are dropped, since the parser reads a
+     * parenthesis as a token of its own and skips blanks before every token. Other blanks are kept: they may
+     * separate the characters of an operator or two identifiers, which makes the expression invalid.
+     * @param expression the expression
+     * @return the normalized expression
+     */
+    static String normalize(String expression) {
+        StringBuilder builder = null;
+        int length = expression.length();
+        for (int i = 0; i < length; ++ i) {
+            char c = expression.charAt(i);
+            if (!isBlank(c)) {
+                if (builder != null) {
+                    builder.append(c);
+                }
+                continue;
+            }
+            int next = i + 1;
+            while (next < length && isBlank(expression.charAt(next))) {
+                ++ next;
+            }
+            boolean kept = i > 0 && next < length
+                    && !isParenthesis(expression.charAt(i - 1)) && !isParenthesis(expression.charAt(next));
+            if (builder == null && (!kept || c != ' ' || next != i + 1)) {
+                builder = new StringBuilder(length).append(expression, 0, i);
+            }
+            if (kept && builder != null) {
+                builder.append(' ');
+            }
+            i = next - 1;
+        }
+        return builder == null ? expression : builder.toString();
+    }
+
+    private static boolean isParenthesis(char c) {
+        return c == '(' || c == ')';
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\n';
+    }
+
+    /**
+     * An access-ordered map evicting its eldest entry when full. Guarded by its own monitor.
+     */
+    private final class Segment {
+
+        private final LinkedHashMap<String, Program> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private synchronized Program get(String key) {
+            return entries.get(key);
+        }
+
+        /**
+         * Adds a program unless another thread added one for the same key first.
+         * @return the program cached for the key
+         */
+        private synchronized Program putIfAbsent(String key, Program program) {
+            Program existing = entries.putIfAbsent(key, program);
+            if (existing != null) {
+                return existing;
+            }
+            if (entries.size() > capacity) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+            return program;
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+}
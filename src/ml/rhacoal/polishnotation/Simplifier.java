@@ -0,0 +1,323 @@
+package ml.rhacoal.polishnotation;
+
+import ml.rhacoal.polishnotation.node.NodeBase;
+import ml.rhacoal.polishnotation.node.NodeType;
+import ml.rhacoal.polishnotation.node.operatornode.*;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Rewrites a formula into a smaller equivalent one before it is calculated or compiled.
+ * <p>The rules are applied bottom-up:</p>
+ * <ul>
+ *     <li>constant folding: an operator with a {@code T}/{@code F} operand is reduced by its truth table, so
+ *     {@code a&T} becomes {@code a} and {@code a|T} becomes {@code T};</li>
+ *     <li>idempotence and complement: an operator whose operands are equal, or one the negation of the other, is
+ *     reduced the same way, so {@code a&a} becomes {@code a} and {@code a|!a} becomes {@code T};</li>
+ *     <li>double negation: {@code !!a} becomes {@code a};</li>
+ *     <li>absorption: {@code a&(a|b)} and {@code a|(a&b)} become {@code a};</li>
+ *     <li>De Morgan: {@code !a&!b} becomes {@code !(a|b)} and {@code !a|!b} becomes {@code !(a&b)}.</li>
+ * </ul>
+ * <p>Every {@link ParenthesisNode} of the input is dropped; the result only has the parenthesis nodes needed by
+ * {@link NodeBase#toExpression()} to print it with the right precedence. Equal subexpressions of the result are
+ * shared as with {@link Calculator#calculates(String, boolean)}. Operators other than those created from an
+ * {@link OperatorInfo} are kept as they are. The input is not modified.</p>
+ */
+public final class Simplifier {
+
+    private static final OperatorInfo DEFAULT_NOT =
+            OperatorInfo.createOperatorInfo("!", (n, r) -> !r.calculate(), (n, r) -> ~r, NodeType.UNARY, 1000);
+
+    private static final int AND = 0b1000;
+    private static final int OR = 0b1110;
+
+    private final OperatorInfo not, and, or;
+    private final IdentityHashMap<NodeBase, NodeBase> simplified = new IdentityHashMap<>();
+    private final HashMap<Key, OperatorNode> created = new HashMap<>();
+
+    private Simplifier() {
+        OperatorInfo not = OperatorRegistry.getOperatorInfo("!", NodeType.UNARY);
+        this.not = not != null && !not.special && (not.truthTable & 3) == 1 ? not : DEFAULT_NOT;
+        this.and = registered("&", AND);
+        this.or = registered("|", OR);
+    }
+
+    private static OperatorInfo registered(String name, int truthTable) {
+        OperatorInfo info = OperatorRegistry.getOperatorInfo(name, NodeType.BINARY);
+        return info != null && !info.special && info.truthTable == truthTable ? info : null;
+    }
+
+    /**
+     * Simplifies a formula.
+     * @param nodeBase the formula
+     * @return the root of the simplified formula, which shares the proposition nodes of the input
+     */
+    public static NodeBase simplify(NodeBase nodeBase) {
+        Simplifier simplifier = new Simplifier();
+        NodeBase result = simplifier.simplifyNode(nodeBase);
+        simplifier.parenthesize();
+        return result;
+    }
+
+    /**
+     * Simplifies the result of {@link Calculator#calculates(String)}.
+     * @param result the parsed formula
+     * @return the simplified formula with the same identifier map, so the truth table keeps every proposition
+     */
+    public static Calculator.Result simplify(Calculator.Result result) {
+        return new Calculator.Result(simplify(result.root), result.identifierMap);
+    }
+
+    /**
+     * Simplifies a node after its operands, with an explicit stack so that formulas of any depth can be simplified.
+     */
+    private NodeBase simplifyNode(NodeBase root) {
+        ArrayDeque<NodeBase> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            NodeBase node = pending.peek();
+            if (simplified.containsKey(node)) {
+                pending.pop();
+                continue;
+            }
+            NodeBase operand = unsimplifiedOperand(node);
+            if (operand != null) {
+                pending.push(operand);
+                continue;
+            }
+            pending.pop();
+            simplified.put(node, rewrite(node));
+        }
+        return simplified.get(root);
+    }
+
+    /**
+     * Returns an operand of a node that is not simplified yet, or {@code null} if the node can be rewritten.
+     */
+    private NodeBase unsimplifiedOperand(NodeBase node) {
+        if (node instanceof ParenthesisNode || node instanceof DefaultUnaryImpl) {
+            NodeBase right = ((OperatorNode) node).getRightChild();
+            return simplified.containsKey(right) ? null : right;
+        }
+        if (node instanceof DefaultBinaryImpl) {
+            NodeBase left = ((OperatorNode) node).getLeftChild(), right = ((OperatorNode) node).getRightChild();
+            return !simplified.containsKey(left) ? left : simplified.containsKey(right) ? null : right;
+        }
+        return null;
+    }
+
+    /**
+     * Rewrites a node whose operands are simplified.
+     */
+    private NodeBase rewrite(NodeBase node) {
+        if (node instanceof ParenthesisNode) {
+            return simplified.get(((ParenthesisNode) node).getRightChild());
+        }
+        if (node instanceof DefaultUnaryImpl) {
+            OperatorInfo info = ((DefaultUnaryImpl) node).getOperatorInfo();
+            NodeBase operand = simplified.get(((DefaultUnaryImpl) node).getRightChild());
+            if ((info.truthTable & 3) == 1) {
+                return negate(operand, info);
+            }
+            return unary(info.truthTable, operand);
+        }
+        if (node instanceof DefaultBinaryImpl) {
+            OperatorInfo info = ((DefaultBinaryImpl) node).getOperatorInfo();
+            return binary(info,
+                    simplified.get(((DefaultBinaryImpl) node).getLeftChild()),
+                    simplified.get(((DefaultBinaryImpl) node).getRightChild()));
+        }
+        return node; // propositions and operators of unknown semantics
+    }
+
+    /**
+     * Applies a unary operator given by its truth table.
+     */
+    private NodeBase unary(int truthTable, NodeBase operand) {
+        switch (truthTable & 3) {
+            case 0: return PropositionIdentifierNode.constant(false);
+            case 1: return negate(operand, not);
+            case 2: return operand;
+            default: return PropositionIdentifierNode.constant(true);
+        }
+    }
+
+    private NodeBase negate(NodeBase operand, OperatorInfo info) {
+        Boolean value = constantValue(operand);
+        if (value != null) {
+            return PropositionIdentifierNode.constant(!value);
+        }
+        if (isNegation(operand)) {
+            return ((OperatorNode) operand).getRightChild();
+        }
+        return create(info, null, operand);
+    }
+
+    private NodeBase binary(OperatorInfo info, NodeBase left, NodeBase right) {
+        int truthTable = info.truthTable;
+        Boolean value = constantValue(left);
+        if (value != null) {
+            return unary(truthTable >>> (value ? 2 : 0), right);
+        }
+        value = constantValue(right);
+        if (value != null) {
+            int shift = value ? 1 : 0;
+            return unary(((truthTable >>> shift) & 1) | ((truthTable >>> (shift + 1)) & 2), left);
+        }
+        if (left == right) {
+            return unary((truthTable & 1) | ((truthTable >>> 2) & 2), left);
+        }
+        if (isNegationOf(left, right) || isNegationOf(right, left)) {
+            // rows (0, 1) and (1, 0) of the truth table, as a function of the left operand
+            return unary(((truthTable >>> 1) & 1) | ((truthTable >>> 1) & 2), left);
+        }
+        if (truthTable == AND || truthTable == OR) {
+            int dual = truthTable == AND ? OR : AND;
+            if (absorbs(left, right, dual)) {
+                return left;
+            }
+            if (absorbs(right, left, dual)) {
+                return right;
+            }
+            OperatorInfo dualInfo = truthTable == AND ? or : and;
+            if (dualInfo != null && isNegation(left) && isNegation(right)) {
+                NodeBase inner = binary(dualInfo,
+                        ((OperatorNode) left).getRightChild(), ((OperatorNode) right).getRightChild());
+                return negate(inner, ((DefaultUnaryImpl) left).getOperatorInfo());
+            }
+        }
+        return create(info, left, right);
+    }
+
+    /**
+     * Checks whether {@code node} absorbs {@code other}, i.e. {@code other} applies the dual operator to
+     * {@code node} and something else.
+     */
+    private static boolean absorbs(NodeBase node, NodeBase other, int dual) {
+        if (!(other instanceof DefaultBinaryImpl) || ((DefaultBinaryImpl) other).getOperatorInfo().truthTable != dual) {
+            return false;
+        }
+        return ((DefaultBinaryImpl) other).getLeftChild() == node || ((DefaultBinaryImpl) other).getRightChild() == node;
+    }
+
+    private static Boolean constantValue(NodeBase node) {
+        if (node == PropositionIdentifierNode.constant(true)) {
+            return Boolean.TRUE;
+        }
+        if (node == PropositionIdentifierNode.constant(false)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    private static boolean isNegation(NodeBase node) {
+        return node instanceof DefaultUnaryImpl && (((DefaultUnaryImpl) node).getOperatorInfo().truthTable & 3) == 1;
+    }
+
+    private static boolean isNegationOf(NodeBase node, NodeBase operand) {
+        return isNegation(node) && ((DefaultUnaryImpl) node).getRightChild() == operand;
+    }
+
+    /**
+     * Returns the node of an operator applied to simplified operands, sharing it with an equal node created before.
+     * Since the operands are shared as well, equal subexpressions are always the same node.
+     */
+    private OperatorNode create(OperatorInfo info, NodeBase left, NodeBase right) {
+        Key key = new Key(info, left, right);
+        OperatorNode node = created.get(key);
+        if (node == null) {
+            node = info.type == NodeType.BINARY ? new DefaultBinaryImpl(info) : new DefaultUnaryImpl(info);
+            node.updateLeftChild(left);
+            node.updateRightChild(right);
+            if (left instanceof OperatorNode && ((OperatorNode) left).getFather() == null) {
+                ((OperatorNode) left).updateFather(node);
+            }
+            if (right instanceof OperatorNode && ((OperatorNode) right).getFather() == null) {
+                ((OperatorNode) right).updateFather(node);
+            }
+            created.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Wraps the operands of the created nodes in parenthesis nodes where the precedence requires it.
+     */
+    private void parenthesize() {
+        IdentityHashMap<NodeBase, ParenthesisNode> parentheses = new IdentityHashMap<>();
+        for (OperatorNode node : new ArrayList<>(created.values())) {
+            NodeBase left = node.getLeftChild(), right = node.getRightChild();
+            if (node.type() == NodeType.BINARY) {
+                if (needsParentheses(left, node.precedence(), false)) {
+                    node.updateLeftChild(wrap(left, parentheses));
+                }
+                if (needsParentheses(right, node.precedence(), true)) {
+                    node.updateRightChild(wrap(right, parentheses));
+                }
+            } else if (right.type() == NodeType.BINARY && right.precedence() <= node.precedence()) {
+                node.updateRightChild(wrap(right, parentheses));
+            }
+        }
+    }
+
+    /**
+     * Checks whether an operand of a binary operator is parsed differently without parentheses. Binary operators
+     * of the same precedence are calculated from left to right, so only the right operand needs them.
+     */
+    private static boolean needsParentheses(NodeBase operand, int precedence, boolean right) {
+        switch (operand.type()) {
+            case BINARY:
+                return operand.precedence() < precedence || (right && operand.precedence() == precedence);
+            case UNARY:
+                return operand.precedence() < precedence;
+            default:
+                return false;
+        }
+    }
+
+    private static ParenthesisNode wrap(NodeBase node, IdentityHashMap<NodeBase, ParenthesisNode> parentheses) {
+        ParenthesisNode parenthesis = parentheses.get(node);
+        if (parenthesis == null) {
+            parenthesis = new ParenthesisNode();
+            parenthesis.close();
+            parenthesis.updateRightChild(node);
+            ((OperatorNode) node).updateFather(parenthesis);
+            parentheses.put(node, parenthesis);
+        }
+        return parenthesis;
+    }
+
+    /**
+     * Identifies a created node by its operator and the identities of its operands.
+     */
+    private static final class Key {
+
+        private final OperatorInfo info;
+        private final NodeBase left, right;
+
+        private Key(OperatorInfo info, NodeBase left, NodeBase right) {
+            this.info = info;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return info == other.info && left == other.left && right == other.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(info) * 31 + System.identityHashCode(left)) * 31
+                    + System.identityHashCode(right);
+        }
+    }
+}
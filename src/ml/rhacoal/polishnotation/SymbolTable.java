@@ -0,0 +1,91 @@
+package ml.rhacoal.polishnotation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the names of propositions into dense integer IDs shared by every formula parsed with the table.
+ * <p>IDs are given in the order names are first interned, starting from 0, and never change. Formulas parsed with
+ * {@link Calculator#calculates(CharSequence, SymbolTable)} index their propositions in increasing order of their
+ * IDs, so formulas over a common vocabulary can be calculated against one assignment indexed by ID, see
+ * {@link Formula#evaluateSymbols(java.util.BitSet)}.</p>
+ * <p>A table may be shared between threads. Looking up a name already interned takes no lock.</p>
+ */
+public final class SymbolTable {
+
+    private static final SymbolTable GLOBAL = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * The names by ID. Replaced by a larger copy when full; a name is stored before its ID is published.
+     */
+    private volatile String[] names = new String[16];
+    private volatile int size;
+
+    /**
+     * Returns the table shared by the whole application.
+     * @return the global table
+     */
+    public static SymbolTable global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the ID of a name, giving it the next ID if it has none yet.
+     * @param name the name
+     * @return the ID
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] names = this.names;
+            int size = this.size;
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size << 1);
+            }
+            names[size] = name;
+            this.names = names;
+            this.size = size + 1;
+            ids.put(name, size);
+            return size;
+        }
+    }
+
+    /**
+     * Returns the ID of a name without interning it.
+     * @param name the name
+     * @return the ID, or -1 if the name is not interned
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of an ID.
+     * @param id the ID
+     * @return the name
+     * @throws IndexOutOfBoundsException if no name has the ID
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Symbol " + id + " of " + size);
+        }
+        return names[id];
+    }
+
+    /**
+     * Returns the number of names interned, which is also the smallest ID not given yet.
+     * @return the number of names
+     */
+    public int size() {
+        return size;
+    }
+}
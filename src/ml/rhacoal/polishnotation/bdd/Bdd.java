@@ -0,0 +1,211 @@
+package ml.rhacoal.polishnotation.bdd;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.NodeBase;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import ml.rhacoal.polishnotation.program.Program;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * A propositional formula represented as a reduced ordered binary decision diagram.
+ * <p>Unlike {@link Calculator.TruthTable}, a BDD is not built by enumerating the assignments, so satisfiability,
+ * tautology, model counting and normal forms are available for formulas with far more propositions, as long as
+ * the diagram stays small. The size of the diagram depends heavily on the order of the propositions.</p>
+ * @see BddManager
+ */
+public final class Bdd {
+
+    private final BddManager manager;
+    private final int root;
+    private final String[] variables;
+
+    private Bdd(BddManager manager, int root, String[] variables) {
+        this.manager = manager;
+        this.root = root;
+        this.variables = variables;
+    }
+
+    /**
+     * Builds the BDD of the result of {@link Calculator#calculates(String)}.
+     * Propositions are ordered by their first occurrence in the formula, which keeps related propositions close.
+     * @param result the parsed formula
+     * @return the BDD
+     * @throws CalculationException if the formula contains an operator that cannot be compiled
+     */
+    public static Bdd of(Calculator.Result result) throws CalculationException {
+        Program program = result.compile();
+        int[] order = new int[program.getVariableCount()];
+        Arrays.fill(order, -1);
+        int next = 0;
+        for (int i = 0; i < program.size(); ++ i) {
+            if (program.getOpcode(i) == Program.VARIABLE && order[program.getOperand(i)] == -1) {
+                order[program.getOperand(i)] = next ++;
+            }
+        }
+        // propositions left out of the formula, e.g. by Result#simplify(), go below the ones it uses
+        for (int i = 0; i < order.length; ++ i) {
+            if (order[i] == -1) {
+                order[i] = next ++;
+            }
+        }
+        String[] names = program.getVariables();
+        String[] variables = new String[names.length];
+        for (int i = 0; i < names.length; ++ i) {
+            variables[order[i]] = names[i];
+        }
+        BddManager manager = new BddManager(variables.length);
+        return new Bdd(manager, manager.build(program, order), variables);
+    }
+
+    /**
+     * Builds the BDD of a {@link NodeBase} with the given order of propositions.
+     * @param nodeBase the node base
+     * @param orderedPropositions list of propositions in order, the first being the top of the diagram
+     * @return the BDD
+     * @throws CalculationException if the formula contains an operator that cannot be compiled, or a proposition
+     * that is not in the list
+     */
+    public static Bdd of(NodeBase nodeBase, List<PropositionIdentifierNode> orderedPropositions)
+            throws CalculationException {
+        Program program = Program.compile(nodeBase, orderedPropositions);
+        int[] order = new int[program.getVariableCount()];
+        for (int i = 0; i < order.length; ++ i) {
+            order[i] = i;
+        }
+        BddManager manager = new BddManager(order.length);
+        return new Bdd(manager, manager.build(program, order), program.getVariables());
+    }
+
+    /**
+     * Checks whether two formulas are equivalent, i.e. have the same result under every assignment of the
+     * propositions of both.
+     * @param a a formula
+     * @param b another formula
+     * @return whether the formulas are equivalent
+     * @throws CalculationException if a formula contains an operator that cannot be compiled
+     */
+    public static boolean equivalent(Calculator.Result a, Calculator.Result b) throws CalculationException {
+        TreeMap<String, PropositionIdentifierNode> union = new TreeMap<>();
+        union.putAll(a.identifierMap);
+        union.putAll(b.identifierMap);
+        String[] variables = union.keySet().toArray(new String[0]);
+        Program programA = a.compile(), programB = b.compile();
+        BddManager manager = new BddManager(variables.length);
+        return manager.build(programA, indicesIn(variables, programA))
+                == manager.build(programB, indicesIn(variables, programB));
+    }
+
+    private static int[] indicesIn(String[] variables, Program program) {
+        String[] names = program.getVariables();
+        int[] indices = new int[names.length];
+        for (int i = 0; i < names.length; ++ i) {
+            indices[i] = Arrays.binarySearch(variables, names[i]);
+        }
+        return indices;
+    }
+
+    public boolean isSatisfiable() {
+        return root != BddManager.FALSE;
+    }
+
+    public boolean isTautology() {
+        return root == BddManager.TRUE;
+    }
+
+    public boolean isContradiction() {
+        return root == BddManager.FALSE;
+    }
+
+    /**
+     * Counts the assignments of the propositions that satisfy the formula.
+     * @return the number of models
+     */
+    public BigInteger satCount() {
+        return manager.satCount(root);
+    }
+
+    /**
+     * Finds an assignment that satisfies the formula.
+     * @return the values of the propositions in the order of {@link Bdd#getVariables()}, or {@code null} if the
+     * formula is not satisfiable
+     */
+    public boolean[] anySat() {
+        return manager.anySat(root);
+    }
+
+    /**
+     * Returns the names of the propositions in the order of the diagram.
+     * @return a copy of the names
+     */
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    /**
+     * Returns the number of nodes of the diagram, including the terminals.
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return manager.nodeCount(root);
+    }
+
+    public BddManager getManager() {
+        return manager;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Generates a disjunctive normal form from the paths of the diagram. The terms are disjoint but not minimal.
+     * @return the formula, which can be parsed by {@link Calculator#calculates(String)}
+     */
+    public String toDisjunctiveNormalForm() {
+        if (root <= BddManager.TRUE) {
+            return root == BddManager.TRUE ? "T" : "F";
+        }
+        return toNormalForm(true, "&", "|");
+    }
+
+    /**
+     * Generates a conjunctive normal form from the paths of the diagram.
+     * @return the formula, which can be parsed by {@link Calculator#calculates(String)}
+     */
+    public String toConjunctiveNormalForm() {
+        if (root <= BddManager.TRUE) {
+            return root == BddManager.TRUE ? "T" : "F";
+        }
+        return toNormalForm(false, "|", "&");
+    }
+
+    private String toNormalForm(boolean value, String inner, String outer) {
+        StringBuilder builder = new StringBuilder();
+        manager.forEachCube(root, value, cube -> {
+            if (builder.length() > 0) {
+                builder.append(outer);
+            }
+            builder.append('(');
+            boolean first = true;
+            for (int i = 0; i < cube.length; ++ i) {
+                if (cube[i] == -1) {
+                    continue;
+                }
+                if (!first) {
+                    builder.append(inner);
+                }
+                // a clause of the conjunctive normal form negates its path
+                if ((cube[i] == 1) != value) {
+                    builder.append('!');
+                }
+                builder.append(variables[i]);
+                first = false;
+            }
+            builder.append(')');
+        });
+        return builder.toString();
+    }
+}
@@ -0,0 +1,399 @@
+package ml.rhacoal.polishnotation.bdd;
+
+import ml.rhacoal.polishnotation.program.Program;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Holds the nodes of reduced ordered binary decision diagrams (ROBDD) over a fixed number of variables.
+ * <p>A BDD is referred to by the {@code int} id of its root node. {@link BddManager#FALSE} and
+ * {@link BddManager#TRUE} are the two terminals. Nodes are hash-consed in a unique table, so two BDDs of the same
+ * manager represent the same function if and only if their ids are equal. Variable {@code 0} is the top of the
+ * order.</p>
+ * <p>All operations are reduced to if-then-else ({@link BddManager#ite(int, int, int)}), whose results are kept in a
+ * computed table. An instance is not thread-safe.</p>
+ */
+public final class BddManager {
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int CACHE_SIZE = 1 << 16;
+    private static final int TERMINAL_LEVEL = Integer.MAX_VALUE;
+
+    private final int variableCount;
+
+    // node table
+    private int[] levels;
+    private int[] lows;
+    private int[] highs;
+    private int[] next;
+    private int size;
+
+    // unique table, buckets hold node ids chained by next[], 0 means empty
+    private int[] buckets;
+
+    // computed table of ite
+    private final int[] cacheF = new int[CACHE_SIZE];
+    private final int[] cacheG = new int[CACHE_SIZE];
+    private final int[] cacheH = new int[CACHE_SIZE];
+    private final int[] cacheResult = new int[CACHE_SIZE];
+
+    /**
+     * Constructs a manager of the given number of variables.
+     * @param variableCount the number of variables
+     */
+    public BddManager(int variableCount) {
+        this.variableCount = variableCount;
+        levels = new int[INITIAL_CAPACITY];
+        lows = new int[INITIAL_CAPACITY];
+        highs = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        buckets = new int[INITIAL_CAPACITY];
+        levels[FALSE] = levels[TRUE] = TERMINAL_LEVEL;
+        size = 2;
+        Arrays.fill(cacheF, -1);
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Returns the number of nodes created by this manager, including the terminals.
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the variable of a node.
+     * @param node the node
+     * @return the index of the variable, or {@link Integer#MAX_VALUE} for terminals
+     */
+    public int getVariable(int node) {
+        return levels[node];
+    }
+
+    /**
+     * Returns the child of a node when its variable is false.
+     * @param node a non-terminal node
+     * @return the low child
+     */
+    public int getLow(int node) {
+        return lows[node];
+    }
+
+    /**
+     * Returns the child of a node when its variable is true.
+     * @param node a non-terminal node
+     * @return the high child
+     */
+    public int getHigh(int node) {
+        return highs[node];
+    }
+
+    /**
+     * Returns the BDD of a single variable.
+     * @param variable the index of the variable
+     * @return the BDD
+     */
+    public int variable(int variable) {
+        if (variable < 0 || variable >= variableCount) {
+            throw new IndexOutOfBoundsException("Variable " + variable + " out of " + variableCount);
+        }
+        return make(variable, FALSE, TRUE);
+    }
+
+    /**
+     * Returns the node {@code (level ? high : low)}, creating it if it doesn't exist.
+     */
+    private int make(int level, int low, int high) {
+        if (low == high) {
+            return low;
+        }
+        int bucket = hash(level, low, high) & (buckets.length - 1);
+        for (int node = buckets[bucket]; node != 0; node = next[node]) {
+            if (levels[node] == level && lows[node] == low && highs[node] == high) {
+                return node;
+            }
+        }
+        if (size == levels.length) {
+            grow();
+            bucket = hash(level, low, high) & (buckets.length - 1);
+        }
+        int node = size ++;
+        levels[node] = level;
+        lows[node] = low;
+        highs[node] = high;
+        next[node] = buckets[bucket];
+        buckets[bucket] = node;
+        return node;
+    }
+
+    private void grow() {
+        int capacity = levels.length << 1;
+        levels = Arrays.copyOf(levels, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        highs = Arrays.copyOf(highs, capacity);
+        next = Arrays.copyOf(next, capacity);
+        buckets = new int[capacity];
+        for (int node = 2; node < size; ++ node) {
+            int bucket = hash(levels[node], lows[node], highs[node]) & (capacity - 1);
+            next[node] = buckets[bucket];
+            buckets[bucket] = node;
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * Calculates {@code f ? g : h}.
+     * @param f the condition
+     * @param g the result when {@code f} is true
+     * @param h the result when {@code f} is false
+     * @return the BDD of the result
+     */
+    public int ite(int f, int g, int h) {
+        if (f == TRUE) {
+            return g;
+        }
+        if (f == FALSE) {
+            return h;
+        }
+        if (g == h) {
+            return g;
+        }
+        if (g == TRUE && h == FALSE) {
+            return f;
+        }
+        int slot = hash(f, g, h) & (CACHE_SIZE - 1);
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h) {
+            return cacheResult[slot];
+        }
+        int level = Math.min(levels[f], Math.min(levels[g], levels[h]));
+        int high = ite(cofactor(f, level, true), cofactor(g, level, true), cofactor(h, level, true));
+        int low = ite(cofactor(f, level, false), cofactor(g, level, false), cofactor(h, level, false));
+        int result = make(level, low, high);
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    private int cofactor(int node, int level, boolean value) {
+        if (levels[node] != level) {
+            return node;
+        }
+        return value ? highs[node] : lows[node];
+    }
+
+    public int not(int f) {
+        return ite(f, FALSE, TRUE);
+    }
+
+    public int and(int f, int g) {
+        return ite(f, g, FALSE);
+    }
+
+    public int or(int f, int g) {
+        return ite(f, TRUE, g);
+    }
+
+    public int xor(int f, int g) {
+        return ite(f, not(g), g);
+    }
+
+    /**
+     * Applies a binary operator given by its truth table.
+     * @see ml.rhacoal.polishnotation.node.operatornode.OperatorInfo#truthTable
+     * @param truthTable bit {@code (l << 1) | r} holds the result for {@code l} and {@code r}
+     * @param f the left operand
+     * @param g the right operand
+     * @return the BDD of the result
+     */
+    public int apply(int truthTable, int f, int g) {
+        return ite(f, applyUnary(truthTable >>> 2, g), applyUnary(truthTable, g));
+    }
+
+    /**
+     * Applies a unary operator given by its truth table.
+     * @param truthTable bit {@code r} holds the result for {@code r}
+     * @param f the operand
+     * @return the BDD of the result
+     */
+    public int applyUnary(int truthTable, int f) {
+        switch (truthTable & 3) {
+            case 0: return FALSE;
+            case 1: return not(f);
+            case 2: return f;
+            default: return TRUE;
+        }
+    }
+
+    /**
+     * Builds the BDD of a compiled formula.
+     * @param program the program to build from
+     * @param variables the variable of this manager for each proposition index of the program, which determines the
+     *                  variable order
+     * @return the BDD of the formula
+     */
+    public int build(Program program, int[] variables) {
+        int[] stack = new int[program.getMaxDepth()];
+        int[] slots = new int[program.getSlotCount()];
+        int top = -1;
+        for (int i = 0; i < program.size(); ++ i) {
+            int operand = program.getOperand(i);
+            switch (program.getOpcode(i)) {
+                case Program.VARIABLE:
+                    stack[++ top] = variable(variables[operand]);
+                    break;
+                case Program.STORE:
+                    slots[operand] = stack[top];
+                    break;
+                case Program.LOAD:
+                    stack[++ top] = slots[operand];
+                    break;
+                case Program.CONSTANT:
+                    stack[++ top] = operand != 0 ? TRUE : FALSE;
+                    break;
+                case Program.NOT:
+                    stack[top] = not(stack[top]);
+                    break;
+                case Program.UNARY_TABLE:
+                    stack[top] = applyUnary(operand, stack[top]);
+                    break;
+                default: // binary operators carry their truth table as the operand
+                    -- top;
+                    stack[top] = apply(operand, stack[top], stack[top + 1]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Counts the assignments of all the variables of this manager that satisfy the BDD.
+     * @param f the BDD
+     * @return the number of models
+     */
+    public BigInteger satCount(int f) {
+        return satCount(f, new HashMap<>()).shiftLeft(Math.min(levels[f], variableCount));
+    }
+
+    /**
+     * Counts the models of {@code f} over the variables from its own level downwards.
+     */
+    private BigInteger satCount(int f, HashMap<Integer, BigInteger> memo) {
+        if (f == FALSE) {
+            return BigInteger.ZERO;
+        }
+        if (f == TRUE) {
+            return BigInteger.ONE;
+        }
+        BigInteger count = memo.get(f);
+        if (count == null) {
+            int level = levels[f], low = lows[f], high = highs[f];
+            count = satCount(low, memo).shiftLeft(Math.min(levels[low], variableCount) - level - 1)
+                    .add(satCount(high, memo).shiftLeft(Math.min(levels[high], variableCount) - level - 1));
+            memo.put(f, count);
+        }
+        return count;
+    }
+
+    /**
+     * Finds an assignment that satisfies the BDD. Variables that do not matter are set to false.
+     * @param f the BDD
+     * @return the values of the variables, or {@code null} if {@code f} is {@link BddManager#FALSE}
+     */
+    public boolean[] anySat(int f) {
+        if (f == FALSE) {
+            return null;
+        }
+        boolean[] assignment = new boolean[variableCount];
+        while (f != TRUE) {
+            if (lows[f] != FALSE) {
+                f = lows[f];
+            } else {
+                assignment[levels[f]] = true;
+                f = highs[f];
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Counts the nodes reachable from a BDD, including the terminals.
+     * @param f the BDD
+     * @return the number of nodes
+     */
+    public int nodeCount(int f) {
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size];
+        int top = 0, count = 0;
+        stack[0] = f;
+        while (top >= 0) {
+            int node = stack[top --];
+            if (visited[node]) {
+                continue;
+            }
+            visited[node] = true;
+            ++ count;
+            if (node > TRUE) {
+                stack[++ top] = lows[node];
+                stack[++ top] = highs[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Receives the cubes of a BDD.
+     * @see BddManager#forEachCube(int, boolean, CubeConsumer)
+     */
+    @FunctionalInterface
+    public interface CubeConsumer {
+        /**
+         * @param cube the value of each variable: 0 for false, 1 for true and -1 for variables not in the cube.
+         *             The array is reused between calls.
+         */
+        void accept(byte[] cube);
+    }
+
+    /**
+     * Enumerates the paths from the BDD to a terminal. The paths are disjoint cubes, so the cubes of
+     * {@code value == true} form a disjunctive normal form of the BDD, and the negations of the cubes of
+     * {@code value == false} form a conjunctive normal form.
+     * <p>The number of paths may be exponential in the number of nodes.</p>
+     * @param f the BDD
+     * @param value the terminal to find paths to
+     * @param consumer receives the cubes
+     */
+    public void forEachCube(int f, boolean value, CubeConsumer consumer) {
+        byte[] cube = new byte[variableCount];
+        Arrays.fill(cube, (byte) -1);
+        forEachCube(f, value ? TRUE : FALSE, cube, consumer);
+    }
+
+    private void forEachCube(int f, int terminal, byte[] cube, CubeConsumer consumer) {
+        if (f <= TRUE) {
+            if (f == terminal) {
+                consumer.accept(cube);
+            }
+            return;
+        }
+        int level = levels[f];
+        cube[level] = 0;
+        forEachCube(lows[f], terminal, cube, consumer);
+        cube[level] = 1;
+        forEachCube(highs[f], terminal, cube, consumer);
+        cube[level] = -1;
+    }
+}
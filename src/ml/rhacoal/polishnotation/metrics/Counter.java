@@ -0,0 +1,36 @@
+package ml.rhacoal.polishnotation.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic count, such as the number of formulas parsed.
+ * @see Metrics#counter(String)
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long value) {
+        count.add(value);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,88 @@
+package ml.rhacoal.polishnotation.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of non-negative values, such as latencies in nanoseconds or sizes of formulas.
+ * <p>Values are counted in buckets of powers of 2: bucket {@code b} counts the values of {@code b} significant bits,
+ * i.e. from {@code 2^(b-1)} to {@code 2^b - 1}, so recording a value takes a few atomic additions and quantiles are
+ * exact to a factor of 2.</p>
+ * @see Metrics#histogram(String)
+ */
+public final class Histogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(65);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param value the value
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Returns an upper bound of a quantile: the largest value of the bucket holding it.
+     * @param quantile the quantile, from 0 to 1
+     * @return the upper bound, or 0 if no value is recorded
+     */
+    public long getQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int b = 0; b < buckets.length(); ++ b) {
+            seen += buckets.get(b);
+            if (seen >= rank && seen > 0) {
+                return b == 64 ? Long.MAX_VALUE : (1L << b) - 1;
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int b = 0; b < buckets.length(); ++ b) {
+            buckets.set(b, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + Math.round(getMean()) + " p50<=" + getQuantile(0.5)
+                + " p99<=" + getQuantile(0.99) + " max=" + getMax();
+    }
+}
@@ -0,0 +1,94 @@
+package ml.rhacoal.polishnotation.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry of named {@link Counter}s, {@link Histogram}s and gauges describing the work done by the library.
+ * <p>Recording is off unless the system property {@code polishnotation.metrics} is {@code true} or
+ * {@link Metrics#setEnabled(boolean)} turns it on. Instrumented code checks {@link Metrics#isEnabled()} before it
+ * reads the clock, so a disabled registry costs one volatile read per operation. The JFR events of this package are
+ * independent of the registry: they are recorded whenever a flight recording enables them.</p>
+ * <p>Counters and histograms are looked up once, usually into static fields, and may be updated by any number of
+ * threads without locking.</p>
+ */
+public final class Metrics {
+
+    private static volatile boolean enabled = Boolean.getBoolean("polishnotation.metrics");
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter of a name, creating it on first use.
+     * @param name the name
+     * @return the counter
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Returns the histogram of a name, creating it on first use.
+     * @param name the name
+     * @return the histogram
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge, a value read from elsewhere whenever the registry is reported, replacing any gauge of the
+     * same name.
+     * @param name the name
+     * @param gauge supplies the value
+     */
+    public static void gauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Resets every counter and histogram. Gauges are kept.
+     */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Returns the current values, sorted by name: the value of each counter and gauge, and the summary of each
+     * histogram.
+     * @return the values
+     */
+    public static Map<String, Object> snapshot() {
+        TreeMap<String, Object> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.get()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> snapshot.put(name, histogram.toString()));
+        return snapshot;
+    }
+
+    /**
+     * Formats {@link Metrics#snapshot()} with one {@code name value} pair per line.
+     * @return the report
+     */
+    public static String report() {
+        StringBuilder builder = new StringBuilder();
+        snapshot().forEach((name, value) -> builder.append(name).append(' ').append(value).append('\n'));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package ml.rhacoal.polishnotation.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every normal form collected from a truth table: the principal forms as arrays of indices, and the
+ * minimized forms.
+ */
+@Name("ml.rhacoal.polishnotation.NormalForm")
+@Label("Normal Form")
+@Category("Polish Notation")
+@Description("Extraction of a normal form from a truth table")
+@StackTrace(false)
+public final class NormalFormEvent extends Event {
+
+    @Label("Form")
+    @Description("PDNF, PCNF, DNF or CNF")
+    public String form;
+
+    @Label("Propositions")
+    public int propositions;
+
+    @Label("Terms")
+    public long terms;
+}
@@ -0,0 +1,40 @@
+package ml.rhacoal.polishnotation.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every expression parsed by {@link ml.rhacoal.polishnotation.Calculator}, including those that fail.
+ */
+@Name("ml.rhacoal.polishnotation.Parse")
+@Label("Parse")
+@Category("Polish Notation")
+@Description("Parsing of a propositional formula")
+@StackTrace(false)
+public final class ParseEvent extends Event {
+
+    @Label("Characters")
+    public int characters;
+
+    @Label("Tokens")
+    @Description("Propositions, operators and parentheses read")
+    public int tokens;
+
+    @Label("Nodes")
+    @Description("Nodes created, counting every occurrence of a proposition")
+    public int nodes;
+
+    @Label("Propositions")
+    @Description("Distinct propositions")
+    public int propositions;
+
+    @Label("Shared Subexpressions")
+    public boolean shareSubexpressions;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
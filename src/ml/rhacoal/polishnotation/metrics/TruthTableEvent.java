@@ -0,0 +1,31 @@
+package ml.rhacoal.polishnotation.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every truth table calculated by {@link ml.rhacoal.polishnotation.Calculator.TruthTable}.
+ */
+@Name("ml.rhacoal.polishnotation.TruthTable")
+@Label("Truth Table")
+@Category("Polish Notation")
+@Description("Calculation of a truth table")
+@StackTrace(false)
+public final class TruthTableEvent extends Event {
+
+    @Label("Propositions")
+    public int propositions;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Parallel")
+    public boolean parallel;
+}
@@ -0,0 +1,161 @@
+package ml.rhacoal.polishnotation.minimization;
+
+/**
+ * A two-level formula calculated by {@link Minimizer}: a disjunction of conjunctions of literals, or a conjunction
+ * of disjunctions of literals.
+ * <p>Lines of a truth table are numbered as in {@link ml.rhacoal.polishnotation.Calculator.TruthTable}, the first
+ * proposition being the highest bit.</p>
+ */
+public final class Cover {
+
+    private final String[] propositions;
+    /**
+     * The cubes of the lines where a term is true (or a clause is false), as in {@link RowSet}.
+     */
+    private final long[] values, masks;
+    private final boolean conjunctive, minimal;
+
+    Cover(String[] propositions, long[] values, long[] masks, boolean conjunctive, boolean minimal) {
+        this.propositions = propositions.clone();
+        this.values = values;
+        this.masks = masks;
+        this.conjunctive = conjunctive;
+        this.minimal = minimal;
+    }
+
+    /**
+     * Returns the number of terms, i.e. conjunctions of a disjunctive form or disjunctions of a conjunctive form.
+     * @return the number of terms
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the total number of literals of the terms.
+     * @return the number of literals
+     */
+    public int getLiteralCount() {
+        int count = 0;
+        for (long mask : masks) {
+            count += Long.bitCount(mask);
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether this is a conjunctive normal form.
+     * @return {@code true} for a conjunction of disjunctions, {@code false} for a disjunction of conjunctions
+     */
+    public boolean isConjunctive() {
+        return conjunctive;
+    }
+
+    /**
+     * Returns whether no form of the same kind has fewer terms, or as many terms and fewer literals.
+     * Only covers found exactly are known to be minimal; others may still happen to be.
+     * @see Minimizer.Mode
+     * @return whether the cover is proven minimal
+     */
+    public boolean isMinimal() {
+        return minimal;
+    }
+
+    public String[] getPropositions() {
+        return propositions.clone();
+    }
+
+    /**
+     * Returns the literals of a term.
+     * @param index the index of the term
+     * @return one element per proposition: 1 for the proposition, -1 for its negation, or 0 if it is absent
+     */
+    public int[] getTerm(int index) {
+        int[] term = new int[propositions.length];
+        for (int j = 0; j < term.length; ++ j) {
+            long bit = 1L << (propositions.length - 1 - j);
+            if ((masks[index] & bit) != 0) {
+                // a clause is false on its cube, so its literals are the negated ones
+                term[j] = ((values[index] & bit) != 0) != conjunctive ? 1 : -1;
+            }
+        }
+        return term;
+    }
+
+    /**
+     * Calculates the formula for a line of the truth table.
+     * @param line the line, whose bits are the values of the propositions
+     * @return the result
+     */
+    public boolean evaluate(long line) {
+        for (int i = 0; i < values.length; ++ i) {
+            if ((line & masks[i]) == values[i]) {
+                return !conjunctive;
+            }
+        }
+        return conjunctive;
+    }
+
+    /**
+     * Returns the formula with the default operators, which can be parsed by
+     * {@link ml.rhacoal.polishnotation.Calculator#calculates(String)}.
+     * @return the formula
+     */
+    public String toExpression() {
+        return toString("!", "&", "|");
+    }
+
+    /**
+     * Returns the formula with the given symbols. Terms of a conjunctive form with more than one literal are put in
+     * parentheses, since conjunction binds tighter than disjunction.
+     * @param not the symbol of negation
+     * @param and the symbol of conjunction
+     * @param or the symbol of disjunction
+     * @return the formula
+     */
+    public String toString(String not, String and, String or) {
+        String inner = conjunctive ? or : and, outer = conjunctive ? and : or;
+        if (values.length == 0) {
+            return conjunctive ? "T" : "F";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; ++ i) {
+            if (i > 0) {
+                builder.append(outer);
+            }
+            int[] term = getTerm(i);
+            int literals = Long.bitCount(masks[i]);
+            if (literals == 0) {
+                builder.append(conjunctive ? "F" : "T");
+                continue;
+            }
+            boolean parenthesized = conjunctive && literals > 1;
+            if (parenthesized) {
+                builder.append('(');
+            }
+            boolean first = true;
+            for (int j = 0; j < term.length; ++ j) {
+                if (term[j] == 0) {
+                    continue;
+                }
+                if (!first) {
+                    builder.append(inner);
+                }
+                first = false;
+                if (term[j] < 0) {
+                    builder.append(not);
+                }
+                builder.append(propositions[j]);
+            }
+            if (parenthesized) {
+                builder.append(')');
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toExpression();
+    }
+}
@@ -0,0 +1,240 @@
+package ml.rhacoal.polishnotation.minimization;
+
+import java.util.Arrays;
+
+/**
+ * A heuristic two-level minimizer after the EXPAND, IRREDUNDANT and REDUCE loop of Espresso.
+ * <p>The cover starts from primes grown greedily from the lines not covered yet. Each round then shrinks every cube
+ * to the lines only it covers, grows it again into a prime and drops the cubes other cubes make redundant, until a
+ * round no longer lowers the cost. Cubes are checked against the off-set a word of lines at a time, so no list of
+ * minterms or implicants is ever built.</p>
+ */
+final class Espresso {
+
+    private static final int MAX_ROUNDS = 16;
+
+    private final int variables;
+    private final long full;
+    private final RowSet on, off;
+    private final int[] prefix;
+    /**
+     * The number of cubes covering each line of the on-set, numbered by {@link RowSet#prefixCounts()}.
+     */
+    private final int[] counts;
+
+    private long[] values = new long[16], masks = new long[16];
+    private int size;
+
+    /**
+     * @param on the lines to cover
+     * @param off the lines not to cover; lines in neither set are don't-cares
+     * @param variables the number of propositions
+     */
+    Espresso(RowSet on, RowSet off, int variables) {
+        this.variables = variables;
+        this.full = (1L << variables) - 1;
+        this.on = on;
+        this.off = off;
+        this.prefix = on.prefixCounts();
+        this.counts = new int[(int) on.count()];
+    }
+
+    long[] getValues() {
+        return Arrays.copyOf(values, size);
+    }
+
+    long[] getMasks() {
+        return Arrays.copyOf(masks, size);
+    }
+
+    void minimize() {
+        RowSet uncovered = on.copy();
+        for (long line = uncovered.next(0); line >= 0; line = uncovered.next(line)) {
+            long mask = expand(line, full, uncovered, 0);
+            add(line & mask, mask);
+            uncovered.remove(line & mask, mask);
+        }
+        countCover();
+        irredundant();
+        long[] bestValues = getValues(), bestMasks = getMasks();
+        long bestCost = cost();
+        for (int round = 1; round <= MAX_ROUNDS; ++ round) {
+            reduce();
+            for (int i = 0; i < size; ++ i) {
+                masks[i] = expand(values[i], masks[i], on, round);
+                values[i] &= masks[i];
+            }
+            countCover();
+            irredundant();
+            long cost = cost();
+            if (cost >= bestCost) {
+                break;
+            }
+            bestCost = cost;
+            bestValues = getValues();
+            bestMasks = getMasks();
+        }
+        values = bestValues;
+        masks = bestMasks;
+        size = bestValues.length;
+    }
+
+    /**
+     * Grows a cube into a prime, each time freeing the proposition that covers the most lines of {@code target}.
+     * @param value the value of the cube
+     * @param mask the mask of the cube
+     * @param target the lines worth covering
+     * @param round shifts the preference between propositions of equal gain, so rounds try different directions
+     * @return the mask of the prime; its value is {@code value & mask}
+     */
+    private long expand(long value, long mask, RowSet target, int round) {
+        long candidates = mask;
+        while (candidates != 0) {
+            int bestBit = -1;
+            long bestGain = -1;
+            for (long rest = candidates; rest != 0; rest &= rest - 1) {
+                int bit = Long.numberOfTrailingZeros(rest);
+                long half = (value ^ (1L << bit)) & mask; // the lines added by freeing the bit
+                if (off.intersects(half, mask)) {
+                    candidates &= ~(1L << bit); // a larger cube intersects the off-set as well
+                    continue;
+                }
+                long gain = target.count(half, mask);
+                if (gain > bestGain || (gain == bestGain && rotate(bit, round) < rotate(bestBit, round))) {
+                    bestBit = bit;
+                    bestGain = gain;
+                }
+            }
+            if (bestBit < 0) {
+                break;
+            }
+            mask &= ~(1L << bestBit);
+            value &= mask;
+            candidates &= mask;
+        }
+        return mask;
+    }
+
+    private int rotate(int bit, int round) {
+        return (bit + round) % variables;
+    }
+
+    /**
+     * Drops the cubes whose lines are all covered by other cubes, trying the smallest cubes first.
+     */
+    private void irredundant() {
+        Integer[] order = sortedBySize(true);
+        boolean[] removed = new boolean[size];
+        for (int i : order) {
+            boolean redundant = on.forEachWord(values[i], masks[i], (index, bits) -> {
+                int base = prefix[index];
+                long word = on.word(index);
+                for (long b = bits; b != 0; b &= b - 1) {
+                    if (counts[base + Long.bitCount(word & ((b & -b) - 1))] < 2) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+            if (redundant) {
+                adjust(values[i], masks[i], -1);
+                removed[i] = true;
+            }
+        }
+        compact(removed);
+    }
+
+    /**
+     * Shrinks each cube, the largest first, to the smallest cube holding the lines no other cube covers.
+     */
+    private void reduce() {
+        Integer[] order = sortedBySize(false);
+        boolean[] removed = new boolean[size];
+        long[] bounds = new long[2];
+        for (int i : order) {
+            bounds[0] = -1L; // the common bits of the lines
+            bounds[1] = 0; // the bits set in any line
+            on.forEachWord(values[i], masks[i], (index, bits) -> {
+                int base = prefix[index];
+                long word = on.word(index);
+                for (long b = bits; b != 0; b &= b - 1) {
+                    if (counts[base + Long.bitCount(word & ((b & -b) - 1))] == 1) {
+                        long line = ((long) index << 6) | Long.numberOfTrailingZeros(b);
+                        bounds[0] &= line;
+                        bounds[1] |= line;
+                    }
+                }
+                return true;
+            });
+            adjust(values[i], masks[i], -1);
+            if (bounds[0] == -1L) { // no line only covered by this cube
+                removed[i] = true;
+                continue;
+            }
+            masks[i] = full & ~(bounds[0] ^ bounds[1]);
+            values[i] = bounds[0] & masks[i];
+            adjust(values[i], masks[i], 1);
+        }
+        compact(removed);
+    }
+
+    private Integer[] sortedBySize(boolean ascending) {
+        Integer[] order = new Integer[size];
+        long[] sizes = new long[size];
+        for (int i = 0; i < size; ++ i) {
+            order[i] = i;
+            sizes[i] = on.count(values[i], masks[i]);
+        }
+        Arrays.sort(order, (a, b) -> ascending ? Long.compare(sizes[a], sizes[b]) : Long.compare(sizes[b], sizes[a]));
+        return order;
+    }
+
+    private void countCover() {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < size; ++ i) {
+            adjust(values[i], masks[i], 1);
+        }
+    }
+
+    private void adjust(long value, long mask, int delta) {
+        on.forEachWord(value, mask, (index, bits) -> {
+            int base = prefix[index];
+            long word = on.word(index);
+            for (long b = bits; b != 0; b &= b - 1) {
+                counts[base + Long.bitCount(word & ((b & -b) - 1))] += delta;
+            }
+            return true;
+        });
+    }
+
+    private void add(long value, long mask) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+            masks = Arrays.copyOf(masks, size << 1);
+        }
+        values[size] = value;
+        masks[size ++] = mask;
+    }
+
+    private void compact(boolean[] removed) {
+        int kept = 0;
+        for (int i = 0; i < size; ++ i) {
+            if (!removed[i]) {
+                values[kept] = values[i];
+                masks[kept ++] = masks[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Orders covers by the number of cubes, then by the number of literals.
+     */
+    private long cost() {
+        long literals = 0;
+        for (int i = 0; i < size; ++ i) {
+            literals += Long.bitCount(masks[i]);
+        }
+        return ((long) size << 32) + literals;
+    }
+}
@@ -0,0 +1,95 @@
+package ml.rhacoal.polishnotation.minimization;
+
+import ml.rhacoal.polishnotation.Calculator;
+
+/**
+ * Calculates minimal or near-minimal disjunctive and conjunctive normal forms from truth tables.
+ * <p>Unlike the principal normal forms, which have one term per line, the terms of these forms may leave out
+ * propositions, so the forms are usually far smaller. A conjunctive form is calculated as the negation of a
+ * disjunctive form of the lines where the formula is false.</p>
+ * @see Calculator.TruthTable#minimizeDisjunctiveNormalForm(Mode)
+ */
+public final class Minimizer {
+
+    /**
+     * The largest number of propositions a table may have. Minimizing takes a few times the memory of the table.
+     */
+    public static final int MAX_VARIABLES = 24;
+    /**
+     * The largest number of propositions {@link Mode#AUTO} tries to minimize exactly.
+     */
+    private static final int EXACT_VARIABLES = 16;
+    /**
+     * The number of implicants after which {@link Mode#AUTO} gives up the exact minimization.
+     */
+    private static final int IMPLICANT_LIMIT = 1 << 18;
+
+    /**
+     * How a cover is calculated.
+     */
+    public enum Mode {
+        /**
+         * Uses {@link Mode#EXACT} for small tables and falls back to {@link Mode#HEURISTIC} when there are too many
+         * implicants.
+         */
+        AUTO,
+        /**
+         * Uses Quine–McCluskey to find the prime implicants and searches for the smallest cover. The number of primes
+         * grows exponentially with the number of propositions, and the search is cut short on hard tables, in which
+         * case the cover is not known to be minimal.
+         */
+        EXACT,
+        /**
+         * Uses a heuristic after Espresso, which finds a cover of primes that cannot be improved by its local
+         * moves, without enumerating the primes.
+         */
+        HEURISTIC
+    }
+
+    private Minimizer() {
+    }
+
+    /**
+     * Minimizes a truth table.
+     * @param propositions the propositions of the table, the first being the highest bit of the line numbers
+     * @param results the results of the lines
+     * @param dontCares the lines whose results do not matter, or {@code null}
+     * @param conjunctive whether to calculate a conjunctive form instead of a disjunctive form
+     * @param mode how to calculate the cover
+     * @return the cover
+     */
+    public static Cover minimize(String[] propositions, Calculator.TruthTable.BitArray results,
+                                 Calculator.TruthTable.BitArray dontCares, boolean conjunctive, Mode mode) {
+        int variables = propositions.length;
+        if (variables > MAX_VARIABLES) {
+            throw new UnsupportedOperationException(
+                    "Too many propositions! Only " + MAX_VARIABLES + " or less is accepted.");
+        }
+        if (results.size() != 1L << variables || (dontCares != null && dontCares.size() != results.size())) {
+            throw new IllegalArgumentException("The table must have 2^" + variables + " lines.");
+        }
+        RowSet on = RowSet.of(results, !conjunctive, variables);
+        RowSet off = RowSet.of(results, conjunctive, variables);
+        if (dontCares != null) {
+            RowSet dontCare = RowSet.of(dontCares, true, variables);
+            on.andNot(dontCare);
+            off.andNot(dontCare);
+        }
+        if (on.isEmpty()) {
+            return new Cover(propositions, new long[0], new long[0], conjunctive, true);
+        }
+        if (off.isEmpty()) {
+            return new Cover(propositions, new long[]{0}, new long[]{0}, conjunctive, true);
+        }
+        if (mode == Mode.EXACT || (mode == Mode.AUTO && variables <= EXACT_VARIABLES)) {
+            QuineMcCluskey exact = new QuineMcCluskey(on, off.complement(), variables,
+                    mode == Mode.EXACT ? Integer.MAX_VALUE : IMPLICANT_LIMIT);
+            if (exact.minimize()) {
+                return new Cover(propositions, exact.getValues(), exact.getMasks(), conjunctive, exact.isMinimal());
+            }
+        }
+        Espresso heuristic = new Espresso(on, off, variables);
+        heuristic.minimize();
+        return new Cover(propositions, heuristic.getValues(), heuristic.getMasks(), conjunctive, false);
+    }
+}
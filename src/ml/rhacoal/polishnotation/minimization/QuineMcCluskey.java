@@ -0,0 +1,417 @@
+package ml.rhacoal.polishnotation.minimization;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The exact two-level minimizer of Quine and McCluskey.
+ * <p>Implicants are merged level by level: the implicants sharing a mask are kept in a hash set of their values, so
+ * the partner of an implicant differing in one free proposition is looked up instead of compared pairwise. The
+ * implicants never merged are the primes. A cover of the on-set with the fewest primes, then the fewest literals,
+ * is chosen by taking the essential primes and searching the rest by branch and bound.</p>
+ */
+final class QuineMcCluskey {
+
+    /**
+     * The number of branches searched before the best cover found so far is taken.
+     */
+    private static final int SEARCH_LIMIT = 100_000;
+
+    private final int variables;
+    private final RowSet on, care;
+    private final int implicantLimit;
+
+    private long[] values, masks;
+    private boolean minimal;
+
+    // the covering problem: rows are the lines of the on-set, columns are the primes
+    private int[][] rowColumns, columnRows;
+    private int[] literals, covered, open;
+    private boolean[] chosen;
+    private boolean[] best;
+    private int bestCount, bestLiterals, nodes;
+    private int[] stamps;
+    private int stamp;
+
+    /**
+     * @param on the lines to cover
+     * @param care the lines that may be covered, i.e. the on-set and the don't-cares
+     * @param variables the number of propositions
+     * @param implicantLimit the number of implicants after which {@link QuineMcCluskey#minimize()} gives up
+     */
+    QuineMcCluskey(RowSet on, RowSet care, int variables, int implicantLimit) {
+        this.variables = variables;
+        this.on = on;
+        this.care = care;
+        this.implicantLimit = implicantLimit;
+    }
+
+    long[] getValues() {
+        return values;
+    }
+
+    long[] getMasks() {
+        return masks;
+    }
+
+    /**
+     * Returns whether the cover is proven minimal, i.e. the search was not cut short.
+     * @return whether the cover is minimal
+     */
+    boolean isMinimal() {
+        return minimal;
+    }
+
+    /**
+     * Minimizes the cover.
+     * @return {@code false} if there are too many implicants
+     */
+    boolean minimize() {
+        long[][] primes = primes();
+        if (primes == null) {
+            return false;
+        }
+        buildTable(primes[0], primes[1]);
+        choose();
+        int count = 0;
+        for (boolean b : best) {
+            count += b ? 1 : 0;
+        }
+        values = new long[count];
+        masks = new long[count];
+        for (int c = 0, i = 0; c < best.length; ++ c) {
+            if (best[c]) {
+                values[i] = primes[0][c];
+                masks[i ++] = primes[1][c];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the primes of the care set.
+     * @return the values and the masks of the primes, or {@code null} if there are too many implicants
+     */
+    private long[][] primes() {
+        LongList primeValues = new LongList(), primeMasks = new LongList();
+        HashMap<Long, CubeSet> level = new HashMap<>();
+        CubeSet minterms = new CubeSet();
+        for (long line = care.next(0); line >= 0; line = care.next(line + 1)) {
+            minterms.add(line);
+        }
+        level.put((1L << variables) - 1, minterms);
+        long implicants = minterms.size;
+        while (!level.isEmpty()) {
+            HashMap<Long, CubeSet> next = new HashMap<>();
+            for (Map.Entry<Long, CubeSet> entry : level.entrySet()) {
+                long mask = entry.getKey();
+                CubeSet cubes = entry.getValue();
+                for (int i = 0; i < cubes.keys.length; ++ i) {
+                    if (!cubes.used[i]) {
+                        continue;
+                    }
+                    long value = cubes.keys[i];
+                    for (long free = mask & ~value; free != 0; free &= free - 1) {
+                        long bit = free & -free;
+                        int partner = cubes.indexOf(value | bit);
+                        if (partner < 0) {
+                            continue;
+                        }
+                        cubes.merged[i] = true;
+                        cubes.merged[partner] = true;
+                        if (next.computeIfAbsent(mask & ~bit, m -> new CubeSet()).add(value)
+                                && ++ implicants > implicantLimit) {
+                            return null;
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<Long, CubeSet> entry : level.entrySet()) {
+                CubeSet cubes = entry.getValue();
+                for (int i = 0; i < cubes.keys.length; ++ i) {
+                    if (cubes.used[i] && !cubes.merged[i]) {
+                        primeValues.add(cubes.keys[i]);
+                        primeMasks.add(entry.getKey());
+                    }
+                }
+            }
+            level = next;
+        }
+        return new long[][]{primeValues.toArray(), primeMasks.toArray()};
+    }
+
+    private void buildTable(long[] primeValues, long[] primeMasks) {
+        int rows = (int) on.count(), columns = primeValues.length;
+        int[] prefix = on.prefixCounts();
+        columnRows = new int[columns][];
+        int[] rowSizes = new int[rows];
+        literals = new int[columns];
+        IntList list = new IntList();
+        for (int c = 0; c < columns; ++ c) {
+            list.size = 0;
+            on.forEachWord(primeValues[c], primeMasks[c], (index, bits) -> {
+                long word = on.word(index);
+                for (long b = bits; b != 0; b &= b - 1) {
+                    list.add(prefix[index] + Long.bitCount(word & ((b & -b) - 1)));
+                }
+                return true;
+            });
+            columnRows[c] = list.toArray();
+            for (int r : columnRows[c]) {
+                ++ rowSizes[r];
+            }
+            literals[c] = Long.bitCount(primeMasks[c]);
+        }
+        rowColumns = new int[rows][];
+        for (int r = 0; r < rows; ++ r) {
+            rowColumns[r] = new int[rowSizes[r]];
+            rowSizes[r] = 0;
+        }
+        for (int c = 0; c < columns; ++ c) {
+            for (int r : columnRows[c]) {
+                rowColumns[r][rowSizes[r] ++] = c;
+            }
+        }
+    }
+
+    private void choose() {
+        int rows = rowColumns.length, columns = columnRows.length;
+        covered = new int[rows];
+        chosen = new boolean[columns];
+        stamps = new int[columns];
+        int count = 0, literalCount = 0;
+        // essential primes
+        for (int r = 0; r < rows; ++ r) {
+            if (rowColumns[r].length == 1 && !chosen[rowColumns[r][0]]) {
+                select(rowColumns[r][0], 1);
+                ++ count;
+                literalCount += literals[rowColumns[r][0]];
+            }
+        }
+        IntList left = new IntList();
+        for (int r = 0; r < rows; ++ r) {
+            if (covered[r] == 0) {
+                left.add(r);
+            }
+        }
+        open = left.toArray();
+        // a greedy cover bounds the search
+        boolean[] essential = chosen.clone();
+        bestCount = count;
+        bestLiterals = literalCount;
+        for (int row = firstOpenRow(); row >= 0; row = firstOpenRow()) {
+            int column = -1, gain = 0;
+            for (int c = 0; c < columns; ++ c) {
+                int g = chosen[c] ? 0 : gain(c);
+                if (g > gain || (g == gain && g > 0 && literals[c] < literals[column])) {
+                    column = c;
+                    gain = g;
+                }
+            }
+            select(column, 1);
+            ++ bestCount;
+            bestLiterals += literals[column];
+        }
+        best = chosen.clone();
+        for (int c = 0; c < columns; ++ c) {
+            if (chosen[c] && !essential[c]) {
+                select(c, -1);
+            }
+        }
+        nodes = 0;
+        minimal = true;
+        search(count, literalCount);
+    }
+
+    private void search(int count, int literalCount) {
+        if (++ nodes > SEARCH_LIMIT) {
+            minimal = false;
+            return;
+        }
+        int row = -1;
+        for (int r : open) {
+            if (covered[r] == 0 && (row < 0 || rowColumns[r].length < rowColumns[row].length)) {
+                row = r;
+            }
+        }
+        if (row < 0) {
+            if (count < bestCount || (count == bestCount && literalCount < bestLiterals)) {
+                bestCount = count;
+                bestLiterals = literalCount;
+                best = chosen.clone();
+            }
+            return;
+        }
+        int bound = count + independentRows();
+        if (bound > bestCount || (bound == bestCount && literalCount >= bestLiterals)) {
+            return;
+        }
+        int[] columns = rowColumns[row].clone();
+        int[] gains = new int[columns.length];
+        for (int i = 0; i < columns.length; ++ i) {
+            gains[i] = gain(columns[i]);
+        }
+        // try the columns covering the most rows first
+        for (int i = 1; i < columns.length; ++ i) {
+            for (int j = i; j > 0 && gains[j] > gains[j - 1]; -- j) {
+                int t = gains[j]; gains[j] = gains[j - 1]; gains[j - 1] = t;
+                t = columns[j]; columns[j] = columns[j - 1]; columns[j - 1] = t;
+            }
+        }
+        for (int c : columns) {
+            if (!minimal) {
+                return;
+            }
+            select(c, 1);
+            search(count + 1, literalCount + literals[c]);
+            select(c, -1);
+        }
+    }
+
+    /**
+     * Counts open rows no two of which share a column, a lower bound of the columns still needed.
+     */
+    private int independentRows() {
+        ++ stamp;
+        int count = 0;
+        rows: for (int r : open) {
+            if (covered[r] != 0) {
+                continue;
+            }
+            for (int c : rowColumns[r]) {
+                if (stamps[c] == stamp) {
+                    continue rows;
+                }
+            }
+            for (int c : rowColumns[r]) {
+                stamps[c] = stamp;
+            }
+            ++ count;
+        }
+        return count;
+    }
+
+    private int firstOpenRow() {
+        for (int r : open) {
+            if (covered[r] == 0) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    private int gain(int column) {
+        int gain = 0;
+        for (int r : columnRows[column]) {
+            if (covered[r] == 0) {
+                ++ gain;
+            }
+        }
+        return gain;
+    }
+
+    private void select(int column, int delta) {
+        chosen[column] = delta > 0;
+        for (int r : columnRows[column]) {
+            covered[r] += delta;
+        }
+    }
+
+    /**
+     * An open-addressing set of the values of the implicants sharing a mask.
+     */
+    private static final class CubeSet {
+
+        private long[] keys = new long[16];
+        private boolean[] used = new boolean[16];
+        private boolean[] merged = new boolean[16];
+        private int size;
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean add(long key) {
+            if ((size + 1) << 1 > keys.length) {
+                long[] oldKeys = keys;
+                boolean[] oldUsed = used;
+                keys = new long[oldKeys.length << 1];
+                used = new boolean[oldKeys.length << 1];
+                merged = new boolean[oldKeys.length << 1];
+                for (int i = 0; i < oldKeys.length; ++ i) {
+                    if (oldUsed[i]) {
+                        insert(oldKeys[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            used[i] = true;
+            ++ size;
+            return true;
+        }
+
+        private void insert(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i]) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            used[i] = true;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class LongList {
+
+        private long[] data = new long[16];
+        private int size;
+
+        private void add(long element) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size << 1);
+            }
+            data[size ++] = element;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] data = new int[16];
+        private int size;
+
+        private void add(int element) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size << 1);
+            }
+            data[size ++] = element;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
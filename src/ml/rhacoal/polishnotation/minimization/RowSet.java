@@ -0,0 +1,204 @@
+package ml.rhacoal.polishnotation.minimization;
+
+import ml.rhacoal.polishnotation.Calculator;
+
+/**
+ * A set of lines of a truth table, stored one bit per line.
+ * <p>A cube is given as a pair {@code (value, mask)} of line bits: it holds the lines whose bits under {@code mask}
+ * equal {@code value}. Its lines are visited a word at a time, so a cube of {@code 2^k} lines costs about
+ * {@code 2^(k-6)} steps.</p>
+ */
+final class RowSet {
+
+    /**
+     * {@code PATTERNS[mask << 6 | value]} holds the bits of a word whose 6-bit positions {@code p} satisfy
+     * {@code (p & mask) == value}.
+     */
+    private static final long[] PATTERNS = new long[1 << 12];
+
+    static {
+        for (int mask = 0; mask < 64; ++ mask) {
+            for (int value = 0; value < 64; ++ value) {
+                long pattern = 0;
+                for (int p = 0; p < 64; ++ p) {
+                    if ((p & mask) == (value & mask)) {
+                        pattern |= 1L << p;
+                    }
+                }
+                PATTERNS[mask << 6 | value] = pattern;
+            }
+        }
+    }
+
+    /**
+     * Visits the words of a cube.
+     */
+    interface WordVisitor {
+        /**
+         * @param index the index of the word
+         * @param bits the lines of the word that are both in the set and in the cube, never 0
+         * @return {@code false} to stop visiting
+         */
+        boolean visit(int index, long bits);
+    }
+
+    private final int variables;
+    private final long[] words;
+    private final long validBits;
+
+    RowSet(int variables) {
+        this.variables = variables;
+        this.words = new long[variables < 6 ? 1 : 1 << (variables - 6)];
+        this.validBits = variables < 6 ? (1L << (1 << variables)) - 1 : -1L;
+    }
+
+    /**
+     * Returns the lines of a truth table with the given result.
+     * @param results the results of the lines
+     * @param value the result to look for
+     * @param variables the number of propositions of the table
+     * @return the set of lines
+     */
+    static RowSet of(Calculator.TruthTable.BitArray results, boolean value, int variables) {
+        RowSet set = new RowSet(variables);
+        for (int i = 0; i < set.words.length; ++ i) {
+            long word = results.getWord(i);
+            set.words[i] = (value ? word : ~word) & set.validBits;
+        }
+        return set;
+    }
+
+    RowSet copy() {
+        RowSet set = new RowSet(variables);
+        System.arraycopy(words, 0, set.words, 0, words.length);
+        return set;
+    }
+
+    RowSet complement() {
+        RowSet set = new RowSet(variables);
+        for (int i = 0; i < words.length; ++ i) {
+            set.words[i] = ~words[i] & validBits;
+        }
+        return set;
+    }
+
+    void andNot(RowSet other) {
+        for (int i = 0; i < words.length; ++ i) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long count() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    long word(int index) {
+        return words[index];
+    }
+
+    /**
+     * Returns the number of lines before each word, so that a line can be numbered among the lines of the set.
+     * @return the numbers, one per word
+     */
+    int[] prefixCounts() {
+        int[] prefix = new int[words.length];
+        int count = 0;
+        for (int i = 0; i < words.length; ++ i) {
+            prefix[i] = count;
+            count += Long.bitCount(words[i]);
+        }
+        return prefix;
+    }
+
+    /**
+     * Returns the first line of the set not less than {@code from}.
+     * @param from the line to start from
+     * @return the line, or -1 if there is none
+     */
+    long next(long from) {
+        int index = (int) (from >>> 6);
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << (from & 63));
+        while (word == 0) {
+            if (++ index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+        return ((long) index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Visits the words of the set that hold lines of a cube, stopping when the visitor returns {@code false}.
+     * @param value the value of the cube
+     * @param mask the mask of the cube
+     * @param visitor the visitor
+     * @return {@code false} if the visitor stopped
+     */
+    boolean forEachWord(long value, long mask, WordVisitor visitor) {
+        long pattern = pattern(value, mask), high = value >>> 6, free = highFree(mask), s = 0;
+        do {
+            int index = (int) (high | s);
+            long bits = words[index] & pattern;
+            if (bits != 0 && !visitor.visit(index, bits)) {
+                return false;
+            }
+            s = (s - free) & free;
+        } while (s != 0);
+        return true;
+    }
+
+    boolean intersects(long value, long mask) {
+        long pattern = pattern(value, mask), high = value >>> 6, free = highFree(mask), s = 0;
+        do {
+            if ((words[(int) (high | s)] & pattern) != 0) {
+                return true;
+            }
+            s = (s - free) & free;
+        } while (s != 0);
+        return false;
+    }
+
+    long count(long value, long mask) {
+        long pattern = pattern(value, mask), high = value >>> 6, free = highFree(mask), s = 0, count = 0;
+        do {
+            count += Long.bitCount(words[(int) (high | s)] & pattern);
+            s = (s - free) & free;
+        } while (s != 0);
+        return count;
+    }
+
+    void remove(long value, long mask) {
+        long pattern = pattern(value, mask), high = value >>> 6, free = highFree(mask), s = 0;
+        do {
+            words[(int) (high | s)] &= ~pattern;
+            s = (s - free) & free;
+        } while (s != 0);
+    }
+
+    private long pattern(long value, long mask) {
+        return PATTERNS[(int) ((mask & 63) << 6 | (value & mask & 63))] & validBits;
+    }
+
+    /**
+     * Returns the bits of a word index that are free in a cube.
+     */
+    private long highFree(long mask) {
+        return variables <= 6 ? 0 : ~(mask >>> 6) & ((1L << (variables - 6)) - 1);
+    }
+}
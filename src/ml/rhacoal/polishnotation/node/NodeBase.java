@@ -90,6 +90,21 @@ public interface NodeBase {
 
     boolean calculate();
 
+    /**
+     * Calculates the node on 64 assignments at once.
+     * Each bit of the returned value is the result of the node under the assignment held by the same bit of the
+     * proposition values.
+     * This function is designed to be called recursively.
+     * <p>The default implementation calls {@link NodeBase#calculate()} once for each of the 64 assignments. Nodes
+     * should override it with a bitwise calculation for performance.</p>
+     * @see ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode#setBits(long)
+     * @see Traversal#calculateRows(NodeBase)
+     * @return the results packed in a {@code long}
+     */
+    default long calculateBits() {
+        return Traversal.calculateRows(this);
+    }
+
 
 
 }
\ No newline at end of file
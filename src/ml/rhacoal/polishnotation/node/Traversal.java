@@ -0,0 +1,557 @@
+package ml.rhacoal.polishnotation.node;
+
+import ml.rhacoal.polishnotation.node.operatornode.*;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+
+import java.util.Arrays;
+
+/**
+ * Non-recursive implementations of the calculations and serializations of {@link NodeBase}.
+ * <p>Nodes deeper than a fixed limit are walked with explicit stacks that grow on the heap, so formulas of any
+ * depth can be calculated and printed without {@link StackOverflowError}. The operator classes of this library delegate to these methods.</p>
+ * <p>Only nodes that keep the behavior of the library classes are walked. A node whose class overrides the method
+ * being run is asked to run it itself, so customized operators still work; their children are walked again once
+ * they call back into a library class.</p>
+ */
+public final class Traversal {
+
+    // kinds of nodes for calculation
+    private static final int OTHER = 0;
+    private static final int BINARY = 1;
+    private static final int UNARY = 2;
+    private static final int PARENTHESIS = 3;
+
+    private static final ClassValue<int[]> KINDS = new ClassValue<int[]>() {
+        @Override
+        protected int[] computeValue(Class<?> type) {
+            return new int[]{
+                    kindOf(type, "calculate", DefaultBinaryImpl.class, DefaultUnaryImpl.class),
+                    kindOf(type, "calculateBits", DefaultBinaryImpl.class, DefaultUnaryImpl.class),
+                    kindOf(type, "toExpression", BinaryOperator.class, UnaryOperator.class),
+                    kindOf(type, "toPolishNotation", BinaryOperator.class, UnaryOperator.class),
+                    kindOf(type, "toReversePolishNotation", BinaryOperator.class, UnaryOperator.class)
+            };
+        }
+    };
+
+    private static final int CALCULATE = 0;
+    private static final int CALCULATE_BITS = 1;
+    private static final int EXPRESSION = 2;
+    private static final int POLISH = 3;
+    private static final int REVERSE_POLISH = 4;
+
+    /**
+     * Depth below which the nodes are walked by plain recursion, which is faster for the usual shallow formulas.
+     * Deeper nodes are walked with explicit stacks.
+     */
+    private static final int RECURSION_LIMIT = 256;
+
+    private static final String OPEN = "(";
+    private static final String CLOSE = ")";
+
+    private Traversal() {
+    }
+
+    /**
+     * Finds whether a class keeps the given method of a library class.
+     * @return the kind of the class, or {@link Traversal#OTHER} if the method is overridden
+     */
+    private static int kindOf(Class<?> type, String method, Class<?> binary, Class<?> unary) {
+        Class<?> declaring;
+        try {
+            declaring = method.startsWith("calculate") ?
+                    type.getMethod(method).getDeclaringClass() :
+                    type.getMethod(method, StringBuilder.class).getDeclaringClass();
+        } catch (NoSuchMethodException ex) {
+            return OTHER;
+        }
+        if (ParenthesisNode.class.isAssignableFrom(type)) {
+            return declaring == ParenthesisNode.class ? PARENTHESIS : OTHER;
+        }
+        if (declaring == binary) {
+            return BINARY;
+        }
+        if (declaring == unary) {
+            return UNARY;
+        }
+        return OTHER;
+    }
+
+    private static int kind(NodeBase node, int method) {
+        Class<?> type = node.getClass();
+        if (type == PropositionIdentifierNode.class) {
+            return OTHER; // values never recurse
+        }
+        if (type == DefaultBinaryImpl.class) {
+            return BINARY;
+        }
+        if (type == DefaultUnaryImpl.class) {
+            return UNARY;
+        }
+        if (type == ParenthesisNode.class) {
+            return PARENTHESIS;
+        }
+        return KINDS.get(type)[method];
+    }
+
+    /**
+     * Returns the kind of the library class a node extends, whether or not it overrides the method being run.
+     * The root is always walked this way, since the library classes call these methods on themselves.
+     */
+    private static int rootKind(NodeBase node, int method) {
+        if (node instanceof ParenthesisNode) {
+            return PARENTHESIS;
+        }
+        if (method == CALCULATE || method == CALCULATE_BITS) {
+            return node instanceof DefaultBinaryImpl ? BINARY : node instanceof DefaultUnaryImpl ? UNARY : OTHER;
+        }
+        return node instanceof BinaryOperator ? BINARY : node instanceof UnaryOperator ? UNARY : OTHER;
+    }
+
+    /**
+     * Calculates a node.
+     * Operators created from {@link OperatorInfo} are calculated by their truth tables, and the right operand is
+     * skipped when the left one decides the result, as {@code &&} and {@code ||} do.
+     * @see NodeBase#calculate()
+     * @param root the node to calculate
+     * @return the result
+     */
+    public static boolean calculate(NodeBase root) {
+        return calculate(root, rootKind(root, CALCULATE), 0);
+    }
+
+    private static boolean calculate(NodeBase node, int kind, int depth) {
+        if (depth == RECURSION_LIMIT) {
+            return calculateIteratively(node, kind);
+        }
+        switch (kind) {
+            case BINARY: {
+                int truthTable = ((DefaultBinaryImpl) node).getOperatorInfo().truthTable;
+                NodeBase left = ((OperatorNode) node).getLeftChild();
+                int row = (truthTable >>> (calculate(left, kind(left, CALCULATE), depth + 1) ? 2 : 0)) & 3;
+                if (row == 0 || row == 3) {
+                    return row != 0;
+                }
+                NodeBase right = ((OperatorNode) node).getRightChild();
+                return (row & (calculate(right, kind(right, CALCULATE), depth + 1) ? 2 : 1)) != 0;
+            }
+            case UNARY: {
+                NodeBase right = ((OperatorNode) node).getRightChild();
+                return (((DefaultUnaryImpl) node).getOperatorInfo().truthTable
+                        & (calculate(right, kind(right, CALCULATE), depth + 1) ? 2 : 1)) != 0;
+            }
+            case PARENTHESIS: {
+                NodeBase right = ((OperatorNode) node).getRightChild();
+                return calculate(right, kind(right, CALCULATE), depth + 1);
+            }
+            default:
+                return node.calculate();
+        }
+    }
+
+    private static boolean calculateIteratively(NodeBase root, int rootKind) {
+        NodeBase[] nodes = new NodeBase[16];
+        byte[] states = new byte[16];
+        boolean[] values = new boolean[16];
+        int top = 0, valueTop = -1;
+        nodes[0] = root;
+        while (top >= 0) {
+            NodeBase node = nodes[top];
+            int state = states[top];
+            switch (top == 0 ? rootKind : kind(node, CALCULATE)) {
+                case BINARY:
+                    if (state == 0) {
+                        states[top] = 1;
+                        node = ((OperatorNode) node).getLeftChild();
+                        break;
+                    }
+                    int truthTable = ((DefaultBinaryImpl) node).getOperatorInfo().truthTable;
+                    if (state == 1) {
+                        // the row of the truth table for the left value
+                        int row = (truthTable >>> (values[valueTop] ? 2 : 0)) & 3;
+                        if (row == 0 || row == 3) {
+                            values[valueTop] = row != 0;
+                            -- top;
+                            continue;
+                        }
+                        states[top] = 2;
+                        node = ((OperatorNode) node).getRightChild();
+                        break;
+                    }
+                    -- valueTop;
+                    values[valueTop] = (truthTable & (1 << ((values[valueTop] ? 2 : 0)
+                            | (values[valueTop + 1] ? 1 : 0)))) != 0;
+                    -- top;
+                    continue;
+                case UNARY:
+                    if (state == 0) {
+                        states[top] = 1;
+                        node = ((OperatorNode) node).getRightChild();
+                        break;
+                    }
+                    values[valueTop] = (((DefaultUnaryImpl) node).getOperatorInfo().truthTable
+                            & (values[valueTop] ? 2 : 1)) != 0;
+                    -- top;
+                    continue;
+                case PARENTHESIS:
+                    if (state == 0) {
+                        states[top] = 1;
+                        node = ((OperatorNode) node).getRightChild();
+                        break;
+                    }
+                    -- top;
+                    continue;
+                default:
+                    if (++ valueTop == values.length) {
+                        values = Arrays.copyOf(values, valueTop << 1);
+                    }
+                    values[valueTop] = node.calculate();
+                    -- top;
+                    continue;
+            }
+            // push the child
+            if (++ top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top << 1);
+                states = Arrays.copyOf(states, top << 1);
+            }
+            nodes[top] = node;
+            states[top] = 0;
+        }
+        return values[0];
+    }
+
+    /**
+     * Calculates a node on 64 assignments at once.
+     * @see NodeBase#calculateBits()
+     * @param root the node to calculate
+     * @return the results packed in a {@code long}
+     */
+    public static long calculateBits(NodeBase root) {
+        return calculateBits(root, rootKind(root, CALCULATE_BITS), 0);
+    }
+
+    private static long calculateBits(NodeBase node, int kind, int depth) {
+        if (depth == RECURSION_LIMIT) {
+            return calculateBitsIteratively(node, kind);
+        }
+        switch (kind) {
+            case BINARY: {
+                NodeBase left = ((OperatorNode) node).getLeftChild(), right = ((OperatorNode) node).getRightChild();
+                return ((DefaultBinaryImpl) node).getOperatorInfo().bitwiseCalculation.calculate(
+                        calculateBits(left, kind(left, CALCULATE_BITS), depth + 1),
+                        calculateBits(right, kind(right, CALCULATE_BITS), depth + 1));
+            }
+            case UNARY: {
+                NodeBase right = ((OperatorNode) node).getRightChild();
+                return ((DefaultUnaryImpl) node).getOperatorInfo().bitwiseCalculation.calculate(
+                        0L, calculateBits(right, kind(right, CALCULATE_BITS), depth + 1));
+            }
+            case PARENTHESIS: {
+                NodeBase right = ((OperatorNode) node).getRightChild();
+                return calculateBits(right, kind(right, CALCULATE_BITS), depth + 1);
+            }
+            default:
+                return node.calculateBits();
+        }
+    }
+
+    /**
+     * Calculates a node on 64 assignments by calling {@link NodeBase#calculate()} once for each of them.
+     * <p>The values of the propositions are set from their bits for each assignment, and restored afterwards. Only
+     * the propositions reached through the children of {@link OperatorNode} are set, so the propositions below a node
+     * that is neither an operator nor a proposition keep their values.</p>
+     * @see NodeBase#calculateBits()
+     * @param root the node to calculate
+     * @return the results packed in a {@code long}
+     */
+    public static long calculateRows(NodeBase root) {
+        PropositionIdentifierNode[] propositions = new PropositionIdentifierNode[16];
+        int count = 0;
+        NodeBase[] nodes = new NodeBase[16];
+        int top = 0;
+        nodes[0] = root;
+        while (top >= 0) {
+            NodeBase node = nodes[top --];
+            if (node instanceof PropositionIdentifierNode) {
+                if (count == propositions.length) {
+                    propositions = Arrays.copyOf(propositions, count << 1);
+                }
+                propositions[count ++] = (PropositionIdentifierNode) node;
+            } else if (node instanceof OperatorNode) {
+                if (top + 2 >= nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length << 1);
+                }
+                NodeBase left = ((OperatorNode) node).getLeftChild(), right = ((OperatorNode) node).getRightChild();
+                if (left != null) {
+                    nodes[++ top] = left;
+                }
+                if (right != null) {
+                    nodes[++ top] = right;
+                }
+            }
+        }
+        // a proposition may be reached more than once, so the values are saved before any of them is set
+        boolean[] saved = new boolean[count];
+        long[] bits = new long[count];
+        for (int j = 0; j < count; ++ j) {
+            saved[j] = propositions[j].calculate();
+            bits[j] = propositions[j].calculateBits();
+        }
+        long result = 0;
+        try {
+            for (int k = 0; k < 64; ++ k) {
+                for (int j = 0; j < count; ++ j) {
+                    propositions[j].setValue(((bits[j] >>> k) & 1L) != 0);
+                }
+                if (root.calculate()) {
+                    result |= 1L << k;
+                }
+            }
+        } finally {
+            for (int j = count - 1; j >= 0; -- j) {
+                propositions[j].setValue(saved[j]);
+            }
+        }
+        return result;
+    }
+
+    private static long calculateBitsIteratively(NodeBase root, int rootKind) {
+        NodeBase[] nodes = new NodeBase[16];
+        byte[] states = new byte[16];
+        long[] values = new long[16];
+        int top = 0, valueTop = -1;
+        nodes[0] = root;
+        while (top >= 0) {
+            NodeBase node = nodes[top];
+            int state = states[top];
+            switch (top == 0 ? rootKind : kind(node, CALCULATE_BITS)) {
+                case BINARY:
+                    if (state == 0) {
+                        states[top] = 1;
+                        node = ((OperatorNode) node).getLeftChild();
+                        break;
+                    }
+                    if (state == 1) {
+                        states[top] = 2;
+                        node = ((OperatorNode) node).getRightChild();
+                        break;
+                    }
+                    -- valueTop;
+                    values[valueTop] = ((DefaultBinaryImpl) node).getOperatorInfo().bitwiseCalculation
+                            .calculate(values[valueTop], values[valueTop + 1]);
+                    -- top;
+                    continue;
+                case UNARY:
+                    if (state == 0) {
+                        states[top] = 1;
+                        node = ((OperatorNode) node).getRightChild();
+                        break;
+                    }
+                    values[valueTop] = ((DefaultUnaryImpl) node).getOperatorInfo().bitwiseCalculation
+                            .calculate(0L, values[valueTop]);
+                    -- top;
+                    continue;
+                case PARENTHESIS:
+                    if (state == 0) {
+                        states[top] = 1;
+                        node = ((OperatorNode) node).getRightChild();
+                        break;
+                    }
+                    -- top;
+                    continue;
+                default:
+                    if (++ valueTop == values.length) {
+                        values = Arrays.copyOf(values, valueTop << 1);
+                    }
+                    values[valueTop] = node.calculateBits();
+                    -- top;
+                    continue;
+            }
+            if (++ top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top << 1);
+                states = Arrays.copyOf(states, top << 1);
+            }
+            nodes[top] = node;
+            states[top] = 0;
+        }
+        return values[0];
+    }
+
+    /**
+     * Appends the infix expression of a node.
+     * @see NodeBase#toExpression(StringBuilder)
+     * @param root the node to append
+     * @param stringBuilder the {@link StringBuilder} to write to
+     * @return the original {@link StringBuilder}
+     */
+    public static StringBuilder toExpression(NodeBase root, StringBuilder stringBuilder) {
+        expression(root, rootKind(root, EXPRESSION), stringBuilder, 0);
+        return stringBuilder;
+    }
+
+    /**
+     * Appends the polish notation of a node.
+     * @see NodeBase#toPolishNotation(StringBuilder)
+     * @param root the node to append
+     * @param stringBuilder the {@link StringBuilder} to write to
+     * @return the original {@link StringBuilder}
+     */
+    public static StringBuilder toPolishNotation(NodeBase root, StringBuilder stringBuilder) {
+        polish(root, rootKind(root, POLISH), stringBuilder, 0);
+        return stringBuilder;
+    }
+
+    /**
+     * Appends the reverse polish notation of a node.
+     * @see NodeBase#toReversePolishNotation(StringBuilder)
+     * @param root the node to append
+     * @param stringBuilder the {@link StringBuilder} to write to
+     * @return the original {@link StringBuilder}
+     */
+    public static StringBuilder toReversePolishNotation(NodeBase root, StringBuilder stringBuilder) {
+        reversePolish(root, rootKind(root, REVERSE_POLISH), stringBuilder, 0);
+        return stringBuilder;
+    }
+
+    private static void expression(NodeBase node, int kind, StringBuilder stringBuilder, int depth) {
+        if (kind == OTHER) {
+            serializeOther(node, stringBuilder, EXPRESSION);
+            return;
+        }
+        if (depth == RECURSION_LIMIT) {
+            serializeIteratively(node, kind, stringBuilder, EXPRESSION);
+            return;
+        }
+        OperatorNode operator = (OperatorNode) node;
+        NodeBase right = operator.getRightChild();
+        if (kind == PARENTHESIS) {
+            stringBuilder.append('(');
+            expression(right, kind(right, EXPRESSION), stringBuilder, depth + 1);
+            stringBuilder.append(')');
+            return;
+        }
+        if (kind == BINARY) {
+            NodeBase left = operator.getLeftChild();
+            expression(left, kind(left, EXPRESSION), stringBuilder, depth + 1);
+        }
+        stringBuilder.append(operator.name());
+        expression(right, kind(right, EXPRESSION), stringBuilder, depth + 1);
+    }
+
+    private static void polish(NodeBase node, int kind, StringBuilder stringBuilder, int depth) {
+        if (kind == OTHER) {
+            serializeOther(node, stringBuilder, POLISH);
+            return;
+        }
+        if (depth == RECURSION_LIMIT) {
+            serializeIteratively(node, kind, stringBuilder, POLISH);
+            return;
+        }
+        OperatorNode operator = (OperatorNode) node;
+        if (kind != PARENTHESIS) {
+            stringBuilder.append(operator.name());
+        }
+        if (kind == BINARY) {
+            NodeBase left = operator.getLeftChild();
+            polish(left, kind(left, POLISH), stringBuilder, depth + 1);
+        }
+        NodeBase right = operator.getRightChild();
+        polish(right, kind(right, POLISH), stringBuilder, depth + 1);
+    }
+
+    private static void reversePolish(NodeBase node, int kind, StringBuilder stringBuilder, int depth) {
+        if (kind == OTHER) {
+            serializeOther(node, stringBuilder, REVERSE_POLISH);
+            return;
+        }
+        if (depth == RECURSION_LIMIT) {
+            serializeIteratively(node, kind, stringBuilder, REVERSE_POLISH);
+            return;
+        }
+        OperatorNode operator = (OperatorNode) node;
+        if (kind == BINARY) {
+            NodeBase left = operator.getLeftChild();
+            reversePolish(left, kind(left, REVERSE_POLISH), stringBuilder, depth + 1);
+        }
+        NodeBase right = operator.getRightChild();
+        reversePolish(right, kind(right, REVERSE_POLISH), stringBuilder, depth + 1);
+        if (kind != PARENTHESIS) {
+            stringBuilder.append(operator.name());
+        }
+    }
+
+    private static void serializeOther(NodeBase node, StringBuilder stringBuilder, int notation) {
+        if (node.getClass() == PropositionIdentifierNode.class) {
+            stringBuilder.append(((PropositionIdentifierNode) node).getStringRepresentation());
+        } else if (notation == EXPRESSION) {
+            node.toExpression(stringBuilder);
+        } else if (notation == POLISH) {
+            node.toPolishNotation(stringBuilder);
+        } else {
+            node.toReversePolishNotation(stringBuilder);
+        }
+    }
+
+    /**
+     * Writes a node in the given notation with an explicit stack. The stack holds the pending work in reverse
+     * order: a {@link String} is appended as it is and a {@link NodeBase} is expanded into its parts.
+     */
+    private static void serializeIteratively(NodeBase root, int rootKind, StringBuilder stringBuilder, int notation) {
+        Object[] stack = new Object[16];
+        int top = 0;
+        stack[0] = root;
+        boolean first = true;
+        while (top >= 0) {
+            Object item = stack[top --];
+            if (item instanceof String) {
+                stringBuilder.append((String) item);
+                continue;
+            }
+            NodeBase node = (NodeBase) item;
+            int kind = first ? rootKind : kind(node, notation);
+            first = false;
+            if (kind == OTHER) {
+                serializeOther(node, stringBuilder, notation);
+                continue;
+            }
+            if (top + 3 >= stack.length) {
+                stack = Arrays.copyOf(stack, stack.length << 1);
+            }
+            OperatorNode operator = (OperatorNode) node;
+            if (kind == PARENTHESIS) {
+                if (notation == EXPRESSION) {
+                    stack[++ top] = CLOSE;
+                    stack[++ top] = operator.getRightChild();
+                    stack[++ top] = OPEN;
+                } else {
+                    stack[++ top] = operator.getRightChild();
+                }
+            } else if (kind == UNARY) {
+                if (notation == REVERSE_POLISH) {
+                    stack[++ top] = operator.name();
+                    stack[++ top] = operator.getRightChild();
+                } else {
+                    stack[++ top] = operator.getRightChild();
+                    stack[++ top] = operator.name();
+                }
+            } else {
+                switch (notation) {
+                    case EXPRESSION:
+                        stack[++ top] = operator.getRightChild();
+                        stack[++ top] = operator.name();
+                        stack[++ top] = operator.getLeftChild();
+                        break;
+                    case POLISH:
+                        stack[++ top] = operator.getRightChild();
+                        stack[++ top] = operator.getLeftChild();
+                        stack[++ top] = operator.name();
+                        break;
+                    default:
+                        stack[++ top] = operator.name();
+                        stack[++ top] = operator.getRightChild();
+                        stack[++ top] = operator.getLeftChild();
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ml.rhacoal.polishnotation.node.operatornode;
 
 import ml.rhacoal.polishnotation.node.NodeType;
+import ml.rhacoal.polishnotation.node.Traversal;
 
 /**
  * Base class of operators with two children.
@@ -16,26 +17,17 @@ public abstract class BinaryOperator extends OperatorNode {
 
     @Override
     public StringBuilder toExpression(StringBuilder stringBuilder) {
-        getLeftChild().toExpression(stringBuilder);
-        stringBuilder.append(name());
-        getRightChild().toExpression(stringBuilder);
-        return stringBuilder;
+        return Traversal.toExpression(this, stringBuilder);
     }
 
     @Override
     public StringBuilder toPolishNotation(StringBuilder stringBuilder) {
-        stringBuilder.append(name());
-        getLeftChild().toPolishNotation(stringBuilder);
-        getRightChild().toPolishNotation(stringBuilder);
-        return stringBuilder;
+        return Traversal.toPolishNotation(this, stringBuilder);
     }
 
     @Override
     public StringBuilder toReversePolishNotation(StringBuilder stringBuilder) {
-        getLeftChild().toReversePolishNotation(stringBuilder);
-        getRightChild().toReversePolishNotation(stringBuilder);
-        stringBuilder.append(name());
-        return stringBuilder;
+        return Traversal.toReversePolishNotation(this, stringBuilder);
     }
 
 }
@@ -1,5 +1,7 @@
 package ml.rhacoal.polishnotation.node.operatornode;
 
+import ml.rhacoal.polishnotation.node.Traversal;
+
 /**
  * Default implementation of <tt>BinaryOperator</tt>.
  * Provides a constructor using {@link OperatorInfo}.
@@ -12,6 +14,14 @@ public class DefaultBinaryImpl extends BinaryOperator {
         this.opInfo = opInfo;
     }
 
+    /**
+     * Returns the {@link OperatorInfo} this operator is created from.
+     * @return the operator info
+     */
+    public OperatorInfo getOperatorInfo() {
+        return opInfo;
+    }
+
     @Override
     public String name() {
         return opInfo.name;
@@ -24,7 +34,12 @@ public class DefaultBinaryImpl extends BinaryOperator {
 
     @Override
     public boolean calculate() {
-        return opInfo.calculation.calculate(getLeftChild(), getRightChild());
+        return Traversal.calculate(this);
+    }
+
+    @Override
+    public long calculateBits() {
+        return Traversal.calculateBits(this);
     }
 
 }
@@ -2,52 +2,150 @@ package ml.rhacoal.polishnotation.node.operatornode;
 
 import ml.rhacoal.polishnotation.node.NodeBase;
 import ml.rhacoal.polishnotation.node.NodeType;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
 
 /**
  * This class provides an easy way to create a operator during runtime.
+ * <p>The {@link OperatorCalculation} of an operator is called once for each row of its truth table when the
+ * {@link OperatorInfo} is created. Formulas are calculated from that {@link OperatorInfo#truthTable}, by the node tree
+ * as well as by the compiled engines, or by the {@link BitwiseCalculation} when the node tree calculates 64
+ * assignments at once. The calculation must therefore be a pure function of the values of its operands: it is not
+ * called when a formula is calculated, so side effects or results that change over time are not seen.</p>
  */
 public class OperatorInfo {
 
     public final String name;
     public final OperatorCalculation calculation;
+    public final BitwiseCalculation bitwiseCalculation;
+    /**
+     * The truth table of the operator. Bit {@code (l << 1) | r} holds the result for left value {@code l} and right
+     * value {@code r}; unary operators only use the right value.
+     */
+    public final int truthTable;
     public final NodeType type;
     public final int precedence;
     public final boolean special;
+    /**
+     * The class of the nodes of a special operator created from a class, or {@code null}.
+     */
     public final Class<? extends OperatorNode> specialClass;
+    /**
+     * Creates the nodes of a special operator, or {@code null} if the operator is not special.
+     */
+    public final Supplier<? extends OperatorNode> factory;
 
-    private OperatorInfo(String name, OperatorCalculation calculation, NodeType type, int precedence) {
+    private OperatorInfo(String name, OperatorCalculation calculation, BitwiseCalculation bitwiseCalculation,
+                         NodeType type, int precedence) {
         this.name = name;
         this.calculation = calculation;
+        this.truthTable = calculateTruthTable(calculation, type);
+        this.bitwiseCalculation = bitwiseCalculation == null ?
+                deriveBitwiseCalculation(truthTable) : bitwiseCalculation;
         this.type = type;
         this.precedence = precedence;
         this.special = false;
         this.specialClass = null;
+        this.factory = null;
     }
 
-    private OperatorInfo(String name, NodeType type, Class<? extends OperatorNode> specialClass) {
+    private OperatorInfo(String name, NodeType type, Class<? extends OperatorNode> specialClass,
+                         Supplier<? extends OperatorNode> factory) {
         this.name = name;
         this.calculation = null;
+        this.bitwiseCalculation = null;
+        this.truthTable = 0;
         this.type = type;
         this.precedence = 0;
         this.special = true;
         this.specialClass = specialClass;
+        this.factory = factory;
+    }
+
+    /**
+     * Creates a node of this operator.
+     * @return the node, or {@code null} if the node of a special operator cannot be created
+     */
+    public OperatorNode newNode() {
+        if (special) {
+            return factory.get();
+        }
+        return type == NodeType.BINARY ? new DefaultBinaryImpl(this) : new DefaultUnaryImpl(this);
     }
 
+    /**
+     * Calculates the operator from the nodes of its operands. Only called to build the truth table of the operator,
+     * with constant operands. Unary operators receive "F" as the left child, as their {@link BitwiseCalculation}
+     * receives 0.
+     * @see OperatorInfo
+     */
     @FunctionalInterface
     public interface OperatorCalculation {
         boolean calculate(NodeBase leftChild, NodeBase rightChild);
     }
 
+    /**
+     * Calculates the operator on 64 pairs of values at once, one pair per bit.
+     * Unary operators receive 0 as the left value.
+     */
+    @FunctionalInterface
+    public interface BitwiseCalculation {
+        long calculate(long left, long right);
+    }
+
+    private static int calculateTruthTable(OperatorCalculation calculation, NodeType type) {
+        int truthTable = 0;
+        for (int i = 0; i < 4; ++ i) {
+            NodeBase left = PropositionIdentifierNode.constant(type != NodeType.UNARY && (i & 2) != 0);
+            if (calculation.calculate(left, PropositionIdentifierNode.constant((i & 1) != 0))) {
+                truthTable |= 1 << i;
+            }
+        }
+        return truthTable;
+    }
+
+    /**
+     * Builds a {@link BitwiseCalculation} from a truth table, as a disjunction of the rows that are true.
+     * @param truthTable the truth table of the operator
+     * @return the bitwise calculation
+     */
+    private static BitwiseCalculation deriveBitwiseCalculation(int truthTable) {
+        final long m00 = (truthTable & 1) != 0 ? -1L : 0L;
+        final long m01 = (truthTable & 2) != 0 ? -1L : 0L;
+        final long m10 = (truthTable & 4) != 0 ? -1L : 0L;
+        final long m11 = (truthTable & 8) != 0 ? -1L : 0L;
+        return (l, r) -> (~l & ~r & m00) | (~l & r & m01) | (l & ~r & m10) | (l & r & m11);
+    }
+
     /**
      * Creates an {@link OperatorInfo} instance.
      * @param name the name of the operator. Used when converting the expression to polish notation
-     * @param calculation defines how the operator do the calculation
+     * @param calculation defines how the operator do the calculation; it is only called here, to build the truth
+     *                    table the operator is calculated with
      * @param type the type of the operator. Should be NodeType.UNARY or NodeType.BINARY
      * @param precedence the precedence of the operator
      * @return an {@link OperatorInfo} instance
      */
     public static OperatorInfo createOperatorInfo(String name, OperatorCalculation calculation, NodeType type, int precedence) {
-        return new OperatorInfo(name, calculation, type, precedence);
+        return new OperatorInfo(name, calculation, null, type, precedence);
+    }
+
+    /**
+     * Creates an {@link OperatorInfo} instance with a bitwise calculation used to calculate 64 assignments at once.
+     * If {@code bitwiseCalculation} is {@code null}, it is derived from the truth table of {@code calculation}.
+     * @param name the name of the operator. Used when converting the expression to polish notation
+     * @param calculation defines how the operator do the calculation; it is only called here, to build the truth
+     *                    table the operator is calculated with
+     * @param bitwiseCalculation defines how the operator do the calculation on packed values
+     * @param type the type of the operator. Should be NodeType.UNARY or NodeType.BINARY
+     * @param precedence the precedence of the operator
+     * @return an {@link OperatorInfo} instance
+     */
+    public static OperatorInfo createOperatorInfo(String name, OperatorCalculation calculation,
+                                                  BitwiseCalculation bitwiseCalculation, NodeType type, int precedence) {
+        return new OperatorInfo(name, calculation, bitwiseCalculation, type, precedence);
     }
 
     /**
@@ -59,6 +157,36 @@ public class OperatorInfo {
      * @return an {@link OperatorInfo} instance
      */
     public static OperatorInfo createOperatorInfo(String name, NodeType type, Class<? extends OperatorNode> specialClass) {
-        return new OperatorInfo(name, type, specialClass);
+        Constructor<? extends OperatorNode> constructor;
+        try {
+            constructor = specialClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            constructor = null;
+        }
+        final Constructor<? extends OperatorNode> found = constructor;
+        return new OperatorInfo(name, type, specialClass, () -> {
+            if (found == null) {
+                return null;
+            }
+            try {
+                return found.newInstance();
+            } catch (ReflectiveOperationException ex) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Creates an {@link OperatorInfo} instance of a special operator whose nodes are created by a factory, such as
+     * a constructor reference. Unlike {@link OperatorInfo#createOperatorInfo(String, NodeType, Class)}, creating a
+     * node involves no reflection.
+     * @param name the name of the operator. Used when converting the expression to polish notation
+     * @param type the type of the operator. Should be NodeType.UNARY or NodeType.BINARY
+     * @param factory creates the nodes of the operator
+     * @return an {@link OperatorInfo} instance
+     */
+    public static OperatorInfo createOperatorInfo(String name, NodeType type, Supplier<? extends OperatorNode> factory) {
+        return new OperatorInfo(name, type, null, factory);
     }
 }
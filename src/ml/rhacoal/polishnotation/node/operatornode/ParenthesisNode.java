@@ -1,5 +1,7 @@
 package ml.rhacoal.polishnotation.node.operatornode;
 
+import ml.rhacoal.polishnotation.node.Traversal;
+
 /**
  * A parenthesis implementation of <tt>UnaryOperator</tt>.
  * This class cannot be constructed from {@link OperatorInfo} for the need of precedence change.
@@ -15,7 +17,12 @@ public class ParenthesisNode extends UnaryOperator {
 
     @Override
     public boolean calculate() {
-        return getRightChild().calculate();
+        return Traversal.calculate(this);
+    }
+
+    @Override
+    public long calculateBits() {
+        return Traversal.calculateBits(this);
     }
 
     public boolean isClose() {
@@ -28,20 +35,17 @@ public class ParenthesisNode extends UnaryOperator {
 
     @Override
     public StringBuilder toExpression(StringBuilder stringBuilder) {
-        stringBuilder.append('(');
-        getRightChild().toExpression(stringBuilder);
-        stringBuilder.append(')');
-        return stringBuilder;
+        return Traversal.toExpression(this, stringBuilder);
     }
 
     @Override
     public StringBuilder toPolishNotation(StringBuilder stringBuilder) {
-        return getRightChild().toPolishNotation(stringBuilder);
+        return Traversal.toPolishNotation(this, stringBuilder);
     }
 
     @Override
     public StringBuilder toReversePolishNotation(StringBuilder stringBuilder) {
-        return getRightChild().toReversePolishNotation(stringBuilder);
+        return Traversal.toReversePolishNotation(this, stringBuilder);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package ml.rhacoal.polishnotation.node.operatornode;
 
 import ml.rhacoal.polishnotation.node.NodeType;
+import ml.rhacoal.polishnotation.node.Traversal;
 
 /**
  * Base class of operators with only one child.
@@ -28,22 +29,16 @@ public abstract class UnaryOperator extends OperatorNode {
 
     @Override
     public StringBuilder toExpression(StringBuilder stringBuilder) {
-        stringBuilder.append(name());
-        getRightChild().toExpression(stringBuilder);
-        return stringBuilder;
+        return Traversal.toExpression(this, stringBuilder);
     }
 
     @Override
     public StringBuilder toPolishNotation(StringBuilder stringBuilder) {
-        stringBuilder.append(name());
-        getRightChild().toPolishNotation(stringBuilder);
-        return stringBuilder;
+        return Traversal.toPolishNotation(this, stringBuilder);
     }
 
     @Override
     public StringBuilder toReversePolishNotation(StringBuilder stringBuilder) {
-        getRightChild().toReversePolishNotation(stringBuilder);
-        stringBuilder.append(name());
-        return stringBuilder;
+        return Traversal.toReversePolishNotation(this, stringBuilder);
     }
 }
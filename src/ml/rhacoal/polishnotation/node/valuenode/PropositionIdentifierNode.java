@@ -123,6 +123,11 @@ public class PropositionIdentifierNode implements NodeBase {
         return value;
     }
 
+    @Override
+    public long calculateBits() {
+        return bits;
+    }
+
     /**
      * Sets the value of the identifier node for calculation purposes.
      * @param value the value to set
@@ -131,6 +136,24 @@ public class PropositionIdentifierNode implements NodeBase {
         this.value = value;
     }
 
+    /**
+     * Sets 64 values of the identifier node at once for bitwise calculation purposes.
+     * @see NodeBase#calculateBits()
+     * @param bits the values to set, one per bit
+     */
+    public void setBits(long bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Returns the constant proposition node of the given value, i.e. "T" or "F".
+     * @param value the value of the constant
+     * @return the constant node
+     */
+    public static PropositionIdentifierNode constant(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
     /**
      * A private constructor to avoid unwanted calls.
      * @see PropositionIdentifierNode#getIdentifier(Map, String)
@@ -142,12 +165,14 @@ public class PropositionIdentifierNode implements NodeBase {
 
     private final String identifier;
     private boolean value;
+    private long bits;
     //private static final HashMap<String, PropositionIdentifierNode> identifierMap; //now works as a parameter
 
     private static final class FinalPropositionNode extends PropositionIdentifierNode {
         private FinalPropositionNode(String identifier, boolean value) {
             super(identifier);
             super.value = value;
+            super.bits = value ? -1L : 0L;
         }
         /**
          * Does not work.
@@ -156,6 +181,13 @@ public class PropositionIdentifierNode implements NodeBase {
         public void setValue(boolean value) {
             return;
         }
+        /**
+         * Does not work.
+         * @param bits the values to set
+         */
+        public void setBits(long bits) {
+            return;
+        }
     }
     private static final PropositionIdentifierNode TRUE = new FinalPropositionNode("T", true);
     private static final PropositionIdentifierNode FALSE = new FinalPropositionNode("F", false);
@@ -0,0 +1,592 @@
+package ml.rhacoal.polishnotation.program;
+
+import ml.rhacoal.polishnotation.CalculationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Generates a hidden class implementing {@link Evaluator} for a {@link Program}.
+ * <p>The body of each method is the straight-line calculation of the program, so the JIT compiler is able to
+ * inline the whole formula and keep the intermediate values in registers. Large formulas are split into helper
+ * methods small enough to be compiled, each calculating a subtree. Generating and loading a class is far
+ * more expensive than compiling a {@link Program}, so this is only worthwhile for formulas calculated many
+ * times.</p>
+ */
+public final class BytecodeCompiler {
+
+    private static final String CLASS_NAME = "ml/rhacoal/polishnotation/program/CompiledFormula";
+    private static final String INTERFACE_NAME = "ml/rhacoal/polishnotation/program/Evaluator";
+
+    /**
+     * The largest body of a generated method. HotSpot does not compile methods of more than 8000 bytes of bytecode
+     * (-XX:HugeMethodLimit), so larger formulas are split into helper methods of at most this size, leaving room for
+     * the calls and returns around them.
+     */
+    private static final int METHOD_SIZE = 7000;
+    /** An upper bound of the bytes of a call to a helper method. */
+    private static final int CALL_SIZE = 8;
+
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * Generates and loads an {@link Evaluator} for the program.
+     * The generated evaluator holds no state and is thread-safe.
+     * @param program the program to compile
+     * @return an instance of the generated class
+     * @throws CalculationException if the program is too large to fit in a class
+     */
+    public static Evaluator compile(Program program) throws CalculationException {
+        byte[] classFile = new ClassWriter(program).toByteArray();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            return (Evaluator) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Generated class cannot be loaded.", ex);
+        }
+    }
+
+    /**
+     * The local variables of a generated method: the argument, the array of the slots of shared nodes, two scratch
+     * values, and the first slot if the slots are local variables instead.
+     */
+    private static final class Frame {
+
+        // eval(J)Z and eval64([J)J of a formula in one method, with the slots in local variables
+        private static final Frame INLINE = new Frame(1, -1, 3, 5, 7);
+        // eval(J)Z and eval64([J)J calling helpers, with the slots in an array
+        private static final Frame ENTRY = new Frame(1, 3, 4, 6, -1);
+        // static helpers (J[J)J and ([J[J)J
+        private static final Frame HELPER = new Frame(0, 2, 3, 5, -1);
+        private static final Frame PACKED_HELPER = new Frame(0, 1, 3, 5, -1);
+
+        private final int input, slots, left, right, firstSlot;
+
+        private Frame(int input, int slots, int left, int right, int firstSlot) {
+            this.input = input;
+            this.slots = slots;
+            this.left = left;
+            this.right = right;
+            this.firstSlot = firstSlot;
+        }
+    }
+
+    private static final class ClassWriter {
+
+        private final Program program;
+        private final byte[] opcodes;
+        private final int[] operands;
+        private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(constantPool);
+        private final HashMap<String, Integer> constants = new HashMap<>();
+        private int constantCount = 1;
+        private int allOnes;
+        /** The first instruction of the subtree of each instruction that ends a subtree. */
+        private final int[] starts;
+        /** The subtrees generated as helper methods, by their last instruction. */
+        private final boolean[] outlined;
+        /** The last instructions of the subtrees generated as helper methods, in increasing order, by first one. */
+        private final HashMap<Integer, ArrayList<Integer>> helpers = new HashMap<>();
+        private int code;
+
+        private ClassWriter(Program program) {
+            this.program = program;
+            this.opcodes = program.opcodes();
+            this.operands = program.operands();
+            this.starts = new int[opcodes.length];
+            this.outlined = new boolean[opcodes.length];
+        }
+
+        private byte[] toByteArray() throws CalculationException {
+            try {
+                int thisClass = classConstant(CLASS_NAME);
+                int superClass = classConstant("java/lang/Object");
+                int interfaceClass = classConstant(INTERFACE_NAME);
+                code = utf8("Code");
+                allOnes = longConstant(-1L);
+                split();
+                ArrayList<byte[]> methods = new ArrayList<>();
+                methods.add(method(0x0001, utf8("<init>"), utf8("()V"), 1, 1, initCode()));
+                int last = opcodes.length - 1;
+                if (helpers.isEmpty()) {
+                    int maxLocals = Frame.INLINE.firstSlot + program.getSlotCount() * 2;
+                    methods.add(method(0x0001, utf8("eval"), utf8("(J)Z"), stackSize(), maxLocals,
+                            evalCode(false, Frame.INLINE, 0, last, true)));
+                    methods.add(method(0x0001, utf8("eval64"), utf8("([J)J"), stackSize(), maxLocals,
+                            evalCode(true, Frame.INLINE, 0, last, true)));
+                } else {
+                    methods.add(method(0x0001, utf8("eval"), utf8("(J)Z"), stackSize(), 8,
+                            evalCode(false, Frame.ENTRY, 0, last, true)));
+                    methods.add(method(0x0001, utf8("eval64"), utf8("([J)J"), stackSize(), 8,
+                            evalCode(true, Frame.ENTRY, 0, last, true)));
+                    for (int i = 0; i <= last; ++ i) {
+                        if (outlined[i]) {
+                            // private static
+                            methods.add(method(0x0002 | 0x0008, utf8("e" + i), utf8("(J[J)J"), stackSize(), 8,
+                                    evalCode(false, Frame.HELPER, starts[i], i, false)));
+                            methods.add(method(0x0002 | 0x0008, utf8("p" + i), utf8("([J[J)J"), stackSize(), 8,
+                                    evalCode(true, Frame.PACKED_HELPER, starts[i], i, false)));
+                        }
+                    }
+                }
+                if (constantCount > MAX_CODE_LENGTH || methods.size() > MAX_CODE_LENGTH) {
+                    throw new CalculationException("Formula is too large to be compiled into bytecode.");
+                }
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(52);
+                out.writeShort(constantCount);
+                constantPool.writeTo(out);
+                out.writeShort(0x0001 | 0x0010 | 0x1000); // public final synthetic
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(interfaceClass);
+                out.writeShort(0); // fields
+                out.writeShort(methods.size());
+                for (byte[] method : methods) {
+                    out.write(method);
+                }
+                out.writeShort(0); // attributes
+                return bytes.toByteArray();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private int stackSize() {
+            // two slots per long, and at most four more slots while loading a proposition, storing a slot into the
+            // array or calling a helper
+            return program.getMaxDepth() * 2 + 6;
+        }
+
+        /**
+         * Chooses the subtrees generated as helper methods, bottom-up, so that every method stays within
+         * {@link BytecodeCompiler#METHOD_SIZE}: whenever a subtree grows too large, its largest operands become calls
+         * of their own methods. Nothing is split if the whole formula fits in one method.
+         */
+        private void split() throws IOException {
+            int[] sizes = new int[opcodes.length]; // bytes of a subtree, or of the call replacing it
+            int[] tails = new int[opcodes.length]; // bytes of the stores following a subtree, which stay in place
+            int[] stack = new int[program.getMaxDepth() + 1];
+            int top = -1;
+            for (int i = 0; i < opcodes.length; ++ i) {
+                int size = instructionSize(i);
+                switch (opcodes[i]) {
+                    case Program.VARIABLE:
+                    case Program.CONSTANT:
+                    case Program.LOAD:
+                        starts[i] = i;
+                        sizes[i] = size;
+                        stack[++ top] = i;
+                        break;
+                    case Program.STORE:
+                        sizes[stack[top]] += size;
+                        tails[stack[top]] += size;
+                        break;
+                    case Program.NOT:
+                    case Program.UNARY_TABLE: {
+                        int operand = stack[top];
+                        starts[i] = starts[operand];
+                        sizes[i] = size + sizes[operand];
+                        if (sizes[i] > METHOD_SIZE) {
+                            sizes[i] += outline(operand, sizes, tails);
+                        }
+                        stack[top] = i;
+                        break;
+                    }
+                    default: {
+                        int right = stack[top --], left = stack[top];
+                        starts[i] = starts[left];
+                        sizes[i] = size + sizes[left] + sizes[right];
+                        if (sizes[i] > METHOD_SIZE) {
+                            int larger = sizes[left] - tails[left] >= sizes[right] - tails[right] ? left : right;
+                            sizes[i] += outline(larger, sizes, tails);
+                            if (sizes[i] > METHOD_SIZE) {
+                                sizes[i] += outline(larger == left ? right : left, sizes, tails);
+                            }
+                        }
+                        stack[top] = i;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Generates a subtree as a helper method.
+         * @return the change of the size of the method calling it
+         */
+        private int outline(int root, int[] sizes, int[] tails) {
+            if (outlined[root]) {
+                return 0;
+            }
+            outlined[root] = true;
+            helpers.computeIfAbsent(starts[root], k -> new ArrayList<>()).add(root);
+            int before = sizes[root];
+            sizes[root] = CALL_SIZE + tails[root];
+            return sizes[root] - before;
+        }
+
+        private int instructionSize(int index) throws IOException {
+            Code scratch = new Code();
+            instruction(scratch, index, false, Frame.ENTRY);
+            return scratch.bytes.size();
+        }
+
+        private byte[] method(int access, int name, int descriptor, int maxStack, int maxLocals, byte[] body)
+                throws IOException, CalculationException {
+            if (body.length > MAX_CODE_LENGTH || maxLocals > MAX_CODE_LENGTH) {
+                throw new CalculationException("Formula is too large to be compiled into bytecode.");
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(code);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+            return bytes.toByteArray();
+        }
+
+        private byte[] initCode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(0x2a); // aload_0
+            bytes.write(0xb7); // invokespecial
+            int constructor = methodConstant("java/lang/Object", "<init>", "()V");
+            bytes.write(constructor >>> 8);
+            bytes.write(constructor);
+            bytes.write(0xb1); // return
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Generates the body of {@code eval}, {@code eval64} or a helper calculating the subtree from {@code start}
+         * to {@code end}. The methods calculate on packed values. {@code eval} and its helpers expand each
+         * proposition to all zeros or all ones.
+         */
+        private byte[] evalCode(boolean packed, Frame frame, int start, int end, boolean entry) throws IOException {
+            Code code = new Code();
+            if (entry && frame == Frame.ENTRY && program.getSlotCount() > 0) {
+                code.pushInt(program.getSlotCount());
+                code.op(0xbc); // newarray
+                code.op(11); // long
+                code.local(0x3a, frame.slots); // astore
+            }
+            for (int i = start; i <= end; ++ i) {
+                // the method does not call itself
+                int helper = helperAt(i, i == start ? end : end + 1);
+                if (helper < 0) {
+                    instruction(code, i, packed, frame);
+                    continue;
+                }
+                code.local(packed ? 0x19 : 0x16, frame.input); // aload or lload
+                if (program.getSlotCount() > 0) {
+                    code.local(0x19, frame.slots); // aload
+                } else {
+                    code.op(0x01); // aconst_null
+                }
+                int method = methodConstant(CLASS_NAME, (packed ? "p" : "e") + helper,
+                        packed ? "([J[J)J" : "(J[J)J");
+                code.op(0xb8); // invokestatic
+                code.op(method >>> 8);
+                code.op(method);
+                i = helper;
+            }
+            if (packed || !entry) {
+                code.op(0xad); // lreturn
+            } else {
+                code.op(0x88); // l2i
+                code.op(0x04); // iconst_1
+                code.op(0x7e); // iand
+                code.op(0xac); // ireturn
+            }
+            return code.bytes.toByteArray();
+        }
+
+        /**
+         * Finds the largest subtree generated as a helper method that starts at an instruction and ends before a
+         * limit.
+         * @return the last instruction of the subtree, or -1 if there is none
+         */
+        private int helperAt(int start, int limit) {
+            ArrayList<Integer> ends = helpers.get(start);
+            if (ends != null) {
+                for (int k = ends.size() - 1; k >= 0; -- k) {
+                    if (ends.get(k) < limit) {
+                        return ends.get(k);
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void instruction(Code code, int index, boolean packed, Frame frame) {
+            int operand = operands[index];
+            switch (opcodes[index]) {
+                case Program.VARIABLE:
+                    if (packed) {
+                        code.local(0x19, frame.input); // aload
+                        code.pushInt(operand);
+                        code.op(0x2f); // laload
+                    } else if (operand < 64) {
+                        code.local(0x16, frame.input); // lload
+                        code.pushInt(operand);
+                        code.op(0x7d); // lushr
+                        code.op(0x0a); // lconst_1
+                        code.op(0x7f); // land
+                        code.op(0x75); // lneg
+                    } else {
+                        code.op(0x09); // lconst_0
+                    }
+                    break;
+                case Program.CONSTANT:
+                    if (operand != 0) {
+                        code.ldc2(allOnes);
+                    } else {
+                        code.op(0x09); // lconst_0
+                    }
+                    break;
+                case Program.NOT:
+                    code.not(allOnes);
+                    break;
+                case Program.AND:
+                    code.op(0x7f); // land
+                    break;
+                case Program.OR:
+                    code.op(0x81); // lor
+                    break;
+                case Program.XOR:
+                    code.op(0x83); // lxor
+                    break;
+                case Program.EQUIVALENT:
+                    code.op(0x83);
+                    code.not(allOnes);
+                    break;
+                case Program.IMPLY:
+                    code.store(frame.right);
+                    code.not(allOnes);
+                    code.load(frame.right);
+                    code.op(0x81);
+                    break;
+                case Program.NAND:
+                    code.op(0x7f);
+                    code.not(allOnes);
+                    break;
+                case Program.NOR:
+                    code.op(0x81);
+                    code.not(allOnes);
+                    break;
+                case Program.UNARY_TABLE:
+                    if (operand == 1) {
+                        code.not(allOnes);
+                    } else if (operand == 0 || operand == 3) {
+                        code.op(0x58); // pop2
+                        if (operand == 3) {
+                            code.ldc2(allOnes);
+                        } else {
+                            code.op(0x09);
+                        }
+                    }
+                    break;
+                case Program.STORE:
+                    code.op(0x5c); // dup2
+                    if (frame.slots < 0) {
+                        code.store(frame.firstSlot + operand * 2);
+                    } else {
+                        code.store(frame.right);
+                        code.local(0x19, frame.slots); // aload
+                        code.pushInt(operand);
+                        code.load(frame.right);
+                        code.op(0x50); // lastore
+                    }
+                    break;
+                case Program.LOAD:
+                    if (frame.slots < 0) {
+                        code.load(frame.firstSlot + operand * 2);
+                    } else {
+                        code.local(0x19, frame.slots); // aload
+                        code.pushInt(operand);
+                        code.op(0x2f); // laload
+                    }
+                    break;
+                case Program.BINARY_TABLE:
+                    // disjunction of the true rows of the truth table
+                    code.store(frame.right);
+                    code.store(frame.left);
+                    code.op(0x09);
+                    for (int row = 0; row < 4; ++ row) {
+                        if ((operand & (1 << row)) == 0) {
+                            continue;
+                        }
+                        code.load(frame.left);
+                        if ((row & 2) == 0) {
+                            code.not(allOnes);
+                        }
+                        code.load(frame.right);
+                        if ((row & 1) == 0) {
+                            code.not(allOnes);
+                        }
+                        code.op(0x7f);
+                        code.op(0x81);
+                    }
+                    break;
+            }
+        }
+
+        private final class Code {
+
+            private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            private void op(int opcode) {
+                bytes.write(opcode);
+            }
+
+            private void pushInt(int value) {
+                if (value <= 5) {
+                    op(0x03 + value); // iconst_<n>
+                } else if (value <= Byte.MAX_VALUE) {
+                    op(0x10); // bipush
+                    op(value);
+                } else if (value <= Short.MAX_VALUE) {
+                    op(0x11); // sipush
+                    op(value >>> 8);
+                    op(value);
+                } else {
+                    int index = intConstant(value);
+                    op(0x13); // ldc_w
+                    op(index >>> 8);
+                    op(index);
+                }
+            }
+
+            private void ldc2(int index) {
+                op(0x14); // ldc2_w
+                op(index >>> 8);
+                op(index);
+            }
+
+            private void not(int allOnes) {
+                ldc2(allOnes);
+                op(0x83); // lxor
+            }
+
+            private void store(int local) {
+                local(0x37, local); // lstore
+            }
+
+            private void load(int local) {
+                local(0x16, local); // lload
+            }
+
+            private void local(int opcode, int local) {
+                if (local <= 3) {
+                    switch (opcode) {
+                        case 0x16: op(0x1e + local); return; // lload_<n>
+                        case 0x19: op(0x2a + local); return; // aload_<n>
+                        case 0x37: op(0x3f + local); return; // lstore_<n>
+                        case 0x3a: op(0x4b + local); return; // astore_<n>
+                    }
+                }
+                if (local > 0xff) {
+                    op(0xc4); // wide
+                    op(opcode);
+                    op(local >>> 8);
+                } else {
+                    op(opcode);
+                }
+                op(local);
+            }
+        }
+
+        private int utf8(String value) {
+            return constant("U" + value, 1, () -> {
+                pool.writeByte(1);
+                pool.writeUTF(value);
+            });
+        }
+
+        private int classConstant(String name) {
+            int nameIndex = utf8(name);
+            return constant("C" + name, 1, () -> {
+                pool.writeByte(7);
+                pool.writeShort(nameIndex);
+            });
+        }
+
+        private int methodConstant(String owner, String name, String descriptor) {
+            int ownerIndex = classConstant(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = constant("N" + name + ' ' + descriptor, 1, () -> {
+                pool.writeByte(12);
+                pool.writeShort(nameIndex);
+                pool.writeShort(descriptorIndex);
+            });
+            return constant("M" + owner + '.' + name + descriptor, 1, () -> {
+                pool.writeByte(10);
+                pool.writeShort(ownerIndex);
+                pool.writeShort(nameAndType);
+            });
+        }
+
+        private int intConstant(int value) {
+            return constant("I" + value, 1, () -> {
+                pool.writeByte(3);
+                pool.writeInt(value);
+            });
+        }
+
+        private int longConstant(long value) {
+            return constant("J" + value, 2, () -> {
+                pool.writeByte(5);
+                pool.writeLong(value);
+            });
+        }
+
+        /**
+         * Adds a constant to the pool unless an equal one exists.
+         * @param key identifies the constant
+         * @param slots number of pool entries the constant takes
+         * @param writer writes the constant to the pool
+         * @return the index of the constant
+         */
+        private int constant(String key, int slots, PoolWriter writer) {
+            Integer index = constants.get(key);
+            if (index == null) {
+                try {
+                    writer.write();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                index = constantCount;
+                constantCount += slots;
+                constants.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PoolWriter {
+        void write() throws IOException;
+    }
+}
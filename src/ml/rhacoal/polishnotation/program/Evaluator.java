@@ -0,0 +1,27 @@
+package ml.rhacoal.polishnotation.program;
+
+/**
+ * Calculates a formula whose propositions are referred to by indices.
+ * @see BytecodeCompiler#compile(Program)
+ */
+public interface Evaluator {
+
+    /**
+     * Calculates the formula under one assignment.
+     * Bit {@code i} of {@code assignment} is the value of the proposition of index {@code i}. Propositions with an
+     * index of 64 or more are regarded as false.
+     * @param assignment the values of the propositions
+     * @return the result of the formula
+     */
+    boolean eval(long assignment);
+
+    /**
+     * Calculates the formula on 64 assignments at once.
+     * Bit {@code k} of {@code vars[i]} is the value of the proposition of index {@code i} in the {@code k}-th
+     * assignment.
+     * @param vars values of the propositions in index order
+     * @return the results of the formula, one per bit
+     */
+    long eval64(long[] vars);
+
+}
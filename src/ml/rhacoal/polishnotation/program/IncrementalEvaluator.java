@@ -0,0 +1,225 @@
+package ml.rhacoal.polishnotation.program;
+
+import java.util.Arrays;
+
+/**
+ * An {@link Evaluator} that keeps the value of every node of a {@link Program} between calculations and only
+ * recalculates the nodes above the propositions whose values changed.
+ * <p>The program is turned into a graph with one node per proposition and per operator, in which every node knows
+ * its fathers; the nodes shared through {@link Program#STORE} and {@link Program#LOAD} have several. When a
+ * proposition changes, its fathers are queued, and every recalculated node whose value changed queues its own
+ * fathers in turn. Nodes are recalculated level by level from the propositions up, so each one is calculated at most
+ * once per call and always after its children.</p>
+ * <p>This pays off when consecutive calls differ in few propositions, such as the blocks of a truth table in
+ * Gray-code order, where exactly one proposition changes per block. The evaluator is not thread-safe.</p>
+ */
+public final class IncrementalEvaluator implements Evaluator {
+
+    private static final byte VARIABLE = 0, CONSTANT = 1, UNARY = 2, BINARY = 3;
+
+    private final int variableCount;
+    private final byte[] kinds;
+    /** The truth table of each operator, in the form of {@link Program#UNARY_TABLE} and {@link Program#BINARY_TABLE}. */
+    private final int[] tables;
+    private final int[] lefts, rights;
+    /** The fathers of node {@code i} are {@code fathers[fatherStarts[i]]} to {@code fathers[fatherStarts[i + 1] - 1]}. */
+    private final int[] fatherStarts, fathers;
+    private final int[] levels;
+    private final int root;
+
+    private final long[] values;
+    private final long[] variables;
+    private final long[] assignmentBits;
+    private boolean calculated;
+
+    /** The queued nodes of each level, with the number of queued nodes per level. */
+    private final int[][] queues;
+    private final int[] queueSizes;
+    private final boolean[] queued;
+
+    /**
+     * Constructs an evaluator of a program.
+     * @param program the program
+     */
+    public IncrementalEvaluator(Program program) {
+        variableCount = program.getVariableCount();
+        int capacity = variableCount + program.size();
+        byte[] kinds = new byte[capacity];
+        int[] tables = new int[capacity], lefts = new int[capacity], rights = new int[capacity];
+        int[] levels = new int[capacity];
+        int size = variableCount; // the nodes of the propositions come first
+        int[] stack = new int[Math.max(program.getMaxDepth(), 1)];
+        int[] slots = new int[program.getSlotCount()];
+        int top = -1;
+        for (int i = 0; i < program.size(); ++ i) {
+            byte opcode = program.getOpcode(i);
+            int operand = program.getOperand(i);
+            switch (opcode) {
+                case Program.VARIABLE:
+                    stack[++ top] = operand;
+                    break;
+                case Program.CONSTANT:
+                    kinds[size] = CONSTANT;
+                    tables[size] = operand;
+                    stack[++ top] = size ++;
+                    break;
+                case Program.STORE:
+                    slots[operand] = stack[top];
+                    break;
+                case Program.LOAD:
+                    stack[++ top] = slots[operand];
+                    break;
+                case Program.NOT:
+                case Program.UNARY_TABLE:
+                    kinds[size] = UNARY;
+                    tables[size] = opcode == Program.NOT ? 1 : operand;
+                    rights[size] = stack[top];
+                    levels[size] = levels[stack[top]] + 1;
+                    stack[top] = size ++;
+                    break;
+                default:
+                    kinds[size] = BINARY;
+                    tables[size] = binaryTable(opcode, operand);
+                    lefts[size] = stack[top - 1];
+                    rights[size] = stack[top];
+                    levels[size] = Math.max(levels[stack[top - 1]], levels[stack[top]]) + 1;
+                    stack[-- top] = size ++;
+            }
+        }
+        this.root = stack[0];
+        this.kinds = Arrays.copyOf(kinds, size);
+        this.tables = Arrays.copyOf(tables, size);
+        this.lefts = Arrays.copyOf(lefts, size);
+        this.rights = Arrays.copyOf(rights, size);
+        this.levels = Arrays.copyOf(levels, size);
+        // the fathers of each node, in compressed rows
+        fatherStarts = new int[size + 1];
+        for (int i = variableCount; i < size; ++ i) {
+            if (kinds[i] == BINARY) {
+                ++ fatherStarts[lefts[i] + 1];
+            }
+            if (kinds[i] == UNARY || kinds[i] == BINARY) {
+                ++ fatherStarts[rights[i] + 1];
+            }
+        }
+        for (int i = 0; i < size; ++ i) {
+            fatherStarts[i + 1] += fatherStarts[i];
+        }
+        fathers = new int[fatherStarts[size]];
+        int[] next = Arrays.copyOf(fatherStarts, size);
+        for (int i = variableCount; i < size; ++ i) {
+            if (kinds[i] == BINARY) {
+                fathers[next[lefts[i]] ++] = i;
+            }
+            if (kinds[i] == UNARY || kinds[i] == BINARY) {
+                fathers[next[rights[i]] ++] = i;
+            }
+        }
+        int maxLevel = 0;
+        for (int i = 0; i < size; ++ i) {
+            maxLevel = Math.max(maxLevel, levels[i]);
+        }
+        int[] levelSizes = new int[maxLevel + 1];
+        for (int i = 0; i < size; ++ i) {
+            ++ levelSizes[levels[i]];
+        }
+        queues = new int[maxLevel + 1][];
+        for (int level = 0; level <= maxLevel; ++ level) {
+            queues[level] = new int[levelSizes[level]];
+        }
+        queueSizes = new int[maxLevel + 1];
+        queued = new boolean[size];
+        values = new long[size];
+        variables = new long[variableCount];
+        assignmentBits = new long[variableCount];
+    }
+
+    private static int binaryTable(byte opcode, int operand) {
+        switch (opcode) {
+            case Program.AND: return 0b1000;
+            case Program.OR: return 0b1110;
+            case Program.XOR: return 0b0110;
+            case Program.EQUIVALENT: return 0b1001;
+            case Program.IMPLY: return 0b1011;
+            case Program.NAND: return 0b0111;
+            case Program.NOR: return 0b0001;
+            default: return operand;
+        }
+    }
+
+    @Override
+    public boolean eval(long assignment) {
+        for (int i = 0; i < variableCount; ++ i) {
+            assignmentBits[i] = i < 64 ? -((assignment >>> i) & 1L) : 0L;
+        }
+        return eval64(assignmentBits) != 0;
+    }
+
+    @Override
+    public long eval64(long[] vars) {
+        if (!calculated) {
+            System.arraycopy(vars, 0, variables, 0, variableCount);
+            for (int i = 0; i < values.length; ++ i) {
+                values[i] = i < variableCount ? vars[i] : calculate(i);
+            }
+            calculated = true;
+            return values[root];
+        }
+        for (int i = 0; i < variableCount; ++ i) {
+            if (vars[i] != variables[i]) {
+                variables[i] = vars[i];
+                values[i] = vars[i];
+                queueFathers(i);
+            }
+        }
+        for (int level = 1; level < queues.length; ++ level) {
+            int[] queue = queues[level];
+            for (int k = 0; k < queueSizes[level]; ++ k) {
+                int node = queue[k];
+                queued[node] = false;
+                long value = calculate(node);
+                if (value != values[node]) {
+                    values[node] = value;
+                    queueFathers(node);
+                }
+            }
+            queueSizes[level] = 0;
+        }
+        return values[root];
+    }
+
+    private void queueFathers(int node) {
+        for (int k = fatherStarts[node], end = fatherStarts[node + 1]; k < end; ++ k) {
+            int father = fathers[k];
+            if (!queued[father]) {
+                queued[father] = true;
+                queues[levels[father]][queueSizes[levels[father]] ++] = father;
+            }
+        }
+    }
+
+    private long calculate(int node) {
+        int table = tables[node];
+        switch (kinds[node]) {
+            case CONSTANT:
+                return table != 0 ? -1L : 0L;
+            case UNARY: {
+                long r = values[rights[node]];
+                return (~r & -(table & 1)) | (r & -((table >>> 1) & 1));
+            }
+            default: {
+                long l = values[lefts[node]], r = values[rights[node]];
+                switch (table) {
+                    case 0b1000: return l & r;
+                    case 0b1110: return l | r;
+                    case 0b0110: return l ^ r;
+                    case 0b1001: return ~(l ^ r);
+                    case 0b1011: return ~l | r;
+                    default:
+                        return (~l & ~r & -(table & 1)) | (~l & r & -((table >>> 1) & 1))
+                                | (l & ~r & -((table >>> 2) & 1)) | (l & r & -((table >>> 3) & 1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package ml.rhacoal.polishnotation.program;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.NodeBase;
+import ml.rhacoal.polishnotation.node.operatornode.DefaultBinaryImpl;
+import ml.rhacoal.polishnotation.node.operatornode.DefaultUnaryImpl;
+import ml.rhacoal.polishnotation.node.operatornode.OperatorNode;
+import ml.rhacoal.polishnotation.node.operatornode.ParenthesisNode;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+
+import java.util.*;
+
+/**
+ * A propositional formula compiled into a flat postfix program.
+ * <p>The program consists of an opcode array and an operand array of the same length, in the same order as
+ * {@link NodeBase#toReversePolishNotation()}. Propositions are referred to by their indices in
+ * {@link Program#getVariables()}. Operators are identified by their truth tables, so any operator created from
+ * {@link ml.rhacoal.polishnotation.node.operatornode.OperatorInfo} can be compiled.</p>
+ * <p>A node shared by several fathers, as produced by {@link Calculator#calculates(String, boolean)}, is calculated
+ * once: its value is stored into a slot the first time and loaded from the slot afterwards.</p>
+ * <p>Instances of this class are immutable. Use a {@link StackMachine} to run them.</p>
+ */
+public final class Program {
+
+    /** Pushes the variable whose index is the operand. */
+    public static final byte VARIABLE = 0;
+    /** Pushes the constant given by the operand, 0 for false and 1 for true. */
+    public static final byte CONSTANT = 1;
+    public static final byte NOT = 2;
+    public static final byte AND = 3;
+    public static final byte OR = 4;
+    public static final byte XOR = 5;
+    public static final byte EQUIVALENT = 6;
+    public static final byte IMPLY = 7;
+    public static final byte NAND = 8;
+    public static final byte NOR = 9;
+    /** Applies the unary operator whose truth table is the operand. */
+    public static final byte UNARY_TABLE = 10;
+    /** Applies the binary operator whose truth table is the operand. */
+    public static final byte BINARY_TABLE = 11;
+    /** Stores the top of the stack into the slot given by the operand, leaving the stack unchanged. */
+    public static final byte STORE = 12;
+    /** Pushes the value of the slot given by the operand. */
+    public static final byte LOAD = 13;
+
+    private final byte[] opcodes;
+    private final int[] operands;
+    private final String[] variables;
+    private final int maxDepth;
+    private final int slotCount;
+
+    private Program(byte[] opcodes, int[] operands, String[] variables, int maxDepth, int slotCount) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.variables = variables;
+        this.maxDepth = maxDepth;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Creates a program from instructions already checked, such as those loaded by {@link ProgramLibrary}.
+     */
+    static Program of(byte[] opcodes, int[] operands, String[] variables, int maxDepth, int slotCount) {
+        return new Program(opcodes, operands, variables, maxDepth, slotCount);
+    }
+
+    /**
+     * Compiles the result of {@link Calculator#calculates(String)}.
+     * Propositions are indexed in the order of {@link Calculator.Result#getPropositions()}: in lexicographical order,
+     * the same as {@link Calculator#getTruthTable(NodeBase, HashMap, int)}, or in order of their IDs if they are
+     * interned into a {@link ml.rhacoal.polishnotation.SymbolTable}.
+     * @param result the result to compile
+     * @return the compiled program
+     * @throws CalculationException if the formula contains an operator that cannot be compiled
+     */
+    public static Program compile(Calculator.Result result) throws CalculationException {
+        return compile(result.root, result.getPropositions());
+    }
+
+    /**
+     * Compiles a {@link NodeBase} with the given order of propositions.
+     * @param nodeBase the node base
+     * @param orderedPropositions list of propositions in order. The index of a proposition in the list is its index
+     *                            in the program
+     * @return the compiled program
+     * @throws CalculationException if the formula contains an operator that cannot be compiled, or a proposition
+     * that is not in the list
+     */
+    public static Program compile(NodeBase nodeBase, List<PropositionIdentifierNode> orderedPropositions)
+            throws CalculationException {
+        Builder builder = new Builder(orderedPropositions);
+        builder.countFathers(nodeBase);
+        builder.append(nodeBase);
+        String[] variables = new String[orderedPropositions.size()];
+        for (int i = 0; i < variables.length; ++ i) {
+            variables[i] = orderedPropositions.get(i).getStringRepresentation();
+        }
+        return new Program(
+                Arrays.copyOf(builder.opcodes, builder.size),
+                Arrays.copyOf(builder.operands, builder.size),
+                variables, builder.maxDepth, builder.slotCount);
+    }
+
+    private static final class Builder {
+
+        private final IdentityHashMap<PropositionIdentifierNode, Integer> indices;
+        // number of fathers of each operator node, and the slot of each shared node once it is calculated
+        private final IdentityHashMap<NodeBase, Integer> fathers = new IdentityHashMap<>();
+        private final IdentityHashMap<NodeBase, Integer> slots = new IdentityHashMap<>();
+        private byte[] opcodes = new byte[16];
+        private int[] operands = new int[16];
+        private int size;
+        private int maxDepth;
+        private int slotCount;
+
+        private Builder(List<PropositionIdentifierNode> orderedPropositions) {
+            indices = new IdentityHashMap<>();
+            for (int i = 0; i < orderedPropositions.size(); ++ i) {
+                indices.put(orderedPropositions.get(i), i);
+            }
+        }
+
+        /**
+         * Counts the fathers of the operator nodes below a node, visiting each node once.
+         */
+        private void countFathers(NodeBase root) {
+            NodeBase[] stack = new NodeBase[16];
+            int top = 0;
+            stack[0] = root;
+            while (top >= 0) {
+                NodeBase node = stack[top --];
+                if (!(node instanceof OperatorNode)) {
+                    continue;
+                }
+                if (top + 2 >= stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length << 1);
+                }
+                NodeBase left = ((OperatorNode) node).getLeftChild(), right = ((OperatorNode) node).getRightChild();
+                if (left instanceof OperatorNode && fathers.merge(left, 1, Integer::sum) == 1) {
+                    stack[++ top] = left;
+                }
+                if (right instanceof OperatorNode && fathers.merge(right, 1, Integer::sum) == 1) {
+                    stack[++ top] = right;
+                }
+            }
+        }
+
+        /**
+         * Appends the instructions of a node in postfix order, walking the nodes with an explicit stack.
+         * A node with more than one father is calculated only once.
+         * @param root the node to append
+         */
+        private void append(NodeBase root) throws CalculationException {
+            NodeBase[] nodes = new NodeBase[16];
+            // the stack depth after each node is calculated, and the number of its operands already appended
+            int[] depths = new int[16];
+            byte[] states = new byte[16];
+            int top = 0;
+            nodes[0] = root;
+            depths[0] = 1;
+            while (top >= 0) {
+                NodeBase node = nodes[top];
+                int depth = depths[top];
+                NodeBase next;
+                if (states[top] == 0) {
+                    maxDepth = Math.max(maxDepth, depth);
+                    Integer slot = slots.get(node);
+                    if (slot != null) {
+                        emit(LOAD, slot);
+                        -- top;
+                        continue;
+                    }
+                    if (node instanceof PropositionIdentifierNode) {
+                        appendProposition((PropositionIdentifierNode) node);
+                        -- top;
+                        continue;
+                    }
+                    if (!(node instanceof ParenthesisNode || node instanceof DefaultUnaryImpl
+                            || node instanceof DefaultBinaryImpl)) {
+                        throw new CalculationException(
+                                "Operator \"" + ((OperatorNode) node).name() + "\" cannot be compiled.");
+                    }
+                    states[top] = 1;
+                    next = node instanceof DefaultBinaryImpl ?
+                            ((OperatorNode) node).getLeftChild() : ((OperatorNode) node).getRightChild();
+                } else if (states[top] == 1 && node instanceof DefaultBinaryImpl) {
+                    states[top] = 2;
+                    next = ((OperatorNode) node).getRightChild();
+                    ++ depth;
+                } else {
+                    appendOperator(node);
+                    Integer count = fathers.get(node);
+                    if (count != null && count > 1) {
+                        slots.put(node, slotCount);
+                        emit(STORE, slotCount ++);
+                    }
+                    -- top;
+                    continue;
+                }
+                if (++ top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    depths = Arrays.copyOf(depths, top << 1);
+                    states = Arrays.copyOf(states, top << 1);
+                }
+                nodes[top] = next;
+                depths[top] = depth;
+                states[top] = 0;
+            }
+        }
+
+        private void appendProposition(PropositionIdentifierNode node) throws CalculationException {
+            if (node == PropositionIdentifierNode.constant(true)) {
+                emit(CONSTANT, 1);
+            } else if (node == PropositionIdentifierNode.constant(false)) {
+                emit(CONSTANT, 0);
+            } else {
+                Integer index = indices.get(node);
+                if (index == null) {
+                    throw new CalculationException("Proposition \"" + node.toExpression() + "\" is not indexed.");
+                }
+                emit(VARIABLE, index);
+            }
+        }
+
+        /**
+         * Appends the instruction of an operator whose operands are appended.
+         */
+        private void appendOperator(NodeBase node) {
+            if (node instanceof DefaultUnaryImpl) {
+                int truthTable = ((DefaultUnaryImpl) node).getOperatorInfo().truthTable & 3;
+                if (truthTable == 1) {
+                    emit(NOT, 0);
+                } else if (truthTable != 2) { // 2 is identity
+                    emit(UNARY_TABLE, truthTable);
+                }
+            } else if (node instanceof DefaultBinaryImpl) {
+                int truthTable = ((DefaultBinaryImpl) node).getOperatorInfo().truthTable;
+                emit(binaryOpcode(truthTable), truthTable);
+            }
+        }
+
+        private void emit(byte opcode, int operand) {
+            if (size == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, size + (size >> 1));
+                operands = Arrays.copyOf(operands, size + (size >> 1));
+            }
+            opcodes[size] = opcode;
+            operands[size] = operand;
+            ++ size;
+        }
+    }
+
+    private static byte binaryOpcode(int truthTable) {
+        switch (truthTable) {
+            case 0b1000: return AND;
+            case 0b1110: return OR;
+            case 0b0110: return XOR;
+            case 0b1001: return EQUIVALENT;
+            case 0b1011: return IMPLY;
+            case 0b0111: return NAND;
+            case 0b0001: return NOR;
+            default: return BINARY_TABLE;
+        }
+    }
+
+    /**
+     * Returns the number of instructions.
+     * @return the number of instructions
+     */
+    public int size() {
+        return opcodes.length;
+    }
+
+    /**
+     * Returns the opcode of an instruction.
+     * @param index the index of the instruction
+     * @return the opcode
+     */
+    public byte getOpcode(int index) {
+        return opcodes[index];
+    }
+
+    /**
+     * Returns the operand of an instruction.
+     * @param index the index of the instruction
+     * @return the operand
+     */
+    public int getOperand(int index) {
+        return operands[index];
+    }
+
+    /**
+     * Returns the names of the propositions in index order.
+     * @return a copy of the names
+     */
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    /**
+     * Returns the number of propositions.
+     * @return the number of propositions
+     */
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    /**
+     * Returns the stack depth needed to run the program.
+     * @return the maximum stack depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of slots holding the values of shared nodes.
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Creates an {@link Evaluator} that runs this program on its own {@link StackMachine}.
+     * The evaluator is not thread-safe.
+     * @return a new evaluator
+     */
+    public Evaluator newEvaluator() {
+        final StackMachine machine = new StackMachine();
+        return new Evaluator() {
+            @Override
+            public boolean eval(long assignment) {
+                return machine.run(Program.this, assignment);
+            }
+
+            @Override
+            public long eval64(long[] vars) {
+                return machine.runBits(Program.this, vars);
+            }
+        };
+    }
+
+    byte[] opcodes() {
+        return opcodes;
+    }
+
+    int[] operands() {
+        return operands;
+    }
+}
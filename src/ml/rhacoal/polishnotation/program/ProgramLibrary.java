@@ -0,0 +1,433 @@
+package ml.rhacoal.polishnotation.program;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A read-only collection of {@link Program}s in a compact binary format, so compiled formulas can be stored once and
+ * loaded without parsing them again.
+ * <p>The format is little-endian and made of int-aligned sections, in this order:</p>
+ * <ul>
+ *     <li>the header of {@value HEADER_SIZE} bytes: the magic number {@code "PNFL"}, the version as a short, the
+ *     number of opcodes known to the writer as a short, then the numbers of programs, symbols, variable references,
+ *     instructions and string bytes, and a reserved int;</li>
+ *     <li>the directory, {@value ENTRY_INTS} ints per program: its first instruction, its number of instructions,
+ *     its first variable reference, its number of propositions, its maximum stack depth and its number of slots;</li>
+ *     <li>the variable references, the symbol of each proposition of each program in index order;</li>
+ *     <li>the symbol table, the offset of each symbol in the string bytes followed by the end offset, so the names
+ *     shared by several programs are stored once;</li>
+ *     <li>the instructions, one int each, holding the opcode in the low 4 bits and the operand above them;
+ *     operators are identified by the opcodes and truth tables of {@link Program};</li>
+ *     <li>the names of the symbols in UTF-8.</li>
+ * </ul>
+ * <p>{@link ProgramLibrary#load(Path)} maps a file into memory. The whole buffer is checked when it is opened, in one
+ * pass over the instructions that also replays the stack depth, so a damaged or foreign file is rejected instead of
+ * failing during calculation; trusted files may skip this pass with {@link ProgramLibrary#load(Path, boolean)}. Programs are then either copied out with {@link ProgramLibrary#getProgram(int)}, or
+ * calculated straight from the buffer with {@link ProgramLibrary#newEvaluator(int)}. Names are decoded on first
+ * use.</p>
+ * <p>A library only reads its buffer with absolute methods, so it may be shared between threads; the evaluators it
+ * creates may not.</p>
+ */
+public final class ProgramLibrary {
+
+    /** The bytes {@code "PNFL"} read as a little-endian int. */
+    private static final int MAGIC = 0x4C464E50;
+    private static final short VERSION = 1;
+    private static final short OPCODE_COUNT = Program.LOAD + 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_INTS = 6;
+    private static final int OPCODE_BITS = 4;
+    private static final int MAX_OPERAND = (1 << (32 - OPCODE_BITS)) - 1;
+
+    private final ByteBuffer buffer;
+    private final int programCount;
+    private final int directoryOffset, referenceOffset, symbolOffset, instructionOffset, stringOffset;
+    private final String[] symbols;
+
+    private ProgramLibrary(ByteBuffer buffer, boolean verify) throws IOException {
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer b = this.buffer;
+        if (b.capacity() < HEADER_SIZE || b.getInt(0) != MAGIC) {
+            throw new IOException("Not a program library.");
+        }
+        if (b.getShort(4) != VERSION) {
+            throw new IOException("Unsupported program library version: " + b.getShort(4));
+        }
+        if (b.getShort(6) > OPCODE_COUNT) {
+            throw new IOException("The program library uses unknown opcodes.");
+        }
+        programCount = b.getInt(8);
+        int symbolCount = b.getInt(12), referenceCount = b.getInt(16), instructionCount = b.getInt(20);
+        int stringSize = b.getInt(24);
+        if ((programCount | symbolCount | referenceCount | instructionCount | stringSize) < 0) {
+            throw new IOException("Corrupt program library header.");
+        }
+        long end = HEADER_SIZE;
+        directoryOffset = (int) end;
+        end += 4L * ENTRY_INTS * programCount;
+        referenceOffset = (int) Math.min(end, Integer.MAX_VALUE);
+        end += 4L * referenceCount;
+        symbolOffset = (int) Math.min(end, Integer.MAX_VALUE);
+        end += 4L * (symbolCount + 1L);
+        instructionOffset = (int) Math.min(end, Integer.MAX_VALUE);
+        end += 4L * instructionCount;
+        stringOffset = (int) Math.min(end, Integer.MAX_VALUE);
+        end += stringSize;
+        if (end != b.capacity()) {
+            throw new IOException("The size of the program library does not match its header.");
+        }
+        symbols = new String[symbolCount];
+        validate(symbolCount, referenceCount, instructionCount, stringSize, verify);
+    }
+
+    /**
+     * Checks the symbol table and the directory and, if {@code verify} is set, the variable references and the
+     * instructions.
+     */
+    private void validate(int symbolCount, int referenceCount, int instructionCount, int stringSize, boolean verify)
+            throws IOException {
+        ByteBuffer b = buffer;
+        for (int i = 0, previous = 0; i <= symbolCount; ++ i) {
+            int offset = b.getInt(symbolOffset + 4 * i);
+            if (offset < previous || offset > stringSize || (i == 0 && offset != 0)) {
+                throw new IOException("Corrupt symbol table at symbol " + i + ".");
+            }
+            previous = offset;
+        }
+        for (int i = 0; verify && i < referenceCount; ++ i) {
+            int symbol = b.getInt(referenceOffset + 4 * i);
+            if (symbol < 0 || symbol >= symbolCount) {
+                throw new IOException("Corrupt variable reference " + i + ".");
+            }
+        }
+        for (int p = 0; p < programCount; ++ p) {
+            int entry = directoryOffset + 4 * ENTRY_INTS * p;
+            int first = b.getInt(entry), count = b.getInt(entry + 4);
+            int firstReference = b.getInt(entry + 8), variableCount = b.getInt(entry + 12);
+            int maxDepth = b.getInt(entry + 16), slotCount = b.getInt(entry + 20);
+            if (first < 0 || count <= 0 || first > instructionCount - count || firstReference < 0
+                    || variableCount < 0 || firstReference > referenceCount - variableCount
+                    || maxDepth <= 0 || maxDepth > count || slotCount < 0 || slotCount > count) {
+                throw new IOException("Corrupt directory entry of program " + p + ".");
+            }
+            if (!verify) {
+                continue;
+            }
+            int depth = 0;
+            for (int i = 0; i < count; ++ i) {
+                int instruction = b.getInt(instructionOffset + 4 * (first + i));
+                int opcode = instruction & ((1 << OPCODE_BITS) - 1), operand = instruction >>> OPCODE_BITS;
+                int needed, pushed;
+                boolean valid;
+                switch (opcode) {
+                    case Program.VARIABLE:
+                        needed = 0; pushed = 1; valid = operand < variableCount;
+                        break;
+                    case Program.CONSTANT:
+                        needed = 0; pushed = 1; valid = operand <= 1;
+                        break;
+                    case Program.NOT:
+                        needed = 1; pushed = 1; valid = true;
+                        break;
+                    case Program.UNARY_TABLE:
+                        needed = 1; pushed = 1; valid = operand < 4;
+                        break;
+                    case Program.BINARY_TABLE:
+                        needed = 2; pushed = 1; valid = operand < 16;
+                        break;
+                    case Program.STORE:
+                        needed = 1; pushed = 1; valid = operand < slotCount;
+                        break;
+                    case Program.LOAD:
+                        needed = 0; pushed = 1; valid = operand < slotCount;
+                        break;
+                    default:
+                        needed = 2; pushed = 1; valid = opcode < OPCODE_COUNT;
+                }
+                depth += pushed - needed;
+                if (!valid || depth < pushed || depth > maxDepth) {
+                    throw new IOException("Corrupt instruction " + i + " of program " + p + ".");
+                }
+            }
+            if (depth != 1) {
+                throw new IOException("Program " + p + " does not leave exactly one value.");
+            }
+        }
+    }
+
+    /**
+     * Opens a library held by a buffer, which must not change afterwards. The library starts at the position of the
+     * buffer and ends at its limit.
+     * @param buffer the buffer
+     * @return the library
+     * @throws IOException if the buffer does not hold a valid library
+     */
+    public static ProgramLibrary open(ByteBuffer buffer) throws IOException {
+        return new ProgramLibrary(buffer, true);
+    }
+
+    /**
+     * Opens a library held by a buffer, optionally skipping the check of the instructions.
+     * <p>Without verification, only the header, the symbol table and the directory are checked, which takes time in
+     * proportion to the number of programs rather than to their size. A library written by this class and not
+     * changed since may skip verification; calculating a damaged one may then fail with a runtime exception or give
+     * wrong results.</p>
+     * @see ProgramLibrary#open(ByteBuffer)
+     * @param buffer the buffer
+     * @param verify whether to check every variable reference and instruction
+     * @return the library
+     * @throws IOException if the buffer does not hold a valid library
+     */
+    public static ProgramLibrary open(ByteBuffer buffer, boolean verify) throws IOException {
+        return new ProgramLibrary(buffer, verify);
+    }
+
+    /**
+     * Maps a file written by {@link ProgramLibrary#write(List, Path)} into memory and opens it. The file stays
+     * mapped as long as the library is reachable.
+     * @param path the file
+     * @return the library
+     * @throws IOException if the file cannot be read or does not hold a valid library
+     */
+    public static ProgramLibrary load(Path path) throws IOException {
+        return load(path, true);
+    }
+
+    /**
+     * Maps a file into memory and opens it, optionally skipping the check of the instructions.
+     * @see ProgramLibrary#open(ByteBuffer, boolean)
+     * @param path the file
+     * @param verify whether to check every variable reference and instruction
+     * @return the library
+     * @throws IOException if the file cannot be read or does not hold a valid library
+     */
+    public static ProgramLibrary load(Path path, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), verify);
+        }
+    }
+
+    /**
+     * Writes programs in the format of a library.
+     * @param programs the programs, in the order of their indices in the library
+     * @param channel the channel to write to, which is not closed
+     * @throws IOException if the channel fails
+     * @throws IllegalArgumentException if the library would not fit in 2 GB, or an operand is too large to store
+     */
+    public static void write(List<Program> programs, WritableByteChannel channel) throws IOException {
+        HashMap<String, Integer> symbolIndices = new HashMap<>();
+        ArrayList<byte[]> names = new ArrayList<>();
+        long referenceCount = 0, instructionCount = 0, stringSize = 0;
+        for (Program program : programs) {
+            for (String variable : program.getVariables()) {
+                if (symbolIndices.putIfAbsent(variable, names.size()) == null) {
+                    byte[] name = variable.getBytes(StandardCharsets.UTF_8);
+                    names.add(name);
+                    stringSize += name.length;
+                }
+            }
+            referenceCount += program.getVariableCount();
+            instructionCount += program.size();
+        }
+        long size = HEADER_SIZE + 4L * ENTRY_INTS * programs.size() + 4L * referenceCount
+                + 4L * (names.size() + 1L) + 4L * instructionCount + stringSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many programs for one library: " + size + " bytes.");
+        }
+        ByteBuffer b = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putShort(VERSION).putShort(OPCODE_COUNT).putInt(programs.size()).putInt(names.size())
+                .putInt((int) referenceCount).putInt((int) instructionCount).putInt((int) stringSize).putInt(0);
+        int firstInstruction = 0, firstReference = 0;
+        for (Program program : programs) {
+            b.putInt(firstInstruction).putInt(program.size()).putInt(firstReference).putInt(program.getVariableCount())
+                    .putInt(Math.max(program.getMaxDepth(), 1)).putInt(program.getSlotCount());
+            firstInstruction += program.size();
+            firstReference += program.getVariableCount();
+        }
+        for (Program program : programs) {
+            for (String variable : program.getVariables()) {
+                b.putInt(symbolIndices.get(variable));
+            }
+        }
+        int offset = 0;
+        for (byte[] name : names) {
+            b.putInt(offset);
+            offset += name.length;
+        }
+        b.putInt(offset);
+        for (Program program : programs) {
+            byte[] opcodes = program.opcodes();
+            int[] operands = program.operands();
+            for (int i = 0; i < opcodes.length; ++ i) {
+                if (operands[i] < 0 || operands[i] > MAX_OPERAND) {
+                    throw new IllegalArgumentException("Operand too large to store: " + operands[i]);
+                }
+                b.putInt((operands[i] << OPCODE_BITS) | opcodes[i]);
+            }
+        }
+        for (byte[] name : names) {
+            b.put(name);
+        }
+        b.flip();
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+    }
+
+    /**
+     * Writes programs to a file in the format of a library, replacing the file if it exists.
+     * @see ProgramLibrary#write(List, WritableByteChannel)
+     * @param programs the programs, in the order of their indices in the library
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Program> programs, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(programs, channel);
+        }
+    }
+
+    /**
+     * Returns the number of programs.
+     * @return the number of programs
+     */
+    public int size() {
+        return programCount;
+    }
+
+    /**
+     * Returns the names of the propositions of a program in index order.
+     * @param index the index of the program
+     * @return the names
+     */
+    public String[] getVariables(int index) {
+        int entry = entry(index);
+        int firstReference = buffer.getInt(entry + 8);
+        String[] variables = new String[buffer.getInt(entry + 12)];
+        for (int i = 0; i < variables.length; ++ i) {
+            variables[i] = symbol(buffer.getInt(referenceOffset + 4 * (firstReference + i)));
+        }
+        return variables;
+    }
+
+    /**
+     * Copies a program out of the buffer.
+     * @param index the index of the program
+     * @return the program
+     */
+    public Program getProgram(int index) {
+        int entry = entry(index);
+        int first = buffer.getInt(entry), count = buffer.getInt(entry + 4);
+        byte[] opcodes = new byte[count];
+        int[] operands = new int[count];
+        for (int i = 0; i < count; ++ i) {
+            int instruction = buffer.getInt(instructionOffset + 4 * (first + i));
+            opcodes[i] = (byte) (instruction & ((1 << OPCODE_BITS) - 1));
+            operands[i] = instruction >>> OPCODE_BITS;
+        }
+        return Program.of(opcodes, operands, getVariables(index), buffer.getInt(entry + 16),
+                buffer.getInt(entry + 20));
+    }
+
+    /**
+     * Creates an {@link Evaluator} that calculates a program reading its instructions from the buffer, without
+     * copying them. The evaluator is not thread-safe.
+     * @param index the index of the program
+     * @return a new evaluator
+     */
+    public Evaluator newEvaluator(int index) {
+        int entry = entry(index);
+        return new BufferEvaluator(buffer, instructionOffset + 4 * buffer.getInt(entry), buffer.getInt(entry + 4),
+                buffer.getInt(entry + 12), buffer.getInt(entry + 16), buffer.getInt(entry + 20));
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= programCount) {
+            throw new IndexOutOfBoundsException("Program " + index + " of " + programCount);
+        }
+        return directoryOffset + 4 * ENTRY_INTS * index;
+    }
+
+    private String symbol(int symbol) {
+        String name = symbols[symbol];
+        if (name == null) {
+            int from = buffer.getInt(symbolOffset + 4 * symbol), to = buffer.getInt(symbolOffset + 4 * symbol + 4);
+            byte[] bytes = new byte[to - from];
+            for (int i = 0; i < bytes.length; ++ i) {
+                bytes[i] = buffer.get(stringOffset + from + i);
+            }
+            // strings are immutable, so a name decoded by two threads at once is merely decoded twice
+            name = new String(bytes, StandardCharsets.UTF_8);
+            symbols[symbol] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Runs the instructions of a program in place, in the same way as {@link StackMachine}.
+     */
+    private static final class BufferEvaluator implements Evaluator {
+
+        private final ByteBuffer buffer;
+        private final int offset, count, variableCount;
+        private final long[] stack, slots;
+
+        private BufferEvaluator(ByteBuffer buffer, int offset, int count, int variableCount, int maxDepth,
+                                int slotCount) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.count = count;
+            this.variableCount = variableCount;
+            this.stack = new long[maxDepth];
+            this.slots = new long[slotCount];
+        }
+
+        @Override
+        public boolean eval(long assignment) {
+            final long[] stack = this.stack;
+            int top = -1;
+            for (int i = 0; i < count; ++ i) {
+                int instruction = buffer.getInt(offset + 4 * i);
+                byte opcode = (byte) (instruction & ((1 << OPCODE_BITS) - 1));
+                int operand = instruction >>> OPCODE_BITS;
+                if (opcode == Program.VARIABLE) {
+                    stack[++ top] = operand < 64 ? -((assignment >>> operand) & 1L) : 0L;
+                } else {
+                    top = StackMachine.step(stack, slots, top, opcode, operand);
+                }
+            }
+            return stack[0] != 0;
+        }
+
+        @Override
+        public long eval64(long[] vars) {
+            if (vars.length < variableCount) {
+                throw new IllegalArgumentException(
+                        "Expected values of " + variableCount + " propositions, got " + vars.length + ".");
+            }
+            final long[] stack = this.stack;
+            int top = -1;
+            for (int i = 0; i < count; ++ i) {
+                int instruction = buffer.getInt(offset + 4 * i);
+                byte opcode = (byte) (instruction & ((1 << OPCODE_BITS) - 1));
+                int operand = instruction >>> OPCODE_BITS;
+                if (opcode == Program.VARIABLE) {
+                    stack[++ top] = vars[operand];
+                } else {
+                    top = StackMachine.step(stack, slots, top, opcode, operand);
+                }
+            }
+            return stack[0];
+        }
+    }
+}
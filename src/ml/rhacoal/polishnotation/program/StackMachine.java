@@ -0,0 +1,255 @@
+package ml.rhacoal.polishnotation.program;
+
+import java.util.BitSet;
+
+/**
+ * A reusable stack machine that runs {@link Program}s.
+ * <p>The stacks are kept between runs and only grow when a deeper program is run, so repeated calculations do
+ * not allocate. An instance is not thread-safe; use one instance per thread.</p>
+ */
+public final class StackMachine {
+
+    private boolean[] stack = new boolean[16];
+    private long[] bitStack = new long[16];
+    private boolean[] slots = new boolean[0];
+    private long[] bitSlots = new long[0];
+
+    /**
+     * Runs the program with the values of the propositions.
+     * @param program the program to run
+     * @param values values of the propositions in index order
+     * @return the result of the formula
+     */
+    public boolean run(Program program, boolean[] values) {
+        if (stack.length < program.getMaxDepth()) {
+            stack = new boolean[program.getMaxDepth()];
+        }
+        if (slots.length < program.getSlotCount()) {
+            slots = new boolean[program.getSlotCount()];
+        }
+        final boolean[] stack = this.stack;
+        final boolean[] slots = this.slots;
+        final byte[] opcodes = program.opcodes();
+        final int[] operands = program.operands();
+        int top = -1;
+        for (int i = 0; i < opcodes.length; ++ i) {
+            switch (opcodes[i]) {
+                case Program.VARIABLE:
+                    stack[++ top] = values[operands[i]];
+                    break;
+                case Program.CONSTANT:
+                    stack[++ top] = operands[i] != 0;
+                    break;
+                case Program.NOT:
+                    stack[top] = !stack[top];
+                    break;
+                case Program.AND:
+                    -- top;
+                    stack[top] = stack[top] & stack[top + 1];
+                    break;
+                case Program.OR:
+                    -- top;
+                    stack[top] = stack[top] | stack[top + 1];
+                    break;
+                case Program.XOR:
+                    -- top;
+                    stack[top] = stack[top] ^ stack[top + 1];
+                    break;
+                case Program.EQUIVALENT:
+                    -- top;
+                    stack[top] = stack[top] == stack[top + 1];
+                    break;
+                case Program.IMPLY:
+                    -- top;
+                    stack[top] = !stack[top] | stack[top + 1];
+                    break;
+                case Program.NAND:
+                    -- top;
+                    stack[top] = !(stack[top] & stack[top + 1]);
+                    break;
+                case Program.NOR:
+                    -- top;
+                    stack[top] = !(stack[top] | stack[top + 1]);
+                    break;
+                case Program.UNARY_TABLE:
+                    stack[top] = (operands[i] & (stack[top] ? 2 : 1)) != 0;
+                    break;
+                case Program.BINARY_TABLE:
+                    -- top;
+                    stack[top] = (operands[i] & (1 << ((stack[top] ? 2 : 0) | (stack[top + 1] ? 1 : 0)))) != 0;
+                    break;
+                case Program.STORE:
+                    slots[operands[i]] = stack[top];
+                    break;
+                case Program.LOAD:
+                    stack[++ top] = slots[operands[i]];
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Runs the program with the values of the propositions packed in a {@code long}.
+     * Bit {@code i} of {@code assignment} is the value of the proposition of index {@code i}. Propositions with an
+     * index of 64 or more are regarded as false.
+     * @param program the program to run
+     * @param assignment the values of the propositions
+     * @return the result of the formula
+     */
+    public boolean run(Program program, long assignment) {
+        if (bitStack.length < program.getMaxDepth()) {
+            bitStack = new long[program.getMaxDepth()];
+        }
+        if (bitSlots.length < program.getSlotCount()) {
+            bitSlots = new long[program.getSlotCount()];
+        }
+        final long[] stack = this.bitStack;
+        final long[] slots = this.bitSlots;
+        final byte[] opcodes = program.opcodes();
+        final int[] operands = program.operands();
+        int top = -1;
+        for (int i = 0; i < opcodes.length; ++ i) {
+            if (opcodes[i] == Program.VARIABLE) {
+                stack[++ top] = operands[i] < 64 ? -((assignment >>> operands[i]) & 1L) : 0L;
+            } else {
+                top = step(stack, slots, top, opcodes[i], operands[i]);
+            }
+        }
+        return stack[0] != 0;
+    }
+
+    /**
+     * Runs the program with the values of the propositions held by a {@link BitSet}.
+     * Bit {@code i} of {@code assignment} is the value of the proposition of index {@code i}.
+     * @param program the program to run
+     * @param assignment the values of the propositions
+     * @return the result of the formula
+     */
+    public boolean run(Program program, BitSet assignment) {
+        return run(program, assignment, null);
+    }
+
+    /**
+     * Runs the program with the values of the propositions held by a {@link BitSet} indexed otherwise, such as by the
+     * IDs of a {@link ml.rhacoal.polishnotation.SymbolTable}.
+     * Bit {@code indices[i]} of {@code assignment} is the value of the proposition of index {@code i}.
+     * @param program the program to run
+     * @param assignment the values of the propositions
+     * @param indices the bit of each proposition, or {@code null} if bit {@code i} holds proposition {@code i}
+     * @return the result of the formula
+     */
+    public boolean run(Program program, BitSet assignment, int[] indices) {
+        if (bitStack.length < program.getMaxDepth()) {
+            bitStack = new long[program.getMaxDepth()];
+        }
+        if (bitSlots.length < program.getSlotCount()) {
+            bitSlots = new long[program.getSlotCount()];
+        }
+        final long[] stack = this.bitStack;
+        final long[] slots = this.bitSlots;
+        final byte[] opcodes = program.opcodes();
+        final int[] operands = program.operands();
+        int top = -1;
+        for (int i = 0; i < opcodes.length; ++ i) {
+            if (opcodes[i] == Program.VARIABLE) {
+                stack[++ top] = assignment.get(indices == null ? operands[i] : indices[operands[i]]) ? -1L : 0L;
+            } else {
+                top = step(stack, slots, top, opcodes[i], operands[i]);
+            }
+        }
+        return stack[0] != 0;
+    }
+
+    /**
+     * Runs the program on 64 assignments at once.
+     * Bit {@code k} of {@code values[i]} is the value of the proposition of index {@code i} in the {@code k}-th
+     * assignment.
+     * @param program the program to run
+     * @param values values of the propositions in index order
+     * @return the results of the formula, one per bit
+     */
+    public long runBits(Program program, long[] values) {
+        if (bitStack.length < program.getMaxDepth()) {
+            bitStack = new long[program.getMaxDepth()];
+        }
+        if (bitSlots.length < program.getSlotCount()) {
+            bitSlots = new long[program.getSlotCount()];
+        }
+        final long[] stack = this.bitStack;
+        final long[] slots = this.bitSlots;
+        final byte[] opcodes = program.opcodes();
+        final int[] operands = program.operands();
+        int top = -1;
+        for (int i = 0; i < opcodes.length; ++ i) {
+            if (opcodes[i] == Program.VARIABLE) {
+                stack[++ top] = values[operands[i]];
+            } else {
+                top = step(stack, slots, top, opcodes[i], operands[i]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Executes an instruction other than {@link Program#VARIABLE} on a stack of packed values.
+     * @return the new top of the stack
+     */
+    static int step(long[] stack, long[] slots, int top, byte opcode, int operand) {
+        switch (opcode) {
+            case Program.CONSTANT:
+                stack[++ top] = operand != 0 ? -1L : 0L;
+                break;
+            case Program.NOT:
+                stack[top] = ~stack[top];
+                break;
+            case Program.AND:
+                -- top;
+                stack[top] = stack[top] & stack[top + 1];
+                break;
+            case Program.OR:
+                -- top;
+                stack[top] = stack[top] | stack[top + 1];
+                break;
+            case Program.XOR:
+                -- top;
+                stack[top] = stack[top] ^ stack[top + 1];
+                break;
+            case Program.EQUIVALENT:
+                -- top;
+                stack[top] = ~(stack[top] ^ stack[top + 1]);
+                break;
+            case Program.IMPLY:
+                -- top;
+                stack[top] = ~stack[top] | stack[top + 1];
+                break;
+            case Program.NAND:
+                -- top;
+                stack[top] = ~(stack[top] & stack[top + 1]);
+                break;
+            case Program.NOR:
+                -- top;
+                stack[top] = ~(stack[top] | stack[top + 1]);
+                break;
+            case Program.UNARY_TABLE: {
+                long r = stack[top];
+                stack[top] = (~r & -(operand & 1)) | (r & -((operand >>> 1) & 1));
+                break;
+            }
+            case Program.BINARY_TABLE: {
+                -- top;
+                long l = stack[top], r = stack[top + 1];
+                stack[top] = (~l & ~r & -(operand & 1)) | (~l & r & -((operand >>> 1) & 1))
+                        | (l & ~r & -((operand >>> 2) & 1)) | (l & r & -((operand >>> 3) & 1));
+                break;
+            }
+            case Program.STORE:
+                slots[operand] = stack[top];
+                break;
+            case Program.LOAD:
+                stack[++ top] = slots[operand];
+                break;
+        }
+        return top;
+    }
+}
@@ -0,0 +1,533 @@
+package ml.rhacoal.polishnotation.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A conflict-driven clause learning (CDCL) SAT solver.
+ * <p>Clauses are given as arrays of literals in the DIMACS convention: variable {@code v} (starting from 1) is the
+ * literal {@code v} and its negation is {@code -v}. The solver uses two watched literals per clause for unit
+ * propagation, learns a first-UIP clause from each conflict, picks decisions by VSIDS activity with phase saving
+ * and restarts following the Luby sequence.</p>
+ * <p>Clauses may be added between calls to {@link SatSolver#solve(int...)}. An instance is not thread-safe.</p>
+ */
+public final class SatSolver {
+
+    private static final int RESTART_BASE = 100;
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    private static final byte UNASSIGNED = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    // internal literals are 2 * variable + sign, with variables starting from 0
+    private final ArrayList<int[]> clauses = new ArrayList<>();
+    private int[][] watches = new int[0][];
+    private int[] watchSizes = new int[0];
+
+    private int variableCount;
+    private byte[] values = new byte[0];
+    private int[] levels = new int[0];
+    private int[] reasons = new int[0];
+    private boolean[] polarity = new boolean[0];
+    private boolean[] seen = new boolean[0];
+    private double[] activity = new double[0];
+    private double activityIncrement = 1;
+    private final VariableHeap heap = new VariableHeap();
+
+    private int[] trail = new int[0];
+    private int trailSize;
+    private int propagated;
+    private int[] trailLimits = new int[16];
+    private int decisionLevel;
+
+    private boolean unsatisfiable;
+    private boolean[] model;
+    private long conflicts;
+
+    /**
+     * Creates a new variable.
+     * @return the variable, starting from 1
+     */
+    public int newVariable() {
+        int variable = variableCount ++;
+        if (variable == values.length) {
+            int capacity = Math.max(16, variable << 1);
+            values = Arrays.copyOf(values, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+            polarity = Arrays.copyOf(polarity, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            int oldLiterals = watches.length;
+            watches = Arrays.copyOf(watches, capacity << 1);
+            watchSizes = Arrays.copyOf(watchSizes, capacity << 1);
+            for (int i = oldLiterals; i < watches.length; ++ i) {
+                watches[i] = new int[4];
+            }
+        }
+        reasons[variable] = -1;
+        heap.insert(variable);
+        return variable + 1;
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Returns the number of conflicts met by all calls to {@link SatSolver#solve(int...)}.
+     * @return the number of conflicts
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Adds a clause.
+     * @param literals the literals of the clause
+     * @return {@code false} if the clauses are found unsatisfiable
+     */
+    public boolean addClause(int... literals) {
+        cancelUntil(0);
+        if (unsatisfiable) {
+            return false;
+        }
+        int[] clause = new int[literals.length];
+        int size = 0;
+        outer:
+        for (int literal : literals) {
+            int lit = toInternal(literal);
+            switch (valueOf(lit)) {
+                case TRUE:
+                    return true; // satisfied
+                case FALSE:
+                    continue; // only false at level 0
+            }
+            for (int i = 0; i < size; ++ i) {
+                if (clause[i] == lit) {
+                    continue outer;
+                }
+                if (clause[i] == (lit ^ 1)) {
+                    return true; // tautology
+                }
+            }
+            clause[size ++] = lit;
+        }
+        if (size == 0) {
+            unsatisfiable = true;
+            return false;
+        }
+        if (size == 1) {
+            enqueue(clause[0], -1);
+            if (propagate() != -1) {
+                unsatisfiable = true;
+            }
+            return !unsatisfiable;
+        }
+        attach(Arrays.copyOf(clause, size));
+        return true;
+    }
+
+    /**
+     * Solves the clauses under the given assumptions.
+     * @param assumptions literals assumed true for this call only
+     * @return whether the clauses are satisfiable under the assumptions
+     */
+    public boolean solve(int... assumptions) {
+        return solve(assumptions, false, 0) == 1;
+    }
+
+    /**
+     * Solves the clauses under the given assumptions, giving up once {@link System#nanoTime()} passes a deadline.
+     * The clock is read after each conflict, so the search may run slightly past the deadline. Clauses learned
+     * before giving up are kept.
+     * @param deadline the value of {@link System#nanoTime()} to give up at
+     * @param assumptions literals assumed true for this call only
+     * @return whether the clauses are satisfiable under the assumptions, or {@code null} if the deadline passed first
+     */
+    public Boolean solveUntil(long deadline, int... assumptions) {
+        int status = solve(assumptions, true, deadline);
+        return status == -2 ? null : status == 1;
+    }
+
+    /**
+     * @return 1 if satisfiable, 0 if unsatisfiable and -2 if the deadline passed
+     */
+    private int solve(int[] assumptions, boolean limited, long deadline) {
+        model = null;
+        cancelUntil(0);
+        if (unsatisfiable) {
+            return 0;
+        }
+        int[] assumed = new int[assumptions.length];
+        for (int i = 0; i < assumptions.length; ++ i) {
+            assumed[i] = toInternal(assumptions[i]);
+        }
+        int status;
+        for (int restart = 0; ; ++ restart) {
+            status = search(RESTART_BASE * luby(restart), assumed, limited, deadline);
+            if (status != -1) {
+                break;
+            }
+        }
+        cancelUntil(0);
+        return status;
+    }
+
+    /**
+     * Returns the value of a variable in the model found by the last successful {@link SatSolver#solve(int...)}.
+     * @param variable the variable
+     * @return the value of the variable
+     */
+    public boolean getValue(int variable) {
+        if (model == null) {
+            throw new IllegalStateException("No model available.");
+        }
+        return model[variable - 1];
+    }
+
+    /**
+     * Searches for a model until it is found, the clauses are found unsatisfiable, the conflict budget is used up or
+     * the deadline passes.
+     * @return 1 if satisfiable, 0 if unsatisfiable, -1 for a restart and -2 if the deadline passed
+     */
+    private int search(long conflictBudget, int[] assumptions, boolean limited, long deadline) {
+        long budget = conflictBudget;
+        while (true) {
+            int conflict = propagate();
+            if (conflict != -1) {
+                ++ conflicts;
+                -- budget;
+                if (decisionLevel == 0) {
+                    unsatisfiable = true;
+                    return 0;
+                }
+                learn(conflict);
+                activityIncrement /= ACTIVITY_DECAY;
+                if (limited && System.nanoTime() - deadline > 0) {
+                    cancelUntil(0);
+                    return -2;
+                }
+            } else {
+                if (budget <= 0) {
+                    cancelUntil(0);
+                    return -1;
+                }
+                int next = -1;
+                while (decisionLevel < assumptions.length) {
+                    int assumption = assumptions[decisionLevel];
+                    byte value = valueOf(assumption);
+                    if (value == TRUE) {
+                        newDecisionLevel(); // already implied
+                    } else if (value == FALSE) {
+                        return 0;
+                    } else {
+                        next = assumption;
+                        break;
+                    }
+                }
+                if (next == -1) {
+                    next = pickBranch();
+                    if (next == -1) {
+                        model = new boolean[variableCount];
+                        for (int i = 0; i < variableCount; ++ i) {
+                            model[i] = values[i] == TRUE;
+                        }
+                        return 1;
+                    }
+                }
+                newDecisionLevel();
+                enqueue(next, -1);
+            }
+        }
+    }
+
+    private int pickBranch() {
+        while (!heap.isEmpty()) {
+            int variable = heap.removeMax();
+            if (values[variable] == UNASSIGNED) {
+                return (variable << 1) | (polarity[variable] ? 0 : 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Propagates the assignments on the trail.
+     * @return the index of a conflicting clause, or -1 if there is no conflict
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            int falseLiteral = trail[propagated ++] ^ 1;
+            int[] watchList = watches[falseLiteral];
+            int size = watchSizes[falseLiteral];
+            int i = 0, j = 0;
+            watchLoop:
+            while (i < size) {
+                int index = watchList[i ++];
+                int[] clause = clauses.get(index);
+                if (clause[0] == falseLiteral) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLiteral;
+                }
+                if (valueOf(clause[0]) == TRUE) {
+                    watchList[j ++] = index;
+                    continue;
+                }
+                for (int k = 2; k < clause.length; ++ k) {
+                    if (valueOf(clause[k]) != FALSE) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLiteral;
+                        watch(clause[1], index);
+                        continue watchLoop;
+                    }
+                }
+                watchList[j ++] = index;
+                if (valueOf(clause[0]) == FALSE) {
+                    while (i < size) {
+                        watchList[j ++] = watchList[i ++];
+                    }
+                    watchSizes[falseLiteral] = j;
+                    propagated = trailSize;
+                    return index;
+                }
+                enqueue(clause[0], index);
+            }
+            watchSizes[falseLiteral] = j;
+        }
+        return -1;
+    }
+
+    /**
+     * Learns the first-UIP clause of a conflict and jumps back to the level where it becomes unit.
+     */
+    private void learn(int conflict) {
+        int[] learnt = new int[decisionLevel + 16];
+        int size = 1, pending = 0, literal = -1, index = trailSize - 1;
+        int reason = conflict;
+        do {
+            int[] clause = clauses.get(reason);
+            for (int k = literal == -1 ? 0 : 1; k < clause.length; ++ k) {
+                int q = clause[k], variable = q >> 1;
+                if (!seen[variable] && levels[variable] > 0) {
+                    bump(variable);
+                    seen[variable] = true;
+                    if (levels[variable] >= decisionLevel) {
+                        ++ pending;
+                    } else {
+                        if (size == learnt.length) {
+                            learnt = Arrays.copyOf(learnt, size << 1);
+                        }
+                        learnt[size ++] = q;
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                -- index;
+            }
+            literal = trail[index --];
+            reason = reasons[literal >> 1];
+            seen[literal >> 1] = false;
+            -- pending;
+        } while (pending > 0);
+        learnt[0] = literal ^ 1;
+
+        int backtrackLevel = 0;
+        for (int k = 1; k < size; ++ k) {
+            seen[learnt[k] >> 1] = false;
+            int level = levels[learnt[k] >> 1];
+            if (level > backtrackLevel) {
+                backtrackLevel = level;
+                int temp = learnt[1];
+                learnt[1] = learnt[k];
+                learnt[k] = temp;
+            }
+        }
+        cancelUntil(backtrackLevel);
+        if (size == 1) {
+            enqueue(learnt[0], -1);
+        } else {
+            enqueue(learnt[0], attach(Arrays.copyOf(learnt, size)));
+        }
+    }
+
+    private int attach(int[] clause) {
+        int index = clauses.size();
+        clauses.add(clause);
+        watch(clause[0], index);
+        watch(clause[1], index);
+        return index;
+    }
+
+    private void watch(int literal, int clause) {
+        int size = watchSizes[literal];
+        if (size == watches[literal].length) {
+            watches[literal] = Arrays.copyOf(watches[literal], size << 1);
+        }
+        watches[literal][size] = clause;
+        watchSizes[literal] = size + 1;
+    }
+
+    private void enqueue(int literal, int reason) {
+        int variable = literal >> 1;
+        values[variable] = (literal & 1) == 0 ? TRUE : FALSE;
+        levels[variable] = decisionLevel;
+        reasons[variable] = reason;
+        trail[trailSize ++] = literal;
+    }
+
+    private void newDecisionLevel() {
+        if (decisionLevel == trailLimits.length) {
+            trailLimits = Arrays.copyOf(trailLimits, decisionLevel << 1);
+        }
+        trailLimits[decisionLevel ++] = trailSize;
+    }
+
+    private void cancelUntil(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        for (int i = trailSize - 1, limit = trailLimits[level]; i >= limit; -- i) {
+            int variable = trail[i] >> 1;
+            polarity[variable] = (trail[i] & 1) == 0;
+            values[variable] = UNASSIGNED;
+            reasons[variable] = -1;
+            heap.insert(variable);
+        }
+        trailSize = trailLimits[level];
+        propagated = trailSize;
+        decisionLevel = level;
+    }
+
+    private byte valueOf(int literal) {
+        byte value = values[literal >> 1];
+        if (value == UNASSIGNED || (literal & 1) == 0) {
+            return value;
+        }
+        return value == TRUE ? FALSE : TRUE;
+    }
+
+    private int toInternal(int literal) {
+        int variable = Math.abs(literal) - 1;
+        if (literal == 0 || variable >= variableCount) {
+            throw new IllegalArgumentException("Unknown variable in literal " + literal);
+        }
+        return (variable << 1) | (literal < 0 ? 1 : 0);
+    }
+
+    private void bump(int variable) {
+        if ((activity[variable] += activityIncrement) > 1e100) {
+            for (int i = 0; i < variableCount; ++ i) {
+                activity[i] *= 1e-100;
+            }
+            activityIncrement *= 1e-100;
+        }
+        heap.increase(variable);
+    }
+
+    /**
+     * Returns the {@code i}-th element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    private static long luby(int i) {
+        long size = 1;
+        int sequence = 0;
+        while (size < i + 1) {
+            ++ sequence;
+            size = 2 * size + 1;
+        }
+        long x = i;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            -- sequence;
+            x = x % size;
+        }
+        return 1L << sequence;
+    }
+
+    /**
+     * A binary max-heap of variables ordered by activity.
+     */
+    private final class VariableHeap {
+
+        private int[] heap = new int[16];
+        private int[] positions = new int[16];
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void insert(int variable) {
+            if (variable >= positions.length) {
+                int oldLength = positions.length;
+                positions = Arrays.copyOf(positions, Math.max(variable + 1, oldLength << 1));
+                Arrays.fill(positions, oldLength, positions.length, -1);
+            } else if (positions[variable] >= 0 && positions[variable] < size
+                    && heap[positions[variable]] == variable) {
+                return;
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size << 1);
+            }
+            heap[size] = variable;
+            positions[variable] = size;
+            up(size ++);
+        }
+
+        private void increase(int variable) {
+            if (variable < positions.length && positions[variable] >= 0 && positions[variable] < size
+                    && heap[positions[variable]] == variable) {
+                up(positions[variable]);
+            }
+        }
+
+        private int removeMax() {
+            int max = heap[0];
+            positions[max] = -1;
+            if (-- size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                down(0);
+            }
+            return max;
+        }
+
+        private void up(int i) {
+            int variable = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (activity[heap[parent]] >= activity[variable]) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = variable;
+            positions[variable] = i;
+        }
+
+        private void down(int i) {
+            int variable = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && activity[heap[child + 1]] > activity[heap[child]]) {
+                    ++ child;
+                }
+                if (activity[heap[child]] <= activity[variable]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = variable;
+            positions[variable] = i;
+        }
+    }
+}
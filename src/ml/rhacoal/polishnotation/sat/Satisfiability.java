@@ -0,0 +1,110 @@
+package ml.rhacoal.polishnotation.sat;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.program.Program;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The satisfiability of a propositional formula, decided by a {@link SatSolver}.
+ * <p>The formula is encoded once and solved twice: assuming it true finds a model, assuming it false finds a
+ * counterexample. The formula is a tautology if and only if there is no counterexample. Unlike
+ * {@link Calculator.TruthTable}, the number of propositions is not limited.</p>
+ */
+public final class Satisfiability {
+
+    private final Map<String, Boolean> model;
+    private final Map<String, Boolean> counterexample;
+
+    private Satisfiability(Map<String, Boolean> model, Map<String, Boolean> counterexample) {
+        this.model = model;
+        this.counterexample = counterexample;
+    }
+
+    /**
+     * Decides the satisfiability of the result of {@link Calculator#calculates(String)}.
+     * @param result the parsed formula
+     * @return the satisfiability of the formula
+     * @throws CalculationException if the formula contains an operator that cannot be compiled
+     */
+    public static Satisfiability of(Calculator.Result result) throws CalculationException {
+        return of(result.compile());
+    }
+
+    /**
+     * Decides the satisfiability of a compiled formula.
+     * @param program the compiled formula
+     * @return the satisfiability of the formula
+     */
+    public static Satisfiability of(Program program) {
+        SatSolver solver = new SatSolver();
+        int formula = TseitinEncoder.encode(program, solver);
+        String[] variables = program.getVariables();
+        Map<String, Boolean> model = solver.solve(formula) ? assignment(solver, variables) : null;
+        Map<String, Boolean> counterexample = solver.solve(-formula) ? assignment(solver, variables) : null;
+        return new Satisfiability(model, counterexample);
+    }
+
+    /**
+     * Decides the satisfiability of a compiled formula, giving up once {@link System#nanoTime()} passes a deadline.
+     * @see SatSolver#solveUntil(long, int...)
+     * @param program the compiled formula
+     * @param deadline the value of {@link System#nanoTime()} to give up at
+     * @return the satisfiability of the formula, or {@code null} if the deadline passed first
+     */
+    public static Satisfiability of(Program program, long deadline) {
+        SatSolver solver = new SatSolver();
+        int formula = TseitinEncoder.encode(program, solver);
+        String[] variables = program.getVariables();
+        Boolean satisfiable = solver.solveUntil(deadline, formula);
+        if (satisfiable == null) {
+            return null;
+        }
+        Map<String, Boolean> model = satisfiable ? assignment(solver, variables) : null;
+        Boolean falsifiable = solver.solveUntil(deadline, -formula);
+        if (falsifiable == null) {
+            return null;
+        }
+        Map<String, Boolean> counterexample = falsifiable ? assignment(solver, variables) : null;
+        return new Satisfiability(model, counterexample);
+    }
+
+    private static Map<String, Boolean> assignment(SatSolver solver, String[] variables) {
+        LinkedHashMap<String, Boolean> assignment = new LinkedHashMap<>();
+        for (int i = 0; i < variables.length; ++ i) {
+            assignment.put(variables[i], solver.getValue(i + 1));
+        }
+        return Collections.unmodifiableMap(assignment);
+    }
+
+    public boolean isSatisfiable() {
+        return model != null;
+    }
+
+    public boolean isTautology() {
+        return counterexample == null;
+    }
+
+    public boolean isContradiction() {
+        return model == null;
+    }
+
+    /**
+     * Returns an assignment of the propositions that makes the formula true.
+     * @return the value of each proposition, or {@code null} if the formula is a contradiction
+     */
+    public Map<String, Boolean> getModel() {
+        return model;
+    }
+
+    /**
+     * Returns an assignment of the propositions that makes the formula false.
+     * @return the value of each proposition, or {@code null} if the formula is a tautology
+     */
+    public Map<String, Boolean> getCounterexample() {
+        return counterexample;
+    }
+}
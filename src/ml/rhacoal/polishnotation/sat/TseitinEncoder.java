@@ -0,0 +1,89 @@
+package ml.rhacoal.polishnotation.sat;
+
+import ml.rhacoal.polishnotation.program.Program;
+
+/**
+ * Encodes a {@link Program} into clauses of a {@link SatSolver} by the Tseitin transformation.
+ * <p>Proposition {@code i} of the program becomes solver variable {@code i + 1}. Each operator gets a fresh
+ * variable constrained to be equivalent to its result, so the number of clauses is linear in the size of the
+ * formula. Negations only flip the sign of a literal and add no variable.</p>
+ */
+public final class TseitinEncoder {
+
+    private TseitinEncoder() {
+    }
+
+    /**
+     * Encodes a program.
+     * @param program the program to encode
+     * @param solver a solver with no variables
+     * @return a literal equivalent to the formula
+     */
+    public static int encode(Program program, SatSolver solver) {
+        if (solver.getVariableCount() != 0) {
+            throw new IllegalArgumentException("Solver already has variables.");
+        }
+        for (int i = 0; i < program.getVariableCount(); ++ i) {
+            solver.newVariable();
+        }
+        int constant = 0;
+        int[] stack = new int[program.getMaxDepth()];
+        int[] slots = new int[program.getSlotCount()];
+        int top = -1;
+        for (int i = 0; i < program.size(); ++ i) {
+            int operand = program.getOperand(i);
+            switch (program.getOpcode(i)) {
+                case Program.VARIABLE:
+                    stack[++ top] = operand + 1;
+                    break;
+                case Program.CONSTANT:
+                    if (constant == 0) {
+                        constant = solver.newVariable();
+                        solver.addClause(constant);
+                    }
+                    stack[++ top] = operand != 0 ? constant : -constant;
+                    break;
+                case Program.NOT:
+                    stack[top] = -stack[top];
+                    break;
+                case Program.STORE:
+                    slots[operand] = stack[top];
+                    break;
+                case Program.LOAD:
+                    stack[++ top] = slots[operand];
+                    break;
+                case Program.UNARY_TABLE:
+                    if (operand == 1) {
+                        stack[top] = -stack[top];
+                    } else if (operand == 0 || operand == 3) {
+                        if (constant == 0) {
+                            constant = solver.newVariable();
+                            solver.addClause(constant);
+                        }
+                        stack[top] = operand == 3 ? constant : -constant;
+                    }
+                    break;
+                default: // binary operators carry their truth table as the operand
+                    -- top;
+                    stack[top] = gate(solver, operand, stack[top], stack[top + 1]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Adds a variable equivalent to a binary operator applied to two literals.
+     * One clause is added for each row of the truth table.
+     */
+    private static int gate(SatSolver solver, int truthTable, int left, int right) {
+        int output = solver.newVariable();
+        for (int row = 0; row < 4; ++ row) {
+            // (left, right) == row implies (output == truthTable[row])
+            solver.addClause(
+                    (row & 2) != 0 ? -left : left,
+                    (row & 1) != 0 ? -right : right,
+                    (truthTable & (1 << row)) != 0 ? output : -output);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,78 @@
+package ml.rhacoal.polishnotation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+    @TempDir
+    Path directory;
+
+    private String batch(String input, String... options) throws IOException {
+        Path file = directory.resolve("input.txt");
+        Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+        String[] args = new String[options.length + 2];
+        args[0] = "--batch";
+        System.arraycopy(options, 0, args, 1, options.length);
+        args[args.length - 1] = file.toString();
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            Main.main(args);
+        } finally {
+            System.setOut(stdout);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesOutputsInInputOrder() throws IOException {
+        String output = batch("a&b\n:toggle tt off\na|b\nbad&\n\n:toggle pn off\n:frob\n!a\n:exit\nc\n",
+                "--threads", "3");
+        assertEquals("PN : &ab\nRPN: ab&\nTruth Table\na\tb\ta&b\nF\tF\tF\t\nF\tT\tF\t\nT\tF\tF\t\nT\tT\tT\t\n\n"
+                + "PCNF: ∧1,2,3\nPDNF: ∨3\n\n"
+                + "Toggled tt output off\n"
+                + "PN : |ab\nRPN: ab|\nPCNF: ∧3\nPDNF: ∨1,2,3\n\n"
+                + "Calculation exception occurred: Unexpected end of expression.\n"
+                + "Toggled pn output off\n"
+                + "Unknown command: :frob\n"
+                + "RPN: a!\nPCNF: ∧0\nPDNF: ∨0\n\n", output);
+    }
+
+    @Test
+    void streamsTruthTablesWithoutNormalForms() throws IOException {
+        StringBuilder formula = new StringBuilder("p00");
+        for (int i = 1; i < 16; ++ i) {
+            formula.append(String.format("|p%02d", i));
+        }
+        String output = batch(formula + "\n", "--toggle", "pn", "off", "--toggle", "rpn", "off",
+                "--toggle", "pcnf", "off", "--toggle", "pdnf", "off");
+        String[] lines = output.split("\n", -1);
+        // the title, the header, 2^16 lines, and the blank lines after the table and after the formula
+        assertEquals(2 + (1 << 16) + 3, lines.length);
+        assertEquals("Truth Table", lines[0]);
+        assertTrue(lines[2].endsWith("F\t"));
+        assertTrue(lines[3].endsWith("T\t"));
+    }
+
+    @Test
+    void reportsFailingFormulasAndGoesOn() throws IOException {
+        StringBuilder formula = new StringBuilder("p00");
+        for (int i = 1; i <= Calculator.TruthTable.MAX_PROPOSITIONS; ++ i) {
+            formula.append(String.format("&p%02d", i));
+        }
+        String output = batch(formula + "\na\n", "--toggle", "pn", "off", "--toggle", "rpn", "off");
+        assertTrue(output.startsWith("Unexpected exception occurred: "), output);
+        assertTrue(output.endsWith("Truth Table\na\ta\nF\tF\t\nT\tT\t\n\nPCNF: ∧1\nPDNF: ∨1\n\n"), output);
+    }
+}
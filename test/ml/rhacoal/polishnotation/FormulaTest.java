@@ -0,0 +1,83 @@
+package ml.rhacoal.polishnotation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormulaTest {
+
+    @Test
+    void indexesPropositionsInLexicographicalOrder() throws CalculationException {
+        Formula formula = Formula.parse("c -> (a & !b)");
+        assertArrayEquals(new String[]{"a", "b", "c"}, formula.getVariables());
+        assertEquals(2, formula.indexOf("c"));
+        assertEquals(-1, formula.indexOf("d"));
+        for (long assignment = 0; assignment < 8; ++ assignment) {
+            boolean a = (assignment & 1) != 0, b = (assignment & 2) != 0, c = (assignment & 4) != 0;
+            assertEquals(!c || (a && !b), formula.evaluate(assignment));
+            assertEquals(!c || (a && !b), formula.evaluate(BitSet.valueOf(new long[]{assignment})));
+        }
+        assertEquals(0x0FL, formula.evaluate64(new long[]{0x0FL, 0x03L, 0xF0L}) & 0xFFL);
+    }
+
+    @Test
+    void propositionsPast64AreFalseInEvaluateLong() throws CalculationException {
+        // names sort in numeric order, so v65 has index 65
+        StringBuilder expression = new StringBuilder("(v00");
+        for (int i = 1; i < 65; ++ i) {
+            expression.append(String.format("|v%02d", i));
+        }
+        Formula formula = Formula.parse(expression.append(")&v65").toString());
+        assertEquals(65, formula.indexOf("v65"));
+        // v65 must not be read from bit 65 & 63 = 1, which is v01
+        assertFalse(formula.evaluate(2L));
+        assertFalse(formula.evaluate(-1L));
+        BitSet assignment = new BitSet();
+        assignment.set(1);
+        assertFalse(formula.evaluate(assignment));
+        assignment.set(65);
+        assertTrue(formula.evaluate(assignment));
+    }
+
+    @Test
+    void evaluatesAgainstSymbolIds() throws CalculationException {
+        SymbolTable symbols = new SymbolTable();
+        Formula first = Formula.parse("y & x", symbols);
+        Formula second = Formula.parse("x | z", symbols);
+        assertArrayEquals(new String[]{"y", "x"}, first.getVariables());
+        BitSet assignment = new BitSet();
+        assignment.set(symbols.getId("x"));
+        assertFalse(first.evaluateSymbols(assignment));
+        assertTrue(second.evaluateSymbols(assignment));
+        assertThrows(IllegalStateException.class, () -> Formula.parse("x").evaluateSymbols(assignment));
+    }
+
+    @Test
+    void evaluatesConcurrently() throws Exception {
+        Formula formula = Formula.parse("(a <-> b) ^ (c & d) | !e");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; ++ t) {
+                futures[t] = pool.submit(() -> {
+                    for (int n = 0; n < 10000; ++ n) {
+                        long assignment = n & 31;
+                        boolean a = (assignment & 1) != 0, b = (assignment & 2) != 0, c = (assignment & 4) != 0,
+                                d = (assignment & 8) != 0, e = (assignment & 16) != 0;
+                        assertEquals(!(a == b) || (c && d) || !e, formula.evaluate(assignment));
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
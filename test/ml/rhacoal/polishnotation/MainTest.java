@@ -0,0 +1,49 @@
+package ml.rhacoal.polishnotation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MainTest {
+
+    private static String repl(String input) {
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            Main.main(new String[0]);
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void readsTruthTable() {
+        String output = repl(":truthtable\na b\nF F F\nF T T\nT F T\nT T T\n:exit\n");
+        assertTrue(output.contains("CNF: (a∨b)\n"), output);
+        assertTrue(output.contains("DNF: (a∧¬b)∨(¬a∧b)∨(¬a∧¬b)\n"), output);
+        assertTrue(output.contains("Minimal DNF: b∨a\n"), output);
+    }
+
+    @Test
+    void refusesTablesThatDoNotFitInMemory() {
+        StringBuilder names = new StringBuilder("p0");
+        for (int i = 1; i < 40; ++ i) {
+            names.append(" p").append(i);
+        }
+        String output = repl(":truthtable\n" + names + "\na\nF F\nT T\n:exit\n");
+        assertTrue(output.contains("The truth table of 40 propositional variables and its normal forms do not fit "
+                + "in memory.\nReenter the line: \nReceived 1 propositional variables."), output);
+        assertTrue(output.contains("CNF: (a)\nDNF: (¬a)\n"), output);
+    }
+}
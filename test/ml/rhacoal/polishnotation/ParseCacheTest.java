@@ -0,0 +1,89 @@
+package ml.rhacoal.polishnotation;
+
+import ml.rhacoal.polishnotation.program.Program;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    @Test
+    void normalizeCollapsesBlanks() {
+        assertEquals("a&b", ParseCache.normalize("a&b"));
+        assertEquals("a & b", ParseCache.normalize("a \t&\n\n b"));
+        assertEquals("(a|b)&!c", ParseCache.normalize("  ( a|b ) &!c \t"));
+        assertEquals("a - > b", ParseCache.normalize("a  -   > b"));
+        assertEquals("a b", ParseCache.normalize("a    b"));
+    }
+
+    @Test
+    void rejectsWhatTheParserRejects() {
+        ParseCache cache = new ParseCache(16);
+        for (String expression : new String[]{"a - > b", "a & & b", "a < - > b", "a b", "a |", "a)"}) {
+            assertThrows(CalculationException.class, () -> Calculator.calculates(expression), expression);
+            assertThrows(CalculationException.class, () -> cache.get(expression), expression);
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void agreesWithParserOnRandomSpacing() throws CalculationException {
+        String[] tokens = {"a", "b", "c", "(", ")", "!", "&", "|", "-", ">", "<", "->", "<->", "&&"};
+        String[] blanks = {"", "", " ", "  ", "\t", "\n "};
+        Random random = new Random(42);
+        ParseCache cache = new ParseCache(1024);
+        for (int n = 0; n < 20000; ++ n) {
+            StringBuilder expression = new StringBuilder();
+            for (int i = 1 + random.nextInt(8); i > 0; -- i) {
+                expression.append(blanks[random.nextInt(blanks.length)]).append(tokens[random.nextInt(tokens.length)]);
+            }
+            expression.append(blanks[random.nextInt(blanks.length)]);
+            String text = expression.toString();
+            Calculator.Result expected;
+            try {
+                expected = Calculator.calculates(text);
+            } catch (CalculationException ex) {
+                assertThrows(CalculationException.class, () -> cache.get(text), text);
+                continue;
+            }
+            assertSameProgram(expected.compile(), cache.get(text), text);
+        }
+    }
+
+    private static void assertSameProgram(Program expected, Program actual, String message) {
+        assertArrayEquals(expected.getVariables(), actual.getVariables(), message);
+        assertEquals(expected.size(), actual.size(), message);
+        for (int i = 0; i < expected.size(); ++ i) {
+            assertEquals(expected.getOpcode(i), actual.getOpcode(i), message);
+            assertEquals(expected.getOperand(i), actual.getOperand(i), message);
+        }
+    }
+
+    @Test
+    void spacingSharesAnEntry() throws CalculationException {
+        ParseCache cache = new ParseCache(16);
+        Program program = cache.get("(a -> b)&c");
+        assertSame(program, cache.get("( a -> b ) &c"));
+        assertSame(program, cache.get("(a\t->\tb)  &c"));
+        assertNotSame(program, cache.get("(a->b)&c"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws CalculationException {
+        ParseCache cache = new ParseCache(16);
+        assertEquals(16, cache.getMaxSize());
+        for (int i = 0; i < 1000; ++ i) {
+            cache.get("a" + i + "&b");
+        }
+        assertTrue(cache.size() <= cache.getMaxSize());
+        assertEquals(1000 - cache.size(), cache.getEvictionCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(1000, cache.getMissCount());
+    }
+}
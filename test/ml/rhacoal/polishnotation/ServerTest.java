@@ -0,0 +1,111 @@
+package ml.rhacoal.polishnotation;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTest {
+
+    private static final String[] FORMULAS = {
+            "a&b", "a|b", "a->b", "a<->b", "!a", "T", "F", "a|!a", "a&!a",
+            "(a&b)|(c&!d)->e", "a^b^c^d^e^f^g", "(p0|p1)&(p2|!p3)&(p4<->p5)&!(p6&p7)"
+    };
+
+    private static HttpServer server, slowServer;
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = Main.Server.start("127.0.0.1", 0, 8192, 60_000, 16);
+        slowServer = Main.Server.start("127.0.0.1", 0, 8192, 1, 24);
+    }
+
+    @AfterAll
+    static void stop() {
+        for (HttpServer s : new HttpServer[]{server, slowServer}) {
+            s.stop(0);
+            ((ExecutorService) s.getExecutor()).shutdownNow();
+        }
+    }
+
+    private static HttpResponse<String> get(HttpServer s, String path, String formula) throws Exception {
+        String query = formula == null ? "" : "?formula=" + URLEncoder.encode(formula, StandardCharsets.UTF_8);
+        URI uri = URI.create("http://127.0.0.1:" + s.getAddress().getPort() + path + query);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String join(long[] indices) {
+        StringJoiner joiner = new StringJoiner(",", "", "\n");
+        for (long index : indices) {
+            joiner.add(Long.toString(index));
+        }
+        return joiner.toString();
+    }
+
+    @Test
+    void normalFormsAgreeWithLibrary() throws Exception {
+        for (String formula : FORMULAS) {
+            Calculator.TruthTable table = Calculator.getTruthTable(Calculator.calculates(formula), 0);
+            HttpResponse<String> pcnf = get(server, "/pcnf", formula);
+            assertEquals(200, pcnf.statusCode(), formula);
+            assertEquals(join(table.calculatePrincipalConjunctiveNormalFormLong()), pcnf.body(), formula);
+            HttpResponse<String> pdnf = get(server, "/pdnf", formula);
+            assertEquals(200, pdnf.statusCode(), formula);
+            assertEquals(join(table.calculatePrincipalDisjunctiveNormalFormLong()), pdnf.body(), formula);
+        }
+        assertEquals("1,2,3\n", get(server, "/pcnf", "a&b").body());
+        assertEquals("3\n", get(server, "/pcnf", "a|b").body());
+    }
+
+    @Test
+    void notationsAndTruthTable() throws Exception {
+        Calculator.Result result = Calculator.calculates("a->b&c");
+        assertEquals(result.root.toPolishNotation() + '\n', get(server, "/pn", "a->b&c").body());
+        assertEquals(result.root.toReversePolishNotation() + '\n', get(server, "/rpn", "a->b&c").body());
+        StringBuilder table = new StringBuilder();
+        Calculator.writeTruthTable(result.root, result.identifierMap, 0, table);
+        assertEquals(table.toString(), get(server, "/tt", "a->b&c").body());
+    }
+
+    @Test
+    void satisfiability() throws Exception {
+        HttpResponse<String> contradiction = get(server, "/sat", "a&!a");
+        assertEquals(200, contradiction.statusCode());
+        assertTrue(contradiction.body().startsWith("satisfiable: false\ntautology: false\n"));
+        HttpResponse<String> tautology = get(server, "/sat", "a|!a");
+        assertTrue(tautology.body().startsWith("satisfiable: true\ntautology: true\n"));
+    }
+
+    @Test
+    void errors() throws Exception {
+        assertEquals(404, get(server, "/nothing", "a").statusCode());
+        assertEquals(400, get(server, "/pn", null).statusCode());
+        assertEquals(400, get(server, "/pn", "a&").statusCode());
+        assertEquals(413, get(server, "/pdnf", "a0&a1&a2&a3&a4&a5&a6&a7&a8&a9&b0&b1&b2&b3&b4&b5&b6").statusCode());
+        assertEquals(413, get(server, "/pn", "a|".repeat(5000) + "a").statusCode());
+    }
+
+    @Test
+    void timeBudget() throws Exception {
+        StringBuilder formula = new StringBuilder("p0");
+        for (int i = 1; i < 24; ++ i) {
+            formula.append(i % 2 == 0 ? '&' : '|').append('p').append(i);
+        }
+        HttpResponse<String> response = get(slowServer, "/pdnf", formula.toString());
+        assertTrue(response.statusCode() == 503 || response.body().endsWith("ERROR: the time budget is spent.\n"),
+                response.body().length() > 200 ? response.body().substring(0, 200) : response.body());
+    }
+}
@@ -0,0 +1,23 @@
+package ml.rhacoal.polishnotation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimplifierTest {
+
+    private static final int DEPTH = 200_000;
+
+    @Test
+    void simplifiesDeepNegations() throws CalculationException {
+        String expression = "!".repeat(DEPTH) + "a";
+        assertEquals("a", Calculator.calculates(expression).simplify().root.toExpression());
+    }
+
+    @Test
+    void simplifiesDeepParentheses() throws CalculationException {
+        String expression = "(a&".repeat(DEPTH) + "(b|T)" + ")".repeat(DEPTH);
+        // a&(b|T) is a, and so is every a&a around it
+        assertEquals("a", Calculator.calculates(expression).simplify().root.toExpression());
+    }
+}
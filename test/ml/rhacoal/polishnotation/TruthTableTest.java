@@ -0,0 +1,242 @@
+package ml.rhacoal.polishnotation;
+
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TruthTableTest {
+
+    private static final String[] OPERATORS = {"&", "|", "->", "<->", "↑", "↓"};
+
+    private static Calculator.Result randomFormula(Random random, int variables, int length)
+            throws CalculationException {
+        StringBuilder formula = new StringBuilder("p" + random.nextInt(variables));
+        for (int i = 0; i < length; ++ i) {
+            formula.append(OPERATORS[random.nextInt(OPERATORS.length)])
+                    .append(random.nextBoolean() ? "!" : "").append('p').append(random.nextInt(variables));
+            if (random.nextInt(6) == 0) {
+                formula.insert(0, '(').append(')');
+            }
+        }
+        return Calculator.calculates(formula.toString());
+    }
+
+    /**
+     * Calculates a line with the node tree, the first proposition being the most significant bit of the index.
+     */
+    private static boolean reference(Calculator.Result result, long line) {
+        ArrayList<PropositionIdentifierNode> propositions = result.getPropositions();
+        for (int j = 0, count = propositions.size(); j < count; ++ j) {
+            propositions.get(j).setValue(((line >>> (count - 1 - j)) & 1L) != 0);
+        }
+        return result.root.calculate();
+    }
+
+    @Test
+    void bitArrayStoresBits() {
+        Calculator.TruthTable.BitArray bits = new Calculator.TruthTable.BitArray(200);
+        assertEquals(200, bits.size());
+        assertEquals(4, bits.wordCount());
+        bits.set(0, true);
+        bits.set(63, true);
+        bits.set(64, true);
+        bits.set(199, true);
+        bits.set(64, false);
+        assertTrue(bits.get(0));
+        assertTrue(bits.get(63));
+        assertFalse(bits.get(64));
+        assertTrue(bits.get(199));
+        assertEquals(0x8000000000000001L, bits.getWord(0));
+        // bits past the size are dropped
+        bits.setWord(3, -1L);
+        assertEquals(0xFFL, bits.getWord(3));
+        assertEquals(2 + 8, bits.count());
+    }
+
+    @Test
+    void linesMatchTheNodeTree() throws CalculationException {
+        Random random = new Random(3);
+        for (int n = 0; n < 100; ++ n) {
+            Calculator.Result result = randomFormula(random, 1 + random.nextInt(9), random.nextInt(25));
+            Calculator.TruthTable table = Calculator.getTruthTable(result, 0);
+            long lines = 1L << result.getPropositions().size();
+            for (long line = 0; line < lines; ++ line) {
+                assertEquals(reference(result, line), table.getResult(line), result.root.toExpression());
+            }
+            long block = table.calculateBlock(0);
+            for (long line = 0; line < 64; ++ line) {
+                assertEquals(line < lines && table.getResult(line), ((block >>> line) & 1L) != 0);
+            }
+        }
+    }
+
+    @Test
+    void ordersLines() throws CalculationException {
+        Calculator.Result result = Calculator.calculates("a -> b");
+        assertEquals("a\tb\ta^b\nF\tF\tT\t\nF\tT\tT\t\nT\tF\tF\t\nT\tT\tT\t\n",
+                Calculator.getTruthTable(result, 0).toString());
+        assertEquals("a\tb\ta^b\nT\tT\tT\t\nT\tF\tF\t\nF\tT\tT\t\nF\tF\tT\t\n",
+                Calculator.getTruthTable(result, 1).toString());
+    }
+
+    private static void assertSameResults(Calculator.TruthTable expected, Calculator.TruthTable actual, long lines,
+                                          String message) {
+        for (long block = 0; block << 6 < lines; ++ block) {
+            long word = 0;
+            for (int k = 0; k < 64 && (block << 6) + k < lines; ++ k) {
+                word |= actual.getResult((block << 6) + k) ? 1L << k : 0L;
+            }
+            assertEquals(expected.calculateBlock(block), word, message);
+        }
+    }
+
+    @Test
+    void parallelTablesMatchSequentialOnes() throws CalculationException {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int n = 0; n < 6; ++ n) {
+                // 2^18 lines are 4096 blocks, which are split into several tasks
+                Calculator.Result result = randomFormula(random, 18, 60);
+                Calculator.TruthTable sequential = Calculator.getTruthTable(result, 0);
+                long lines = 1L << result.getPropositions().size();
+                for (Calculator.Engine engine : Calculator.Engine.values()) {
+                    Calculator.TruthTable parallel = new Calculator.TruthTable(result.getPropositions(), result.root,
+                            engine).calculateParallel(n & 1, pool);
+                    assertSameResults(sequential, parallel, lines, engine + ": " + result.root.toExpression());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void writesTheSameAsToString() throws CalculationException, IOException {
+        Random random = new Random(31);
+        for (int n = 0; n < 60; ++ n) {
+            Calculator.Result result = randomFormula(random, 1 + random.nextInt(10), random.nextInt(20));
+            int order = n & 1;
+            String expected = Calculator.getTruthTable(result, order).toString("1", "0", " | ", "\r\n");
+            StringBuilder written = new StringBuilder();
+            new Calculator.TruthTable(result.getPropositions(), result.root)
+                    .write(order, written, "1", "0", " | ", "\r\n");
+            assertEquals(expected, written.toString());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new Calculator.TruthTable(result.getPropositions(), result.root, Calculator.Engine.PROGRAM)
+                    .write(order, Channels.newChannel(bytes), "真", "假", "\t", "\n");
+            assertEquals(Calculator.getTruthTable(result, order).toString("真", "假", "\t", "\n"),
+                    bytes.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void writesInChunks() throws CalculationException, IOException {
+        Calculator.Result result = Calculator.calculates("(a|b|c|d|e|f|g|h) & (i|j|k|l|m|n|o|p)");
+        List<Integer> chunks = new ArrayList<>();
+        StringBuilder written = new StringBuilder();
+        Appendable out = new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) {
+                chunks.add(csq.length());
+                written.append(csq);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        };
+        Calculator.writeTruthTable(result.root, result.identifierMap, 0, out);
+        assertEquals(Calculator.getTruthTable(result, 0).toString(), written.toString());
+        // 2^16 lines of 34 characters are written in pieces, none much larger than 64 KiB
+        assertTrue(chunks.size() > 30, chunks.toString());
+        for (int length : chunks) {
+            assertTrue(length < (1 << 16) + 256, chunks.toString());
+        }
+    }
+
+    /**
+     * Lists the lines with the given result in increasing order of their (complemented) indices.
+     */
+    private static long[] referenceIndices(Calculator.TruthTable table, long lines, boolean value, boolean complement) {
+        List<Long> indices = new ArrayList<>();
+        for (long line = 0; line < lines; ++ line) {
+            if (table.getResult(line) == value) {
+                indices.add(complement ? lines - 1 - line : line);
+            }
+        }
+        return indices.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static long[] reverse(long[] indices) {
+        long[] reversed = new long[indices.length];
+        for (int i = 0; i < indices.length; ++ i) {
+            reversed[i] = indices[indices.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    @Test
+    void streamsNormalFormsLikeTheCollectedOnes() throws CalculationException {
+        Random random = new Random(37);
+        for (int n = 0; n < 60; ++ n) {
+            Calculator.Result result = randomFormula(random, 1 + random.nextInt(14), random.nextInt(30));
+            int order = n & 1;
+            Calculator.TruthTable table = Calculator.getTruthTable(result, order);
+            long lines = 1L << result.getPropositions().size();
+            long[] minterms = referenceIndices(table, lines, true, order == 1);
+            long[] maxterms = referenceIndices(table, lines, false, order == 0);
+            assertArrayEquals(minterms, table.calculatePrincipalDisjunctiveNormalFormLong());
+            assertArrayEquals(maxterms, table.calculatePrincipalConjunctiveNormalFormLong());
+            assertArrayEquals(minterms, table.streamPrincipalDisjunctiveNormalForm(false).toArray());
+            assertArrayEquals(maxterms, table.streamPrincipalConjunctiveNormalForm(false).toArray());
+            assertArrayEquals(reverse(minterms), table.streamPrincipalDisjunctiveNormalForm(true).toArray());
+            assertArrayEquals(reverse(maxterms), table.streamPrincipalConjunctiveNormalForm(true).toArray());
+            assertArrayEquals(minterms, table.streamPrincipalDisjunctiveNormalForm(false).parallel().toArray());
+            assertArrayEquals(reverse(maxterms), table.streamPrincipalConjunctiveNormalForm(true).parallel().toArray());
+            assertArrayEquals(table.calculatePrincipalDisjunctiveNormalForm(),
+                    table.streamPrincipalDisjunctiveNormalFormInt(false).toArray());
+            assertEquals(minterms.length, table.streamPrincipalDisjunctiveNormalForm(false).count());
+        }
+    }
+
+    @Test
+    void splitsStreamsPartWayThrough() throws CalculationException {
+        Calculator.Result result = Calculator.calculates("(a|b|c) & (d<->e) | !(f&g&h) & (i->j)");
+        for (int order = 0; order < 2; ++ order) {
+            Calculator.TruthTable table = Calculator.getTruthTable(result, order);
+            for (boolean descending : new boolean[]{false, true}) {
+                long[] expected = table.streamPrincipalConjunctiveNormalForm(descending).toArray();
+                Spliterator.OfLong spliterator = table.streamPrincipalConjunctiveNormalForm(descending)
+                        .spliterator();
+                List<Long> walked = new ArrayList<>();
+                for (int i = 0; i < 5; ++ i) {
+                    assertTrue(spliterator.tryAdvance((long index) -> walked.add(index)));
+                }
+                Spliterator.OfLong prefix = spliterator.trySplit();
+                assertNotNull(prefix);
+                prefix.forEachRemaining((long index) -> walked.add(index));
+                spliterator.forEachRemaining((long index) -> walked.add(index));
+                assertArrayEquals(expected, walked.stream().mapToLong(Long::longValue).toArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ml.rhacoal.polishnotation.bdd;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BddTest {
+
+    @Test
+    void simplifiedResultKeepsEliminatedPropositions() throws CalculationException {
+        Calculator.Result result = Calculator.calculates("(v4->v0)||v4").simplify();
+        assertEquals(2, result.identifierMap.size());
+        Bdd bdd = Bdd.of(result);
+        assertTrue(bdd.isTautology());
+        assertArrayEquals(new String[]{"v4", "v0"}, bdd.getVariables());
+        assertEquals(BigInteger.valueOf(4), bdd.satCount());
+    }
+
+    @Test
+    void unusedPropositionsAreOrderedAfterUsedOnes() throws CalculationException {
+        Calculator.Result result = Calculator.calculates("(a&b)|(c&!c)").simplify();
+        Bdd bdd = Bdd.of(result);
+        assertArrayEquals(new String[]{"a", "b", "c"}, bdd.getVariables());
+        // a and b true, c free
+        assertEquals(BigInteger.valueOf(2), bdd.satCount());
+        assertEquals("(a&b)", bdd.toDisjunctiveNormalForm());
+    }
+}
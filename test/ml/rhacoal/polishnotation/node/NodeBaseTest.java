@@ -0,0 +1,93 @@
+package ml.rhacoal.polishnotation.node;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.operatornode.OperatorNode;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeBaseTest {
+
+    /**
+     * An operator written against the node interface only, without a bitwise calculation.
+     */
+    private static final class Implies extends OperatorNode {
+
+        Implies(NodeBase left, NodeBase right) {
+            updateLeftChild(left);
+            updateRightChild(right);
+        }
+
+        @Override
+        public String name() {
+            return "=>";
+        }
+
+        @Override
+        public NodeType type() {
+            return NodeType.BINARY;
+        }
+
+        @Override
+        public int precedence() {
+            return 5;
+        }
+
+        @Override
+        public StringBuilder toExpression(StringBuilder stringBuilder) {
+            return getRightChild().toExpression(getLeftChild().toExpression(stringBuilder).append(name()));
+        }
+
+        @Override
+        public StringBuilder toPolishNotation(StringBuilder stringBuilder) {
+            return getRightChild().toPolishNotation(getLeftChild().toPolishNotation(stringBuilder.append(name())));
+        }
+
+        @Override
+        public StringBuilder toReversePolishNotation(StringBuilder stringBuilder) {
+            return getRightChild().toReversePolishNotation(getLeftChild().toReversePolishNotation(stringBuilder))
+                    .append(name());
+        }
+
+        @Override
+        public boolean calculate() {
+            return !getLeftChild().calculate() || getRightChild().calculate();
+        }
+    }
+
+    @Test
+    void calculatesBitsRowByRowByDefault() throws CalculationException {
+        Map<String, PropositionIdentifierNode> identifiers = new HashMap<>();
+        PropositionIdentifierNode a = PropositionIdentifierNode.getIdentifier(identifiers, "a");
+        PropositionIdentifierNode b = PropositionIdentifierNode.getIdentifier(identifiers, "b");
+        Calculator.Result negation = Calculator.calculates("!c");
+        PropositionIdentifierNode c = negation.identifierMap.get("c");
+        // a => (b => !c), with a library operator below the custom ones
+        ((OperatorNode) negation.root).updateRightChild(c);
+        NodeBase root = new Implies(a, new Implies(b, negation.root));
+        a.setValue(true);
+        b.setValue(false);
+        c.setValue(true);
+        a.setBits(0xF0F0L);
+        b.setBits(0xFF00L);
+        c.setBits(0xCCCCL);
+        assertEquals(~0xF0F0L | ~0xFF00L | ~0xCCCCL, root.calculateBits());
+        // the values are restored
+        assertTrue(a.calculate());
+        assertFalse(b.calculate());
+        assertTrue(c.calculate());
+
+        Calculator.TruthTable table = new Calculator.TruthTable(new ArrayList<>(Arrays.asList(a, b, c)), root)
+                .calculate(0);
+        for (long line = 0; line < 8; ++ line) {
+            assertEquals(line != 7, table.getResult(line));
+        }
+    }
+}
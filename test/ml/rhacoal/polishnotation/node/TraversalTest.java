@@ -0,0 +1,37 @@
+package ml.rhacoal.polishnotation.node;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraversalTest {
+
+    private static final int DEPTH = 200000;
+
+    @Test
+    void walksDeepFormulasWithoutRecursion() throws CalculationException {
+        // a & (a & (a & ... b)) nested by parentheses, and a chain of negations
+        String nested = "(a&".repeat(DEPTH) + "b" + ")".repeat(DEPTH);
+        Calculator.Result result = Calculator.calculates(nested);
+        PropositionIdentifierNode a = result.identifierMap.get("a"), b = result.identifierMap.get("b");
+        a.setValue(true);
+        b.setValue(true);
+        assertTrue(result.root.calculate());
+        b.setValue(false);
+        assertFalse(result.root.calculate());
+        a.setBits(-1L);
+        b.setBits(0xF0L);
+        assertEquals(0xF0L, result.root.calculateBits());
+        assertEquals(4 * DEPTH + 1, result.root.toExpression().length());
+        assertEquals(2 * DEPTH + 1, result.root.toPolishNotation().length());
+        assertEquals(2 * DEPTH + 1, result.root.toReversePolishNotation().length());
+
+        Calculator.Result negations = Calculator.calculates("!".repeat(DEPTH + 1) + "a");
+        negations.identifierMap.get("a").setValue(true);
+        assertFalse(negations.root.calculate());
+        assertEquals("a" + "!".repeat(DEPTH + 1), negations.root.toReversePolishNotation());
+    }
+}
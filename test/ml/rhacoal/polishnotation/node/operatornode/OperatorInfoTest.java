@@ -0,0 +1,40 @@
+package ml.rhacoal.polishnotation.node.operatornode;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.OperatorRegistry;
+import ml.rhacoal.polishnotation.node.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperatorInfoTest {
+
+    @Test
+    void calculationOnlyBuildsTheTruthTable() throws CalculationException {
+        AtomicInteger calls = new AtomicInteger();
+        OperatorInfo xor = OperatorInfo.createOperatorInfo("⊕", (l, r) -> {
+            calls.incrementAndGet();
+            return l.calculate() != r.calculate();
+        }, NodeType.BINARY, 10);
+        assertEquals(4, calls.get());
+        assertEquals(0b0110, xor.truthTable);
+        OperatorRegistry.registerOperator(xor);
+
+        Calculator.TruthTable table = Calculator.getTruthTable(Calculator.calculates("a⊕b⊕c"), 0);
+        for (long line = 0; line < 8; ++ line) {
+            assertEquals(Long.bitCount(line) % 2 == 1, table.getResult(line));
+        }
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void unaryCalculationsReceiveAFalseLeftOperand() {
+        OperatorInfo negation = OperatorInfo.createOperatorInfo("~~", (l, r) -> l.calculate() || !r.calculate(),
+                NodeType.UNARY, 1000);
+        assertEquals(1, negation.truthTable & 3);
+        assertEquals(0b1010L, negation.bitwiseCalculation.calculate(0L, 0b0101L) & 0xFL);
+    }
+}
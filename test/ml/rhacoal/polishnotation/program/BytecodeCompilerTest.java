@@ -0,0 +1,52 @@
+package ml.rhacoal.polishnotation.program;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeCompilerTest {
+
+    /**
+     * Generates a random formula of about {@code operators} binary operators over {@code variables} propositions.
+     */
+    private static String formula(Random random, int operators, int variables) {
+        StringBuilder builder = new StringBuilder("p0");
+        String[] names = {"&", "|", "^", "~", "↑", "↓"};
+        for (int i = 0; i < operators; ++ i) {
+            String operand = (random.nextBoolean() ? "!" : "") + "p" + random.nextInt(variables);
+            if (random.nextBoolean()) {
+                builder.insert(0, '(').append(names[random.nextInt(names.length)]).append(operand).append(')');
+            } else {
+                builder.insert(0, operand + names[random.nextInt(names.length)] + '(').append(')');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void assertSameResults(Program program, Random random) throws CalculationException {
+        Evaluator expected = program.newEvaluator(), actual = BytecodeCompiler.compile(program);
+        long[] values = new long[program.getVariableCount()];
+        for (int t = 0; t < 100; ++ t) {
+            for (int i = 0; i < values.length; ++ i) {
+                values[i] = random.nextLong();
+            }
+            assertEquals(expected.eval64(values), actual.eval64(values));
+            long assignment = random.nextLong();
+            assertEquals(expected.eval(assignment), actual.eval(assignment));
+        }
+    }
+
+    @Test
+    void splitsLargeFormulasIntoMethods() throws CalculationException {
+        Random random = new Random(42);
+        for (int operators : new int[]{10, 3000, 30000}) {
+            String expression = formula(random, operators, 18);
+            assertSameResults(Calculator.calculates(expression).compile(), random);
+            assertSameResults(Calculator.calculates(expression, true).compile(), random);
+        }
+    }
+}
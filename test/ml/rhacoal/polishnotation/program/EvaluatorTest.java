@@ -0,0 +1,88 @@
+package ml.rhacoal.polishnotation.program;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    /**
+     * Evaluates one assignment through {@link Evaluator#eval64(long[])}, which takes the values of every proposition,
+     * so propositions of index 64 or more are false as {@link Evaluator#eval(long)} promises.
+     */
+    private static boolean reference(Evaluator evaluator, int variables, long assignment) {
+        long[] values = new long[variables];
+        for (int i = 0; i < variables && i < 64; ++ i) {
+            values[i] = -((assignment >>> i) & 1L);
+        }
+        return (evaluator.eval64(values) & 1L) != 0;
+    }
+
+    private static Evaluator[] evaluators(Program program) throws CalculationException, IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProgramLibrary.write(Collections.singletonList(program), Channels.newChannel(bytes));
+        ProgramLibrary library = ProgramLibrary.open(ByteBuffer.wrap(bytes.toByteArray()));
+        return new Evaluator[]{
+                program.newEvaluator(), BytecodeCompiler.compile(program), new IncrementalEvaluator(program),
+                library.newEvaluator(0)
+        };
+    }
+
+    @Test
+    void propositionsPast64AreFalse() throws CalculationException, IOException {
+        // names sort in numeric order, so v65 has index 65
+        StringBuilder formula = new StringBuilder("(v00");
+        for (int i = 1; i < 65; ++ i) {
+            formula.append(String.format("|v%02d", i));
+        }
+        Program program = Calculator.calculates(formula.append(")&v65")).compile();
+        assertEquals("v65", program.getVariables()[65]);
+        for (Evaluator evaluator : evaluators(program)) {
+            // v65 must not be read from bit 65 & 63 = 1, which is v01
+            assertFalse(evaluator.eval(2L), evaluator.getClass().getName());
+            assertFalse(evaluator.eval(-1L), evaluator.getClass().getName());
+        }
+    }
+
+    @Test
+    void enginesAgreeOnMoreThan64Propositions() throws CalculationException, IOException {
+        Random random = new Random(7);
+        String[] operators = {"&", "|", "->", "<->", "↑", "↓"};
+        for (int n = 0; n < 50; ++ n) {
+            StringBuilder formula = new StringBuilder("p" + random.nextInt(70));
+            for (int i = 0; i < 200; ++ i) {
+                formula.append(operators[random.nextInt(operators.length)])
+                        .append(random.nextBoolean() ? "!" : "").append('p').append(random.nextInt(70));
+                if (random.nextInt(8) == 0) {
+                    formula.insert(0, '(').append(')');
+                }
+            }
+            Program program = Calculator.calculates(formula.toString()).compile();
+            Evaluator[] evaluators = evaluators(program);
+            int variables = program.getVariableCount();
+            for (int t = 0; t < 64; ++ t) {
+                long assignment = random.nextLong();
+                boolean expected = reference(evaluators[0], variables, assignment);
+                long[] values = new long[variables];
+                for (int i = 0; i < variables; ++ i) {
+                    values[i] = random.nextLong();
+                }
+                long expected64 = evaluators[0].eval64(values);
+                for (Evaluator evaluator : evaluators) {
+                    String name = evaluator.getClass().getName() + ": " + formula;
+                    assertEquals(expected, evaluator.eval(assignment), name);
+                    assertEquals(expected64, evaluator.eval64(values), name);
+                }
+            }
+        }
+    }
+}
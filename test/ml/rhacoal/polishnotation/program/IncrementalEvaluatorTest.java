@@ -0,0 +1,63 @@
+package ml.rhacoal.polishnotation.program;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalEvaluatorTest {
+
+    @Test
+    void followsChangingPropositions() throws CalculationException {
+        Random random = new Random(23);
+        for (int n = 0; n < 100; ++ n) {
+            String formula = ProgramTest.randomFormula(random, 12, 1 + random.nextInt(60));
+            // shared subexpressions give nodes several fathers
+            Program program = Calculator.calculates(formula, random.nextBoolean()).compile();
+            Evaluator expected = program.newEvaluator();
+            IncrementalEvaluator incremental = new IncrementalEvaluator(program);
+            long[] values = new long[program.getVariableCount()];
+            for (int step = 0; step < 200; ++ step) {
+                // change a few propositions, or none
+                for (int k = random.nextInt(3); k > 0 && values.length > 0; -- k) {
+                    int i = random.nextInt(values.length);
+                    values[i] = random.nextBoolean() ? random.nextLong() : ~values[i];
+                }
+                assertEquals(expected.eval64(values), incremental.eval64(values), formula);
+            }
+        }
+    }
+
+    @Test
+    void followsGrayCode() throws CalculationException {
+        Program program = Calculator.calculates("(a <-> b) & !(c | d) -> (b ↑ e) | (a & (a <-> b))", true)
+                .compile();
+        Evaluator expected = program.newEvaluator();
+        IncrementalEvaluator incremental = new IncrementalEvaluator(program);
+        for (long i = 0; i < 64; ++ i) {
+            long assignment = i ^ (i >>> 1);
+            assertEquals(expected.eval(assignment), incremental.eval(assignment));
+        }
+    }
+
+    @Test
+    void incrementalTablesMatchTheTree() throws CalculationException {
+        Random random = new Random(29);
+        for (int n = 0; n < 30; ++ n) {
+            Calculator.Result result = Calculator.calculates(ProgramTest.randomFormula(random, 12, 40));
+            Calculator.TruthTable tree = Calculator.getTruthTable(result, 0);
+            Calculator.TruthTable incremental = new Calculator.TruthTable(result.getPropositions(), result.root,
+                    Calculator.Engine.INCREMENTAL).calculate(0);
+            long lines = 1L << result.getPropositions().size();
+            for (long block = 0; block << 6 < lines; ++ block) {
+                assertEquals(tree.calculateBlock(block), incremental.calculateBlock(block));
+                for (int k = 0; k < 64 && (block << 6) + k < lines; ++ k) {
+                    assertEquals(tree.getResult((block << 6) + k), incremental.getResult((block << 6) + k));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ml.rhacoal.polishnotation.program;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgramTest {
+
+    private static final String[] OPERATORS = {"&", "|", "->", "<->", "↑", "↓"};
+
+    static String randomFormula(Random random, int variables, int length) {
+        StringBuilder formula = new StringBuilder("p" + random.nextInt(variables));
+        for (int i = 0; i < length; ++ i) {
+            formula.append(OPERATORS[random.nextInt(OPERATORS.length)]).append(random.nextBoolean() ? "!" : "");
+            switch (random.nextInt(8)) {
+                case 0:
+                    formula.append(random.nextBoolean() ? 'T' : 'F');
+                    break;
+                case 1:
+                    formula.append("!(p").append(random.nextInt(variables)).append("&p")
+                            .append(random.nextInt(variables)).append(')');
+                    break;
+                default:
+                    formula.append('p').append(random.nextInt(variables));
+            }
+            if (random.nextInt(6) == 0) {
+                formula.insert(0, '(').append(')');
+            }
+        }
+        return formula.toString();
+    }
+
+    @Test
+    void compilesToPostfix() throws CalculationException {
+        Program program = Calculator.calculates("!(a -> b) | c").compile();
+        assertArrayEquals(new String[]{"a", "b", "c"}, program.getVariables());
+        assertArrayEquals(new byte[]{Program.VARIABLE, Program.VARIABLE, Program.IMPLY, Program.NOT,
+                Program.VARIABLE, Program.OR}, opcodes(program));
+        assertEquals(2, program.getOperand(4));
+        assertEquals(2, program.getMaxDepth());
+        assertEquals(0, program.getSlotCount());
+    }
+
+    private static byte[] opcodes(Program program) {
+        byte[] opcodes = new byte[program.size()];
+        for (int i = 0; i < opcodes.length; ++ i) {
+            opcodes[i] = program.getOpcode(i);
+        }
+        return opcodes;
+    }
+
+    @Test
+    void agreesWithTheNodeTree() throws CalculationException {
+        Random random = new Random(11);
+        for (int n = 0; n < 200; ++ n) {
+            String formula = randomFormula(random, 8, 1 + random.nextInt(30));
+            for (boolean share : new boolean[]{false, true}) {
+                Calculator.Result result = Calculator.calculates(formula, share);
+                Program program = result.compile();
+                Evaluator evaluator = program.newEvaluator();
+                ArrayList<PropositionIdentifierNode> propositions = result.getPropositions();
+                for (long assignment = 0, lines = 1L << propositions.size(); assignment < lines; ++ assignment) {
+                    for (int j = 0; j < propositions.size(); ++ j) {
+                        propositions.get(j).setValue(((assignment >>> j) & 1L) != 0);
+                    }
+                    assertEquals(result.root.calculate(), evaluator.eval(assignment), formula);
+                }
+            }
+        }
+    }
+
+    @Test
+    void engineTablesMatchTheTree() throws CalculationException {
+        Random random = new Random(5);
+        for (int n = 0; n < 50; ++ n) {
+            Calculator.Result result = Calculator.calculates(randomFormula(random, 10, 1 + random.nextInt(40)));
+            Calculator.TruthTable tree = Calculator.getTruthTable(result, 0);
+            for (Calculator.Engine engine : new Calculator.Engine[]{Calculator.Engine.PROGRAM,
+                    Calculator.Engine.BYTECODE}) {
+                Calculator.TruthTable table = new Calculator.TruthTable(result.getPropositions(), result.root, engine)
+                        .calculate(0);
+                assertEquals(tree.toString(), table.toString(), engine + ": " + result.root.toExpression());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ml.rhacoal.polishnotation.sat;
+
+import ml.rhacoal.polishnotation.CalculationException;
+import ml.rhacoal.polishnotation.Calculator;
+import ml.rhacoal.polishnotation.node.valuenode.PropositionIdentifierNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SatSolverTest {
+
+    private static final String[] OPERATORS = {"&", "|", "->", "<->", "↑", "↓"};
+
+    private static boolean holds(Calculator.Result result, Map<String, Boolean> assignment) {
+        for (Map.Entry<String, PropositionIdentifierNode> entry : result.identifierMap.entrySet()) {
+            entry.getValue().setValue(assignment.get(entry.getKey()));
+        }
+        return result.root.calculate();
+    }
+
+    @Test
+    void agreesWithTruthTables() throws CalculationException {
+        Random random = new Random(41);
+        int satisfiable = 0, tautologies = 0;
+        for (int n = 0; n < 300; ++ n) {
+            int variables = 1 + random.nextInt(8);
+            StringBuilder formula = new StringBuilder("p" + random.nextInt(variables));
+            for (int i = random.nextInt(20); i > 0; -- i) {
+                formula.append(OPERATORS[random.nextInt(OPERATORS.length)])
+                        .append(random.nextBoolean() ? "!" : "").append('p').append(random.nextInt(variables));
+                if (random.nextInt(5) == 0) {
+                    formula.insert(0, '(').append(')');
+                }
+            }
+            Calculator.Result result = Calculator.calculates(formula.toString());
+            Calculator.TruthTable table = Calculator.getTruthTable(result, 0);
+            long lines = 1L << result.getPropositions().size();
+            long trueLines = table.streamPrincipalDisjunctiveNormalForm(false).count();
+            Satisfiability satisfiability = Satisfiability.of(result);
+            assertEquals(trueLines > 0, satisfiability.isSatisfiable(), formula.toString());
+            assertEquals(trueLines == 0, satisfiability.isContradiction(), formula.toString());
+            assertEquals(trueLines == lines, satisfiability.isTautology(), formula.toString());
+            if (satisfiability.isSatisfiable()) {
+                assertTrue(holds(result, satisfiability.getModel()), formula.toString());
+                ++ satisfiable;
+            }
+            if (satisfiability.isTautology()) {
+                ++ tautologies;
+            } else {
+                assertFalse(holds(result, satisfiability.getCounterexample()), formula.toString());
+            }
+        }
+        // the formulas cover every case
+        assertTrue(satisfiable < 300 && tautologies > 0, satisfiable + " " + tautologies);
+    }
+
+    /**
+     * Adds the clauses saying that {@code pigeons} pigeons sit in {@code holes} holes, at most one per hole.
+     */
+    private static SatSolver pigeonholes(int pigeons, int holes) {
+        SatSolver solver = new SatSolver();
+        int[][] sits = new int[pigeons][holes];
+        for (int p = 0; p < pigeons; ++ p) {
+            for (int h = 0; h < holes; ++ h) {
+                sits[p][h] = solver.newVariable();
+            }
+            solver.addClause(sits[p]);
+        }
+        for (int h = 0; h < holes; ++ h) {
+            for (int p = 0; p < pigeons; ++ p) {
+                for (int q = p + 1; q < pigeons; ++ q) {
+                    solver.addClause(-sits[p][h], -sits[q][h]);
+                }
+            }
+        }
+        return solver;
+    }
+
+    @Test
+    void solvesPigeonholes() {
+        assertTrue(pigeonholes(6, 6).solve());
+        SatSolver solver = pigeonholes(7, 6);
+        assertFalse(solver.solve());
+        assertTrue(solver.getConflicts() > 0);
+    }
+
+    @Test
+    void solvesUnderAssumptions() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVariable(), b = solver.newVariable(), c = solver.newVariable();
+        assertTrue(solver.addClause(a, b));
+        assertTrue(solver.addClause(-a, c));
+        assertTrue(solver.solve(-b));
+        assertTrue(solver.getValue(a));
+        assertTrue(solver.getValue(c));
+        assertFalse(solver.solve(-b, -c));
+        // assumptions only hold for one call
+        assertTrue(solver.solve());
+        solver.addClause(-c);
+        assertTrue(solver.solve());
+        assertFalse(solver.getValue(a));
+        assertTrue(solver.getValue(b));
+    }
+
+    /**
+     * Writes the pigeonhole clauses as a formula, pigeon {@code p} sitting in hole {@code h} being {@code sp_h}.
+     */
+    private static String pigeonholeFormula(int pigeons, int holes) {
+        StringBuilder formula = new StringBuilder("T");
+        for (int p = 0; p < pigeons; ++ p) {
+            formula.append("&(F");
+            for (int h = 0; h < holes; ++ h) {
+                formula.append("|s").append(p).append('_').append(h);
+            }
+            formula.append(')');
+        }
+        for (int h = 0; h < holes; ++ h) {
+            for (int p = 0; p < pigeons; ++ p) {
+                for (int q = p + 1; q < pigeons; ++ q) {
+                    formula.append("&(!s").append(p).append('_').append(h).append("|!s").append(q).append('_')
+                            .append(h).append(')');
+                }
+            }
+        }
+        return formula.toString();
+    }
+
+    @Test
+    void givesUpAtTheDeadline() throws CalculationException {
+        assertNull(pigeonholes(10, 9).solveUntil(System.nanoTime()));
+        SatSolver solver = pigeonholes(6, 5);
+        assertEquals(Boolean.FALSE, solver.solveUntil(System.nanoTime() + 60_000_000_000L));
+
+        Calculator.Result result = Calculator.calculates(pigeonholeFormula(10, 9));
+        assertNull(Satisfiability.of(result.compile(), System.nanoTime()));
+        Satisfiability satisfiability = Satisfiability.of(Calculator.calculates(pigeonholeFormula(6, 5)).compile(),
+                System.nanoTime() + 60_000_000_000L);
+        assertNotNull(satisfiability);
+        assertTrue(satisfiability.isContradiction());
+        assertFalse(Calculator.solves(pigeonholeFormula(5, 5)).isContradiction());
+    }
+}